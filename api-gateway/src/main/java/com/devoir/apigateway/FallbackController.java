@@ -1,13 +1,30 @@
 package com.devoir.apigateway;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
 public class FallbackController {
 
+    private static final String MESSAGE = "⚠️ Service unavailable. Please try again later (Fallback Mechanism Active).";
+
     @GetMapping("/fallback")
     public String fallback() {
-        return ("⚠️ Service unavailable. Please try again later (Fallback Mechanism Active).");
+        return (MESSAGE);
+    }
+
+    // Disjoncteur de route-produits : toutes méthodes (une écriture ne doit pas finir en 405),
+    // 503 et no-store pour que ni le cache de la gateway ni les clients ne gardent ce refus
+    @RequestMapping("/fallback/produits")
+    public ResponseEntity<String> produitsFallback() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .cacheControl(CacheControl.noStore())
+                .body(MESSAGE);
     }
-}
\ No newline at end of file
+}
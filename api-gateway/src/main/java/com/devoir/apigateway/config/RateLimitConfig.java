@@ -0,0 +1,40 @@
+package com.devoir.apigateway.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.Set;
+
+@Configuration
+public class RateLimitConfig {
+
+    public static final String API_KEY_HEADER = "X-API-Key";
+    public static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+
+    // Clé d'API si elle fait partie de gateway.rate-limit.api-keys, sinon adresse IP du client :
+    // une clé inventée à chaque requête n'ouvre pas un nouveau seau. X-Forwarded-For est ignoré
+    // sans clé connue : la gateway est le point d'entrée et cet en-tête est libre côté client.
+    // Avec une clé connue (client-ui, qui appelle la gateway pour le compte des navigateurs), le
+    // premier X-Forwarded-For identifie l'utilisateur final : un seau par navigateur, pas un seul
+    // pour toutes les sessions de l'application.
+    @Bean
+    public KeyResolver clientKeyResolver(@Value("${gateway.rate-limit.api-keys:}") Set<String> apiKeys) {
+        return exchange -> {
+            HttpHeaders headers = exchange.getRequest().getHeaders();
+            String apiKey = headers.getFirst(API_KEY_HEADER);
+            if (apiKey != null && apiKeys.contains(apiKey)) {
+                String forwardedFor = headers.getFirst(FORWARDED_FOR_HEADER);
+                String client = forwardedFor != null ? forwardedFor.split(",", 2)[0].trim() : "";
+                return Mono.just(client.isEmpty() ? "key:" + apiKey : "key:" + apiKey + ":" + client);
+            }
+            InetSocketAddress remote = exchange.getRequest().getRemoteAddress();
+            return Mono.just("ip:" + (remote != null && remote.getAddress() != null
+                    ? remote.getAddress().getHostAddress() : "unknown"));
+        };
+    }
+}
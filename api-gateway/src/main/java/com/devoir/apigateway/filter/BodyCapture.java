@@ -0,0 +1,48 @@
+package com.devoir.apigateway.filter;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Copie d'un corps de réponse pendant son envoi au client, abandonnée dès que la taille
+ * maximale est dépassée.
+ */
+final class BodyCapture {
+
+    private final int limit;
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private boolean overflow;
+
+    BodyCapture(int limit) {
+        this.limit = limit;
+    }
+
+    void append(DataBuffer buffer) {
+        if (overflow) {
+            return;
+        }
+        if (bytes.size() + buffer.readableByteCount() > limit) {
+            overflow = true;
+            bytes.reset();
+            return;
+        }
+        try (DataBuffer.ByteBufferIterator it = buffer.readableByteBuffers()) {
+            while (it.hasNext()) {
+                ByteBuffer chunk = it.next();
+                byte[] copy = new byte[chunk.remaining()];
+                chunk.get(copy);
+                bytes.write(copy, 0, copy.length);
+            }
+        }
+    }
+
+    boolean overflow() {
+        return overflow;
+    }
+
+    byte[] toByteArray() {
+        return bytes.toByteArray();
+    }
+}
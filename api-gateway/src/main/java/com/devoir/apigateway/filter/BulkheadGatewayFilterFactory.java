@@ -0,0 +1,153 @@
+package com.devoir.apigateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cloison (bulkhead) par route : au plus {@code maxConcurrent} requêtes en cours vers le service.
+ * Au-delà, la requête est refusée immédiatement (503 + Retry-After) au lieu d'attendre : le
+ * service bloquant ne voit jamais plus de requêtes qu'il n'a de threads, et le disjoncteur
+ * placé après ne compte pas ces refus comme des échecs du service.
+ *
+ * Une place est tenue par un appel, pas par une connexion : une réponse en flux (SSE, NDJSON)
+ * rend la sienne dès l'envoi de ses en-têtes, et les chemins {@code excludedPaths} (long-poll,
+ * flux) ne passent pas par la cloison. {@code name} vaut par défaut l'ID de la route.
+ *
+ * Métriques : gateway.bulkhead.inflight et gateway.bulkhead.rejected, par nom de cloison.
+ */
+@Component
+public class BulkheadGatewayFilterFactory extends AbstractGatewayFilterFactory<BulkheadGatewayFilterFactory.Config> {
+
+    private static final List<MediaType> STREAMING = List.of(MediaType.TEXT_EVENT_STREAM, MediaType.APPLICATION_NDJSON);
+
+    private final MeterRegistry meterRegistry;
+    // Une cloison par nom, partagée si plusieurs routes utilisent le même
+    private final Map<String, Semaphore> semaphores = new ConcurrentHashMap<>();
+
+    public BulkheadGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("name", "maxConcurrent");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String name = config.getName() != null ? config.getName()
+                : config.getRouteId() != null ? config.getRouteId() : "default";
+        Semaphore semaphore = semaphores.computeIfAbsent(name, n -> {
+            Semaphore created = new Semaphore(config.getMaxConcurrent());
+            Gauge.builder("gateway.bulkhead.inflight", created, s -> config.getMaxConcurrent() - s.availablePermits())
+                    .tag("name", n)
+                    .register(meterRegistry);
+            return created;
+        });
+        Counter rejected = Counter.builder("gateway.bulkhead.rejected").tag("name", name).register(meterRegistry);
+        String retryAfter = String.valueOf(Math.max(1, config.getRetryAfter().toSeconds()));
+        List<PathPattern> excludedPaths = config.getExcludedPaths().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+        return (exchange, chain) -> {
+            PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+            if (excludedPaths.stream().anyMatch(pattern -> pattern.matches(path))) {
+                return chain.filter(exchange);
+            }
+            if (!semaphore.tryAcquire()) {
+                rejected.increment();
+                exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfter);
+                return exchange.getResponse().setComplete();
+            }
+            AtomicBoolean held = new AtomicBoolean(true);
+            Runnable release = () -> {
+                if (held.compareAndSet(true, false)) {
+                    semaphore.release();
+                }
+            };
+            exchange.getResponse().beforeCommit(() -> {
+                if (streaming(exchange.getResponse().getHeaders().getContentType())) {
+                    release.run();
+                }
+                return Mono.empty();
+            });
+            return chain.filter(exchange).doFinally(signal -> release.run());
+        };
+    }
+
+    private static boolean streaming(MediaType contentType) {
+        return contentType != null && STREAMING.stream().anyMatch(type -> type.isCompatibleWith(contentType));
+    }
+
+    public static class Config implements HasRouteId {
+
+        private String name;
+        private String routeId;
+        private int maxConcurrent = 50;
+        private Duration retryAfter = Duration.ofSeconds(1);
+        private List<String> excludedPaths = List.of();
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+
+        public void setRetryAfter(Duration retryAfter) {
+            this.retryAfter = retryAfter;
+        }
+
+        public List<String> getExcludedPaths() {
+            return excludedPaths;
+        }
+
+        public void setExcludedPaths(List<String> excludedPaths) {
+            this.excludedPaths = excludedPaths;
+        }
+    }
+}
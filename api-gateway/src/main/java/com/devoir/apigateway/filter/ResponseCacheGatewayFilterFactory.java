@@ -0,0 +1,235 @@
+package com.devoir.apigateway.filter;
+
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.RequestPath;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Cache de réponses côté gateway pour les GET d'une route.
+ *
+ * Arguments : {@code ttl} (durée de vie des entrées, 0 = pas de mise en cache) et
+ * {@code alsoInvalidate} (collections supplémentaires invalidées par les écritures de la route,
+ * ex. /produits pour route-commandes, dont les créations réservent du stock).
+ *
+ * Seules les réponses 200 sans Set-Cookie, sans Cache-Control no-store/private, sans Vary: *
+ * et hors flux (SSE, NDJSON : écrits avec flush, jamais capturés) sont conservées ; le corps est copié au fil de l'écriture vers le client,
+ * sans retarder celui-ci, et abandonné au-delà de gateway.cache.max-entry-bytes.
+ * Cache-Control: no-cache renvoyé par un service s'adresse aux navigateurs : la gateway joue
+ * le rôle de cache de substitution et garde l'entrée pendant le TTL de la route, les écritures
+ * passant par elle l'invalidant immédiatement. Une requête avec Cache-Control: no-cache
+ * contourne le cache.
+ *
+ * Toute autre méthode que GET/HEAD/OPTIONS invalide la collection à la fin de la réponse.
+ */
+@Component
+public class ResponseCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    public static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    static final int WRITE_ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+
+    // En-têtes propres à la connexion ou à la requête en cours, jamais rejoués depuis le cache
+    private static final Set<String> NOT_STORED = Set.of(
+            "connection", "transfer-encoding", "keep-alive", "date", "set-cookie");
+
+    private final ResponseCacheStore store;
+
+    public ResponseCacheGatewayFilterFactory(ResponseCacheStore store) {
+        super(Config.class);
+        this.store = store;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("ttl");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // Avant NettyWriteResponseFilter : c'est lui qui écrit le corps, à travers la réponse capturante
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            HttpMethod method = request.getMethod();
+            String collection = collectionOf(request.getPath());
+            if (!HttpMethod.GET.equals(method)) {
+                if (HttpMethod.HEAD.equals(method) || HttpMethod.OPTIONS.equals(method)) {
+                    return chain.filter(exchange);
+                }
+                // Après la réponse : l'écriture est validée côté service
+                return chain.filter(exchange).doFinally(signal -> {
+                    store.invalidate(collection);
+                    config.getAlsoInvalidate().forEach(store::invalidate);
+                });
+            }
+            String requestCacheControl = request.getHeaders().getCacheControl();
+            if (config.getTtl().isZero()
+                    || (requestCacheControl != null && requestCacheControl.toLowerCase(Locale.ROOT).contains("no-cache"))) {
+                return chain.filter(exchange);
+            }
+
+            String primaryKey = store.primaryKey(collection, request.getURI().getRawPath()
+                    + (request.getURI().getRawQuery() != null ? "?" + request.getURI().getRawQuery() : ""));
+            ResponseCacheStore.CachedResponse cached = store.lookup(primaryKey, request.getHeaders());
+            if (cached != null) {
+                return writeCached(exchange, cached);
+            }
+            exchange.getResponse().getHeaders().set(CACHE_STATUS_HEADER, "MISS");
+            ServerHttpResponse capturing = new CapturingResponse(exchange, primaryKey, config.getTtl());
+            return chain.filter(exchange.mutate().response(capturing).build());
+        }, WRITE_ORDER);
+    }
+
+    private Mono<Void> writeCached(ServerWebExchange exchange, ResponseCacheStore.CachedResponse cached) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        cached.headers().forEach((name, values) -> {
+            if (!headers.containsKey(name)) {
+                headers.put(name, values);
+            }
+        });
+        headers.set(HttpHeaders.AGE, String.valueOf((System.currentTimeMillis() - cached.storedAtMillis()) / 1000));
+        headers.set(CACHE_STATUS_HEADER, "HIT");
+
+        String etag = cached.headers().getETag();
+        if (etag != null && exchange.getRequest().getHeaders().getIfNoneMatch().contains(etag)) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            return response.setComplete();
+        }
+        response.setStatusCode(cached.status());
+        headers.setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    // Premier segment du chemin : /produits/5?x=1 -> /produits
+    static String collectionOf(RequestPath path) {
+        String value = path.pathWithinApplication().value();
+        int next = value.indexOf('/', 1);
+        return next > 0 ? value.substring(0, next) : value;
+    }
+
+    /**
+     * Copie le corps pendant qu'il est transmis au client, puis le range dans le cache
+     * si la réponse est complète et cachable.
+     */
+    private class CapturingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final String primaryKey;
+        private final Duration ttl;
+
+        CapturingResponse(ServerWebExchange exchange, String primaryKey, Duration ttl) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.primaryKey = primaryKey;
+            this.ttl = ttl;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatusCode status = getStatusCode();
+            HttpHeaders headers = getHeaders();
+            List<String> vary = normalizedVary(headers);
+            if (status == null || status.value() != 200 || vary == null || !cacheable(headers)) {
+                return super.writeWith(body);
+            }
+            BodyCapture capture = new BodyCapture(store.maxEntryBytes());
+            Flux<DataBuffer> tee = Flux.from(body)
+                    .doOnNext(capture::append)
+                    .doOnComplete(() -> {
+                        if (!capture.overflow()) {
+                            store.store(primaryKey, exchange.getRequest().getHeaders(), vary,
+                                    new ResponseCacheStore.CachedResponse(status, storedHeaders(headers),
+                                            capture.toByteArray(), System.currentTimeMillis(), ttl));
+                        }
+                    });
+            return super.writeWith(tee);
+        }
+
+        private boolean cacheable(HttpHeaders headers) {
+            String cacheControl = headers.getCacheControl();
+            if (cacheControl != null) {
+                String directives = cacheControl.toLowerCase(Locale.ROOT);
+                if (directives.contains("no-store") || directives.contains("private")) {
+                    return false;
+                }
+            }
+            MediaType contentType = headers.getContentType();
+            return !headers.containsKey(HttpHeaders.SET_COOKIE)
+                    && (contentType == null || !MediaType.TEXT_EVENT_STREAM.isCompatibleWith(contentType))
+                    && headers.getContentLength() <= store.maxEntryBytes();
+        }
+    }
+
+    // En-têtes listés par Vary, triés et en minuscules ; null si Vary: * (jamais cachable)
+    private static List<String> normalizedVary(HttpHeaders headers) {
+        List<String> vary = new ArrayList<>();
+        for (String name : headers.getVary()) {
+            if (name.equals("*")) {
+                return null;
+            }
+            String normalized = name.toLowerCase(Locale.ROOT);
+            if (!vary.contains(normalized)) {
+                vary.add(normalized);
+            }
+        }
+        vary.sort(null);
+        return vary;
+    }
+
+    private static HttpHeaders storedHeaders(HttpHeaders headers) {
+        HttpHeaders stored = new HttpHeaders();
+        headers.forEach((name, values) -> {
+            String lower = name.toLowerCase(Locale.ROOT);
+            // Les en-têtes CORS dépendent de l'origine de chaque requête : recalculés par CorsWebFilter
+            if (!NOT_STORED.contains(lower) && !lower.startsWith("access-control-") && !lower.equals("x-cache")) {
+                stored.put(name, new ArrayList<>(values));
+            }
+        });
+        return HttpHeaders.readOnlyHttpHeaders(stored);
+    }
+
+    public static class Config {
+
+        private Duration ttl = Duration.ofSeconds(5);
+        private List<String> alsoInvalidate = List.of();
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public List<String> getAlsoInvalidate() {
+            return alsoInvalidate;
+        }
+
+        public void setAlsoInvalidate(List<String> alsoInvalidate) {
+            this.alsoInvalidate = alsoInvalidate;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.devoir.apigateway.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stockage des réponses mises en cache par le filtre ResponseCache : corps en tableaux d'octets,
+ * taille totale bornée (gateway.cache.max-bytes, éviction W-TinyLFU pondérée par la taille),
+ * durée de vie propre à chaque entrée (TTL de la route).
+ *
+ * Clé primaire : génération de la collection, chemin et query string. Les en-têtes nommés
+ * par le Vary de la dernière réponse complètent la clé : deux clients qui n'envoient pas les
+ * mêmes valeurs pour ces en-têtes ne partagent pas d'entrée.
+ *
+ * Invalidation : chaque collection (premier segment du chemin, ex. /produits) a un numéro de
+ * génération, incrémenté après chaque écriture. Les entrées des générations précédentes ne
+ * sont plus jamais lues et sortent du cache par éviction ou expiration ; une réponse lue
+ * avant l'écriture mais stockée après est rangée sous l'ancienne génération.
+ */
+@Component
+public class ResponseCacheStore {
+
+    public record CachedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body,
+                                 long storedAtMillis, Duration ttl) {
+    }
+
+    // Taille approximative des en-têtes et de l'objet, ajoutée au corps pour le poids d'une entrée
+    private static final int ENTRY_OVERHEAD = 512;
+
+    private final Cache<String, CachedResponse> entries;
+    private final Cache<String, List<String>> varyByResource;
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final int maxEntryBytes;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bytesSaved;
+
+    public ResponseCacheStore(MeterRegistry meterRegistry,
+                              @Value("${gateway.cache.max-bytes:67108864}") long maxBytes,
+                              @Value("${gateway.cache.max-entry-bytes:1048576}") int maxEntryBytes) {
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, CachedResponse r) -> r.body().length + key.length() + ENTRY_OVERHEAD)
+                .expireAfter(new Expiry<String, CachedResponse>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedResponse value, long currentTime) {
+                        return value.ttl().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedResponse value, long currentTime, long currentDuration) {
+                        return value.ttl().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedResponse value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        this.varyByResource = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+        this.maxEntryBytes = maxEntryBytes;
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "gateway.responses");
+        this.hits = Counter.builder("gateway.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("gateway.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.bytesSaved = Counter.builder("gateway.cache.bytes.saved").baseUnit("bytes")
+                .description("Octets servis depuis le cache sans appel amont").register(meterRegistry);
+        Gauge.builder("gateway.cache.hit.ratio", this, ResponseCacheStore::hitRatio).register(meterRegistry);
+    }
+
+    public int maxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    public String primaryKey(String collection, String pathAndQuery) {
+        return generation(collection).get() + " " + pathAndQuery;
+    }
+
+    public CachedResponse lookup(String primaryKey, HttpHeaders requestHeaders) {
+        List<String> vary = varyByResource.getIfPresent(primaryKey);
+        CachedResponse cached = vary != null ? entries.getIfPresent(variantKey(primaryKey, vary, requestHeaders)) : null;
+        if (cached != null) {
+            hits.increment();
+            bytesSaved.increment(cached.body().length);
+        } else {
+            misses.increment();
+        }
+        return cached;
+    }
+
+    public void store(String primaryKey, HttpHeaders requestHeaders, List<String> vary, CachedResponse response) {
+        varyByResource.put(primaryKey, vary);
+        entries.put(variantKey(primaryKey, vary, requestHeaders), response);
+    }
+
+    public void invalidate(String collection) {
+        generation(collection).incrementAndGet();
+    }
+
+    private AtomicLong generation(String collection) {
+        return generations.computeIfAbsent(collection, c -> new AtomicLong());
+    }
+
+    private static String variantKey(String primaryKey, List<String> vary, HttpHeaders requestHeaders) {
+        if (vary.isEmpty()) {
+            return primaryKey;
+        }
+        StringBuilder key = new StringBuilder(primaryKey);
+        for (String name : vary) {
+            key.append('\n').append(name.toLowerCase(Locale.ROOT)).append('=');
+            List<String> values = requestHeaders.get(name);
+            if (values != null) {
+                key.append(String.join(",", values));
+            }
+        }
+        return key.toString();
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total > 0 ? hits.count() / total : 0.0;
+    }
+}
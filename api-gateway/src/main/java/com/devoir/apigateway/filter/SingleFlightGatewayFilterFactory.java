@@ -0,0 +1,243 @@
+package com.devoir.apigateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Regroupement des GET identiques simultanés (single-flight) : la première requête d'une clé
+ * part vers le service, celles qui arrivent pendant qu'elle est en cours attendent sa réponse
+ * et en reçoivent une copie. Le nombre d'appels au service suit le nombre de requêtes
+ * distinctes, pas le nombre de clients qui chargent la même page au même moment.
+ *
+ * Clé : méthode, chemin, query string et valeurs des en-têtes {@code headers} (ceux dont dépend
+ * la réponse : négociation de contenu, identité du client, requêtes conditionnelles).
+ *
+ * Seules les réponses 2xx et 304 sont partagées. Une requête en attente repart seule vers le
+ * service si la réponse partagée n'arrive pas dans {@code maxWait}, ou si elle n'est pas partageable :
+ * statut d'erreur (un 429 ou un 503 de la cloison ne concerne que la première requête, et les
+ * suivantes doivent passer elles-mêmes par le limiteur et la cloison), Set-Cookie, flux (SSE,
+ * NDJSON écrits avec flush), corps au-delà de gateway.single-flight.max-bytes, échec ou abandon
+ * de la première requête. Les en-têtes du limiteur de débit (X-RateLimit-*, Retry-After) décrivent
+ * le seau du premier client et ne sont pas copiés.
+ * Aucune réponse n'est gardée au-delà de la requête qui l'a produite (le cache, c'est ResponseCache).
+ *
+ * Métriques : gateway.single.flight.requests (leader, follower, fallback) et gateway.single.flight.inflight.
+ */
+@Component
+public class SingleFlightGatewayFilterFactory extends AbstractGatewayFilterFactory<SingleFlightGatewayFilterFactory.Config> {
+
+    public static final String SINGLE_FLIGHT_HEADER = "X-Single-Flight";
+
+    private record SharedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+    }
+
+    // En-têtes propres à la connexion, au client de la première requête ou recalculés pour chaque requête
+    private static final Set<String> NOT_SHARED = Set.of("connection", "transfer-encoding", "keep-alive", "date",
+            "content-length", "retry-after", ResponseCacheGatewayFilterFactory.CACHE_STATUS_HEADER.toLowerCase(Locale.ROOT));
+
+    private final Map<String, Sinks.One<SharedResponse>> inFlight = new ConcurrentHashMap<>();
+    private final int maxBytes;
+    private final Counter leaders;
+    private final Counter followers;
+    private final Counter fallbacks;
+
+    public SingleFlightGatewayFilterFactory(MeterRegistry meterRegistry,
+                                            @Value("${gateway.single-flight.max-bytes:4194304}") int maxBytes) {
+        super(Config.class);
+        this.maxBytes = maxBytes;
+        this.leaders = Counter.builder("gateway.single.flight.requests").tag("result", "leader").register(meterRegistry);
+        this.followers = Counter.builder("gateway.single.flight.requests").tag("result", "follower").register(meterRegistry);
+        this.fallbacks = Counter.builder("gateway.single.flight.requests").tag("result", "fallback").register(meterRegistry);
+        Gauge.builder("gateway.single.flight.inflight", inFlight, Map::size).register(meterRegistry);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("maxWait");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        List<String> keyHeaders = config.getHeaders().stream().map(h -> h.toLowerCase(Locale.ROOT)).sorted().toList();
+        // Avant NettyWriteResponseFilter, comme ResponseCache : le corps écrit passe par la réponse capturante
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            HttpHeaders headers = request.getHeaders();
+            if (!HttpMethod.GET.equals(request.getMethod())
+                    || headers.getContentLength() > 0 || headers.containsKey(HttpHeaders.TRANSFER_ENCODING)) {
+                return chain.filter(exchange);
+            }
+            String key = key(request, keyHeaders);
+            Sinks.One<SharedResponse> flight = Sinks.one();
+            Sinks.One<SharedResponse> existing = inFlight.putIfAbsent(key, flight);
+            if (existing != null) {
+                return follow(exchange, chain, existing, config.getMaxWait());
+            }
+            return lead(exchange, chain, key, flight);
+        }, ResponseCacheGatewayFilterFactory.WRITE_ORDER);
+    }
+
+    private Mono<Void> lead(ServerWebExchange exchange, GatewayFilterChain chain, String key, Sinks.One<SharedResponse> flight) {
+        leaders.increment();
+        SharingResponse sharing = new SharingResponse(exchange.getResponse());
+        return chain.filter(exchange.mutate().response(sharing).build())
+                .doFinally(signal -> {
+                    // Retirée avant la publication : une requête arrivée après la réponse repart vers le service
+                    inFlight.remove(key, flight);
+                    SharedResponse shared = signal == SignalType.ON_COMPLETE ? sharing.shared() : null;
+                    if (shared != null) {
+                        flight.tryEmitValue(shared);
+                    } else {
+                        flight.tryEmitEmpty();
+                    }
+                });
+    }
+
+    private Mono<Void> follow(ServerWebExchange exchange, GatewayFilterChain chain, Sinks.One<SharedResponse> flight,
+                              Duration maxWait) {
+        return flight.asMono()
+                .timeout(maxWait, Mono.empty())
+                .flatMap(shared -> {
+                    followers.increment();
+                    return write(exchange, shared).thenReturn(Boolean.TRUE);
+                })
+                .switchIfEmpty(Mono.defer(() -> {
+                    fallbacks.increment();
+                    return chain.filter(exchange).thenReturn(Boolean.TRUE);
+                }))
+                .then();
+    }
+
+    private static Mono<Void> write(ServerWebExchange exchange, SharedResponse shared) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        shared.headers().forEach((name, values) -> {
+            if (!headers.containsKey(name)) {
+                headers.put(name, values);
+            }
+        });
+        headers.set(SINGLE_FLIGHT_HEADER, "follower");
+        headers.setContentLength(shared.body().length);
+        response.setStatusCode(shared.status());
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(shared.body())));
+    }
+
+    private static String key(ServerHttpRequest request, List<String> keyHeaders) {
+        StringBuilder key = new StringBuilder(request.getMethod().name()).append(' ').append(request.getURI().getRawPath());
+        if (request.getURI().getRawQuery() != null) {
+            key.append('?').append(request.getURI().getRawQuery());
+        }
+        for (String name : keyHeaders) {
+            List<String> values = request.getHeaders().get(name);
+            if (values != null) {
+                key.append('\n').append(name).append('=').append(String.join(",", values));
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Réponse de la première requête : transmise au client sans attendre, et copiée pour les
+     * requêtes en attente si elle est partageable.
+     */
+    private class SharingResponse extends ServerHttpResponseDecorator {
+
+        private volatile SharedResponse shared;
+
+        SharingResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        SharedResponse shared() {
+            return shared;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatusCode status = getStatusCode();
+            HttpHeaders headers = getHeaders();
+            if (status == null || !(status.is2xxSuccessful() || status.value() == 304) || !shareable(headers)) {
+                return super.writeWith(body);
+            }
+            BodyCapture capture = new BodyCapture(maxBytes);
+            Flux<DataBuffer> tee = Flux.from(body)
+                    .doOnNext(capture::append)
+                    .doOnComplete(() -> {
+                        if (!capture.overflow()) {
+                            shared = new SharedResponse(status, sharedHeaders(headers), capture.toByteArray());
+                        }
+                    });
+            return super.writeWith(tee);
+        }
+
+        private boolean shareable(HttpHeaders headers) {
+            MediaType contentType = headers.getContentType();
+            return !headers.containsKey(HttpHeaders.SET_COOKIE)
+                    && (contentType == null || !MediaType.TEXT_EVENT_STREAM.isCompatibleWith(contentType))
+                    && headers.getContentLength() <= maxBytes;
+        }
+    }
+
+    private static HttpHeaders sharedHeaders(HttpHeaders headers) {
+        HttpHeaders copy = new HttpHeaders();
+        headers.forEach((name, values) -> {
+            String lower = name.toLowerCase(Locale.ROOT);
+            if (!NOT_SHARED.contains(lower) && !lower.startsWith("access-control-") && !lower.startsWith("x-ratelimit-")) {
+                copy.put(name, new ArrayList<>(values));
+            }
+        });
+        return HttpHeaders.readOnlyHttpHeaders(copy);
+    }
+
+    public static class Config {
+
+        private Duration maxWait = Duration.ofSeconds(2);
+        private List<String> headers = List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING, HttpHeaders.ACCEPT_LANGUAGE,
+                HttpHeaders.AUTHORIZATION, "X-API-Key", HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE);
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        public List<String> getHeaders() {
+            return headers;
+        }
+
+        public void setHeaders(List<String> headers) {
+            this.headers = headers;
+        }
+    }
+}
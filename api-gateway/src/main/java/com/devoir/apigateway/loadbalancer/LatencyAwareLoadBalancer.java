@@ -0,0 +1,326 @@
+package com.devoir.apigateway.loadbalancer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * Répartiteur des routes lb:// qui tient compte de la charge et de la latence de chaque instance,
+ * à la place du tourniquet qui continue d'envoyer sa part de trafic à une instance lente ou en
+ * pause GC.
+ *
+ * Choix : deux instances tirées au hasard (power of two choices), la moins coûteuse est retenue.
+ * Coût = latence × (requêtes en cours + 1), où la latence est une moyenne mobile exponentielle
+ * « à pic » (peak-EWMA) : une réponse plus lente que la moyenne la remplace immédiatement, une
+ * réponse plus rapide ne la fait baisser que progressivement (gateway.load-balancer.decay-time).
+ * Sans nouvelle mesure, la latence décroît aussi avec le temps : une instance écartée finit par
+ * être essayée de nouveau. Une requête en cours depuis plus longtemps que la moyenne compte pour
+ * son âge : une instance figée est évitée avant même qu'elle réponde.
+ *
+ * Éjection : après gateway.load-balancer.ejection-failures échecs consécutifs (erreur ou 5xx),
+ * l'instance est écartée pendant ejection-time, plus longtemps à chaque récidive. Jamais plus de
+ * max-ejection-percent des instances à la fois : au-delà, toutes restent candidates.
+ *
+ * Les mesures viennent des callbacks {@link LoadBalancerLifecycle} appelés par la gateway autour
+ * de chaque requête. Une requête annulée (délai dépassé, couverture perdante, client parti) est
+ * signalée DISCARD par {@link LoadBalancerCancelFilter} : ni succès ni échec, sa durée ne sert
+ * que de borne basse à la latence. Une requête sans aucun signal de fin est comptée comme un
+ * échec après pending-expiry ; les requêtes expirées sont retirées à chaque choix de l'instance.
+ * Les requêtes des routes {@code long-lived} (long-poll, flux) sont signalées DISCARD dès le choix
+ * par {@link LongLivedRequestFilter} : leur durée ne mesure pas l'instance.
+ */
+public class LatencyAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer,
+        LoadBalancerLifecycle<RequestDataContext, ResponseData, ServiceInstance> {
+
+    public record Settings(Duration decayTime, int ejectionFailures, Duration ejectionTime,
+                           int maxEjectionPercent, Duration pendingExpiry) {
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(LatencyAwareLoadBalancer.class);
+
+    // Latence supposée d'une instance sans mesure quand aucune autre n'en a
+    private static final double DEFAULT_LATENCY_NANOS = 1_000_000;
+    private static final int MAX_EJECTION_MULTIPLIER = 10;
+
+    private final ObjectProvider<ServiceInstanceListSupplier> suppliers;
+    private final String serviceId;
+    private final Settings settings;
+    private final LongSupplier clock;
+    private final Supplier<RandomGenerator> random;
+    private final Map<String, InstanceStats> stats = new ConcurrentHashMap<>();
+
+    public LatencyAwareLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> suppliers, String serviceId,
+                                    Settings settings) {
+        this(suppliers, serviceId, settings, System::nanoTime, ThreadLocalRandom::current);
+    }
+
+    LatencyAwareLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> suppliers, String serviceId,
+                             Settings settings, LongSupplier clock, Supplier<RandomGenerator> random) {
+        this.suppliers = suppliers;
+        this.serviceId = serviceId;
+        this.settings = settings;
+        this.clock = clock;
+        this.random = random;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = suppliers.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(this::select);
+    }
+
+    private Response<ServiceInstance> select(List<ServiceInstance> instances) {
+        if (instances.isEmpty()) {
+            log.warn("Aucune instance disponible pour {}", serviceId);
+            return new EmptyResponse();
+        }
+        long now = clock.getAsLong();
+        forgetRemoved(instances);
+        List<ServiceInstance> candidates = candidates(instances, now);
+        ServiceInstance chosen;
+        if (candidates.size() == 1) {
+            chosen = candidates.get(0);
+        } else {
+            RandomGenerator rnd = random.get();
+            int first = rnd.nextInt(candidates.size());
+            int second = rnd.nextInt(candidates.size() - 1);
+            if (second >= first) {
+                second++;
+            }
+            double fallback = meanLatency(candidates, now);
+            ServiceInstance a = candidates.get(first);
+            ServiceInstance b = candidates.get(second);
+            chosen = stats(a).cost(now, fallback) <= stats(b).cost(now, fallback) ? a : b;
+        }
+        TrackedResponse response = new TrackedResponse(chosen, stats(chosen), now);
+        response.stats.started(response, now);
+        return response;
+    }
+
+    // Requêtes en cours vers l'instance, pour les tests
+    int outstanding(ServiceInstance instance) {
+        return stats(instance).pending.size();
+    }
+
+    @Override
+    public void onStart(Request<RequestDataContext> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<RequestDataContext> request, Response<ServiceInstance> lbResponse) {
+    }
+
+    @Override
+    public void onComplete(CompletionContext<ResponseData, ServiceInstance, RequestDataContext> completionContext) {
+        if (!(completionContext.getLoadBalancerResponse() instanceof TrackedResponse response)) {
+            return;
+        }
+        long now = clock.getAsLong();
+        switch (completionContext.status()) {
+            case DISCARD -> response.stats.finished(response, now, Outcome.DISCARDED);
+            case FAILED -> response.stats.finished(response, now, Outcome.FAILURE);
+            default -> {
+                ResponseData data = completionContext.getClientResponse();
+                boolean serverError = data != null && data.getHttpStatus() != null && data.getHttpStatus().is5xxServerError();
+                response.stats.finished(response, now, serverError ? Outcome.FAILURE : Outcome.SUCCESS);
+            }
+        }
+    }
+
+    // Instances non éjectées ; toutes si trop d'instances sont éjectées
+    private List<ServiceInstance> candidates(List<ServiceInstance> instances, long now) {
+        List<ServiceInstance> available = new ArrayList<>(instances.size());
+        for (ServiceInstance instance : instances) {
+            if (!stats(instance).ejected(now)) {
+                available.add(instance);
+            }
+        }
+        int maxEjected = instances.size() * settings.maxEjectionPercent() / 100;
+        return available.isEmpty() || instances.size() - available.size() > maxEjected ? instances : available;
+    }
+
+    private double meanLatency(List<ServiceInstance> instances, long now) {
+        double sum = 0;
+        int known = 0;
+        for (ServiceInstance instance : instances) {
+            double latency = stats(instance).latency(now);
+            if (latency > 0) {
+                sum += latency;
+                known++;
+            }
+        }
+        return known > 0 ? sum / known : DEFAULT_LATENCY_NANOS;
+    }
+
+    private void forgetRemoved(List<ServiceInstance> instances) {
+        if (stats.size() > instances.size()) {
+            Set<String> current = new HashSet<>();
+            instances.forEach(instance -> current.add(key(instance)));
+            stats.keySet().retainAll(current);
+        }
+    }
+
+    private InstanceStats stats(ServiceInstance instance) {
+        return stats.computeIfAbsent(key(instance), InstanceStats::new);
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getHost() + ':' + instance.getPort();
+    }
+
+    private enum Outcome {
+        SUCCESS, FAILURE, DISCARDED
+    }
+
+    /**
+     * Réponse du répartiteur, rattachée à l'instance choisie et à l'instant du choix. Égalité par
+     * identité : deux requêtes vers la même instance restent deux requêtes en cours.
+     */
+    private static final class TrackedResponse extends DefaultResponse {
+
+        final InstanceStats stats;
+        final long startNanos;
+
+        TrackedResponse(ServiceInstance instance, InstanceStats stats, long startNanos) {
+            super(instance);
+            this.stats = stats;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    /**
+     * Mesures d'une instance : requêtes en cours, latence peak-EWMA, échecs consécutifs, éjection.
+     */
+    private final class InstanceStats {
+
+        private final String key;
+        private final Set<TrackedResponse> pending = ConcurrentHashMap.newKeySet();
+        private double ewmaNanos;
+        private long observedAtNanos;
+        private int consecutiveFailures;
+        private int ejections;
+        private volatile long ejectedUntilNanos;
+
+        InstanceStats(String key) {
+            this.key = key;
+        }
+
+        // Purge à chaque choix, même sans comparaison de coûts (instance seule candidate)
+        void started(TrackedResponse response, long now) {
+            expire(now);
+            pending.add(response);
+        }
+
+        void finished(TrackedResponse response, long now, Outcome outcome) {
+            if (!pending.remove(response)) {
+                return;
+            }
+            if (outcome == Outcome.DISCARDED) {
+                atLeast(now - response.startNanos, now);
+                return;
+            }
+            record(now - response.startNanos, now, outcome == Outcome.FAILURE);
+        }
+
+        // Requêtes sans signal de fin depuis pending-expiry : comptées comme des échecs lents
+        private void expire(long now) {
+            long expiry = settings.pendingExpiry().toNanos();
+            for (TrackedResponse response : pending) {
+                long age = now - response.startNanos;
+                if (age > expiry && pending.remove(response)) {
+                    record(age, now, true);
+                }
+            }
+        }
+
+        // Requête abandonnée : l'instance a mis au moins ce temps, sans que ce soit un succès ni un échec
+        private synchronized void atLeast(long rttNanos, long now) {
+            if (rttNanos > latency(now)) {
+                ewmaNanos = rttNanos;
+                observedAtNanos = now;
+            }
+        }
+
+        private synchronized void record(long rttNanos, long now, boolean failure) {
+            if (ewmaNanos <= 0 || rttNanos > ewmaNanos) {
+                ewmaNanos = rttNanos;
+            } else {
+                double weight = Math.exp(-(double) (now - observedAtNanos) / settings.decayTime().toNanos());
+                ewmaNanos = ewmaNanos * weight + rttNanos * (1 - weight);
+            }
+            observedAtNanos = now;
+            if (!failure) {
+                consecutiveFailures = 0;
+                ejections = 0;
+            } else if (++consecutiveFailures >= settings.ejectionFailures()) {
+                ejections = Math.min(ejections + 1, MAX_EJECTION_MULTIPLIER);
+                ejectedUntilNanos = now + settings.ejectionTime().toNanos() * ejections;
+                consecutiveFailures = 0;
+                log.info("Instance {} de {} écartée pendant {} s après {} échecs consécutifs", key, serviceId,
+                        settings.ejectionTime().toSeconds() * ejections, settings.ejectionFailures());
+            }
+        }
+
+        boolean ejected(long now) {
+            return now < ejectedUntilNanos;
+        }
+
+        // Latence décroissante sans nouvelle mesure ; 0 si l'instance n'a jamais répondu
+        synchronized double latency(long now) {
+            if (ewmaNanos <= 0) {
+                return 0;
+            }
+            return ewmaNanos * Math.exp(-(double) Math.max(0, now - observedAtNanos) / settings.decayTime().toNanos());
+        }
+
+        double cost(long now, double fallbackLatency) {
+            double latency = latency(now);
+            if (latency <= 0) {
+                latency = fallbackLatency;
+            }
+            expire(now);
+            int outstanding = 0;
+            for (TrackedResponse response : pending) {
+                outstanding++;
+                latency = Math.max(latency, now - response.startNanos);
+            }
+            return latency * (outstanding + 1);
+        }
+    }
+}
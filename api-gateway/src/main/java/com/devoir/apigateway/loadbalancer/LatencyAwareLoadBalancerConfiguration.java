@@ -0,0 +1,33 @@
+package com.devoir.apigateway.loadbalancer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+/**
+ * Configuration des contextes de répartition (un par service), déclarée par
+ * {@code @LoadBalancerClients(defaultConfiguration = ...)} : volontairement sans @Configuration,
+ * pour ne pas être chargée dans le contexte principal par le scan des composants.
+ */
+public class LatencyAwareLoadBalancerConfiguration {
+
+    // Type concret : la gateway retrouve aussi ce bean parmi les LoadBalancerLifecycle du service
+    @Bean
+    public LatencyAwareLoadBalancer latencyAwareLoadBalancer(
+            Environment environment, LoadBalancerClientFactory clientFactory,
+            @Value("${gateway.load-balancer.decay-time:PT10S}") Duration decayTime,
+            @Value("${gateway.load-balancer.ejection-failures:5}") int ejectionFailures,
+            @Value("${gateway.load-balancer.ejection-time:PT30S}") Duration ejectionTime,
+            @Value("${gateway.load-balancer.max-ejection-percent:50}") int maxEjectionPercent,
+            @Value("${gateway.load-balancer.pending-expiry:PT10S}") Duration pendingExpiry) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new LatencyAwareLoadBalancer(
+                clientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class), serviceId,
+                new LatencyAwareLoadBalancer.Settings(decayTime, ejectionFailures, ejectionTime,
+                        maxEjectionPercent, pendingExpiry));
+    }
+}
@@ -0,0 +1,75 @@
+package com.devoir.apigateway.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycleValidator;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Set;
+
+/**
+ * Signale DISCARD au répartiteur quand une requête routée en lb:// est annulée : délai dépassé
+ * (AdaptiveResilience, disjoncteur), couverture perdante ou client déconnecté. La gateway ne
+ * signale que le succès et l'erreur ; sans ce filtre, une annulation restait en cours jusqu'à
+ * pending-expiry puis comptait comme un échec de l'instance.
+ *
+ * Placé juste avant ReactiveLoadBalancerClientFilter : il enveloppe le choix de l'instance et
+ * l'appel, et lit la réponse du répartiteur rangée dans l'échange.
+ */
+@Component
+class LoadBalancerCancelFilter implements GlobalFilter, Ordered {
+
+    private final ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancers;
+
+    LoadBalancerCancelFilter(ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancers) {
+        this.loadBalancers = loadBalancers;
+    }
+
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER - 1;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        URI url = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+        if (url == null || !"lb".equals(url.getScheme())) {
+            return chain.filter(exchange);
+        }
+        // Même nom de service que ReactiveLoadBalancerClientFilter : l'hôte de l'URL lb://
+        String serviceId = url.getHost();
+        return chain.filter(exchange).doOnCancel(() -> {
+            Response<ServiceInstance> chosen = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+            if (chosen != null && chosen.hasServer()) {
+                discard(loadBalancers, serviceId, chosen, exchange);
+            }
+        });
+    }
+
+    // Signale DISCARD aux LoadBalancerLifecycle du service ; sans effet si la requête est déjà terminée
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    static void discard(ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancers, String serviceId,
+                        Response<ServiceInstance> chosen, ServerWebExchange exchange) {
+        Set<LoadBalancerLifecycle> lifecycles = LoadBalancerLifecycleValidator.getSupportedLifecycleProcessors(
+                loadBalancers.getInstances(serviceId, LoadBalancerLifecycle.class),
+                RequestDataContext.class, ResponseData.class, ServiceInstance.class);
+        CompletionContext context = new CompletionContext<>(CompletionContext.Status.DISCARD,
+                new DefaultRequest<>(new RequestDataContext(new RequestData(exchange.getRequest()))), chosen);
+        lifecycles.forEach(lifecycle -> lifecycle.onComplete(context));
+    }
+}
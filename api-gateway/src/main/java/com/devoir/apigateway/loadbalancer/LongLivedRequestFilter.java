@@ -0,0 +1,56 @@
+package com.devoir.apigateway.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+/**
+ * Retire du suivi du répartiteur les requêtes des routes marquées {@code long-lived} dans leurs
+ * métadonnées (long-poll, SSE, NDJSON). Leur durée dépend du client, pas de l'instance : suivies,
+ * elles gonfleraient le coût de l'instance par leur âge, puis seraient comptées comme des échecs
+ * lents après pending-expiry et finiraient par faire écarter une instance saine.
+ *
+ * Placé juste après ReactiveLoadBalancerClientFilter : l'instance vient d'être choisie et la
+ * requête est signalée DISCARD avant l'appel ; sa fin (réponse, erreur, annulation) est ensuite
+ * ignorée par le répartiteur.
+ */
+@Component
+class LongLivedRequestFilter implements GlobalFilter, Ordered {
+
+    static final String LONG_LIVED_METADATA = "long-lived";
+
+    private final ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancers;
+
+    LongLivedRequestFilter(ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancers) {
+        this.loadBalancers = loadBalancers;
+    }
+
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        Response<ServiceInstance> chosen = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (route != null && chosen != null && chosen.hasServer()
+                && Boolean.parseBoolean(String.valueOf(route.getMetadata().get(LONG_LIVED_METADATA)))) {
+            // Même nom de service que ReactiveLoadBalancerClientFilter : l'hôte de l'URL lb:// d'origine
+            URI url = route.getUri();
+            LoadBalancerCancelFilter.discard(loadBalancers, url.getHost(), chosen, exchange);
+        }
+        return chain.filter(exchange);
+    }
+}
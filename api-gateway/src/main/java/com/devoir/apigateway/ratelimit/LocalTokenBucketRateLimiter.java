@@ -0,0 +1,102 @@
+package com.devoir.apigateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limiteur de débit en mémoire pour le filtre RequestRateLimiter, sans Redis : un seau à jetons
+ * par (route, client), où le client est résolu par {@code clientKeyResolver} (clé d'API ou IP).
+ *
+ * Paramètres par route (arguments du filtre, préfixe local-rate-limiter) : replenish-rate
+ * (jetons par seconde), burst-capacity (taille du seau) et requested-tokens (coût d'une requête).
+ * Sans argument, les valeurs gateway.rate-limit.* s'appliquent.
+ *
+ * Une requête refusée reçoit 429 avec Retry-After (secondes avant qu'assez de jetons soient
+ * revenus). Chaque instance de la gateway compte séparément ; les seaux inactifs sont oubliés
+ * après gateway.rate-limit.idle-expiry et leur nombre est borné.
+ */
+@Component
+public class LocalTokenBucketRateLimiter extends AbstractRateLimiter<LocalTokenBucketRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "local-rate-limiter";
+
+    private final Config defaultConfig;
+    private final Cache<String, TokenBucket> buckets;
+
+    public LocalTokenBucketRateLimiter(ConfigurationService configurationService,
+                                       @Value("${gateway.rate-limit.replenish-rate:50}") int replenishRate,
+                                       @Value("${gateway.rate-limit.burst-capacity:100}") int burstCapacity,
+                                       @Value("${gateway.rate-limit.idle-expiry:PT10M}") Duration idleExpiry,
+                                       @Value("${gateway.rate-limit.max-clients:100000}") long maxClients) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.defaultConfig = new Config();
+        this.defaultConfig.setReplenishRate(replenishRate);
+        this.defaultConfig.setBurstCapacity(burstCapacity);
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(idleExpiry)
+                .maximumSize(maxClients)
+                .build();
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(routeId + ' ' + id, k -> new TokenBucket(config.getBurstCapacity(), now));
+        TokenBucket.Result result = bucket.tryConsume(config.getRequestedTokens(), config.getReplenishRate(),
+                config.getBurstCapacity(), now);
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("X-RateLimit-Remaining", String.valueOf(result.remaining()));
+        headers.put("X-RateLimit-Replenish-Rate", String.valueOf(config.getReplenishRate()));
+        headers.put("X-RateLimit-Burst-Capacity", String.valueOf(config.getBurstCapacity()));
+        headers.put("X-RateLimit-Requested-Tokens", String.valueOf(config.getRequestedTokens()));
+        if (!result.allowed()) {
+            long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(result.retryAfterNanos() + 999_999_999L));
+            headers.put(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+        }
+        return Mono.just(new Response(result.allowed(), headers));
+    }
+
+    public static class Config {
+
+        private int replenishRate = 50;
+        private int burstCapacity = 100;
+        private int requestedTokens = 1;
+
+        public int getReplenishRate() {
+            return replenishRate;
+        }
+
+        public void setReplenishRate(int replenishRate) {
+            this.replenishRate = replenishRate;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public void setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+        }
+
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public void setRequestedTokens(int requestedTokens) {
+            this.requestedTokens = requestedTokens;
+        }
+    }
+}
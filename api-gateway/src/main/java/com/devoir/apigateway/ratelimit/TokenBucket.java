@@ -0,0 +1,43 @@
+package com.devoir.apigateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Seau à jetons sans verrou : l'état (jetons, instant du dernier remplissage) est immuable et
+ * remplacé par compareAndSet. Le remplissage est calculé à la demande, sans tâche de fond.
+ */
+final class TokenBucket {
+
+    private record State(double tokens, long refilledAtNanos) {
+    }
+
+    /**
+     * Résultat d'une tentative : jetons restants, ou délai avant d'en avoir assez si refusée.
+     */
+    record Result(boolean allowed, long remaining, long retryAfterNanos) {
+    }
+
+    private final AtomicReference<State> state;
+
+    TokenBucket(long capacity, long nowNanos) {
+        this.state = new AtomicReference<>(new State(capacity, nowNanos));
+    }
+
+    Result tryConsume(int requested, double tokensPerSecond, long capacity, long nowNanos) {
+        while (true) {
+            State current = state.get();
+            double elapsedSeconds = Math.max(0, nowNanos - current.refilledAtNanos()) / 1e9;
+            double available = Math.min(capacity, current.tokens() + elapsedSeconds * tokensPerSecond);
+            if (available < requested) {
+                long retryAfter = tokensPerSecond > 0
+                        ? (long) Math.ceil((requested - available) / tokensPerSecond * 1e9)
+                        : Long.MAX_VALUE;
+                return new Result(false, (long) available, retryAfter);
+            }
+            State next = new State(available - requested, Math.max(nowNanos, current.refilledAtNanos()));
+            if (state.compareAndSet(current, next)) {
+                return new Result(true, (long) next.tokens(), 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.devoir.apigateway.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.http.client.PrematureCloseException;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Délais, relances et requêtes de couverture (hedging) calculés à partir de la latence observée
+ * de la route ({@link RouteLatencyTracker}), pour les lectures (GET, HEAD).
+ *
+ * Délai : p99 × {@code timeoutFactor}, borné par {@code minTimeout} et {@code maxTimeout} ;
+ * {@code initialTimeout} tant que la route n'a pas assez de mesures. Il porte sur l'attente
+ * des en-têtes de la réponse : un export en flux n'est pas coupé pendant son envoi.
+ *
+ * Relances : au plus {@code retries} par requête, après une erreur de connexion, un délai
+ * dépassé ou une réponse 502/503/504 pas encore transmise au client. Chacune consomme un jeton
+ * du {@link RetryBudget} de la route ({@code retryBudget} jeton déposé par requête) : pendant
+ * un incident, les relances s'arrêtent d'elles-mêmes au lieu de doubler la charge.
+ *
+ * Couverture ({@code hedge}, GET des chemins {@code hedgePaths} d'une route lb://) : sans
+ * réponse après le p95 de la route, la même requête part vers une autre instance et la première
+ * réponse est retenue, l'autre appel étant annulé. Payée sur le même budget que les relances.
+ *
+ * Les chemins {@code excludedPaths} (long-poll, flux SSE/NDJSON) passent sans délai ni relance :
+ * leur durée est fixée par le client (paramètre timeout) ou illimitée, pas par le p99 de la route.
+ *
+ * Les écritures ne sont ni relancées ni soumises au délai adaptatif (un import peut durer) ;
+ * le disjoncteur placé avant ce filtre les borne. Placé après le disjoncteur, ce filtre lui
+ * fait voir un seul échec par requête, relances comprises.
+ *
+ * Métriques : gateway.route.latency, gateway.resilience.timeout, gateway.resilience.timeouts,
+ * gateway.resilience.retries, gateway.resilience.hedges et gateway.resilience.retry.budget, par route.
+ */
+@Component
+public class AdaptiveResilienceGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<AdaptiveResilienceGatewayFilterFactory.Config> {
+
+    private static final Set<Integer> RETRYABLE_STATUS = Set.of(502, 503, 504);
+
+    private final RouteLatencyTracker latencyTracker;
+    private final HedgingClient hedgingClient;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, RouteState> states = new ConcurrentHashMap<>();
+
+    public AdaptiveResilienceGatewayFilterFactory(RouteLatencyTracker latencyTracker, HedgingClient hedgingClient,
+                                                  MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.latencyTracker = latencyTracker;
+        this.hedgingClient = hedgingClient;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        List<PathPattern> hedgePaths = config.getHedgePaths().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+        List<PathPattern> excludedPaths = config.getExcludedPaths().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+        return (exchange, chain) -> {
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            String routeId = route != null ? route.getId() : "inconnue";
+            HttpMethod method = exchange.getRequest().getMethod();
+            if ((!HttpMethod.GET.equals(method) && !HttpMethod.HEAD.equals(method))
+                    || matches(exchange.getRequest(), excludedPaths)) {
+                return chain.filter(exchange);
+            }
+            RouteState state = states.computeIfAbsent(routeId, id -> new RouteState(id, config));
+            state.budget.deposit();
+            RouteLatencyTracker.Percentiles percentiles = latencyTracker.percentiles(routeId);
+            Duration timeout = timeout(percentiles, config);
+            state.timeoutMillis = timeout.toMillis();
+
+            if (config.isHedge() && percentiles != null && route != null && HttpMethod.GET.equals(method)
+                    && "lb".equals(route.getUri().getScheme()) && hedgeable(exchange.getRequest(), hedgePaths)) {
+                return hedged(exchange, chain, state, route.getUri().getHost(), percentiles.p95(), timeout, config);
+            }
+            return withRetries(exchange, chain, state, timeout, config.getRetries());
+        };
+    }
+
+    private static Duration timeout(RouteLatencyTracker.Percentiles percentiles, Config config) {
+        if (percentiles == null) {
+            return config.getInitialTimeout();
+        }
+        long nanos = (long) (percentiles.p99().toNanos() * config.getTimeoutFactor());
+        long min = config.getMinTimeout().toNanos();
+        long max = config.getMaxTimeout().toNanos();
+        return Duration.ofNanos(Math.max(min, Math.min(max, nanos)));
+    }
+
+    private Mono<Void> attempt(ServerWebExchange exchange, GatewayFilterChain chain, RouteState state, Duration timeout) {
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .timeout(timeout)
+                .doOnSuccess(done -> {
+                    // Un refus rapide (503 d'une instance saturée) ne doit pas faire baisser les percentiles
+                    if (!retryable(exchange.getResponse().getStatusCode())) {
+                        latencyTracker.record(state.routeId, System.nanoTime() - start);
+                    }
+                })
+                .doOnError(TimeoutException.class, e -> state.timeouts.increment());
+    }
+
+    private Mono<Void> withRetries(ServerWebExchange exchange, GatewayFilterChain chain, RouteState state,
+                                   Duration timeout, int remaining) {
+        return attempt(exchange, chain, state, timeout)
+                .materialize()
+                .<Void>flatMap(signal -> {
+                    boolean failed = signal.isOnError()
+                            ? retryable(signal.getThrowable())
+                            : retryable(exchange.getResponse().getStatusCode());
+                    if (failed && remaining > 0 && !exchange.getResponse().isCommitted()) {
+                        if (state.budget.tryWithdraw()) {
+                            state.retriesSent.increment();
+                            discardAttempt(exchange);
+                            return withRetries(exchange, chain, state, timeout, remaining - 1);
+                        }
+                        state.retriesRefused.increment();
+                    }
+                    return signal.isOnError() ? Mono.error(signal.getThrowable()) : Mono.empty();
+                });
+    }
+
+    private static boolean retryable(Throwable error) {
+        return error instanceof TimeoutException
+                || error instanceof ConnectException
+                || error instanceof PrematureCloseException;
+    }
+
+    private static boolean retryable(HttpStatusCode status) {
+        return status != null && RETRYABLE_STATUS.contains(status.value());
+    }
+
+    // Libère la connexion de la tentative écartée (corps jamais lu) et oublie son routage
+    private static void discardAttempt(ServerWebExchange exchange) {
+        if (exchange.getAttributes().remove(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR) instanceof Connection connection) {
+            connection.dispose();
+        }
+        ServerWebExchangeUtils.reset(exchange);
+        exchange.getResponse().setStatusCode(null);
+    }
+
+    private Mono<Void> hedged(ServerWebExchange exchange, GatewayFilterChain chain, RouteState state, String serviceId,
+                              Duration delay, Duration timeout, Config config) {
+        ServerHttpRequest request = exchange.getRequest();
+        return hedgingClient.choose(serviceId, null)
+                .flatMap(chosen -> {
+                    long start = System.nanoTime();
+                    Mono<HedgingClient.UpstreamResponse> primary = hedgingClient.get(serviceId, chosen, request);
+                    Mono<HedgingClient.UpstreamResponse> backup = Mono.delay(delay)
+                            .flatMap(tick -> hedgingClient.choose(serviceId, chosen.getServer()))
+                            .flatMap(other -> {
+                                if (!state.budget.tryWithdraw()) {
+                                    hedgingClient.discard(serviceId, other);
+                                    return Mono.empty();
+                                }
+                                state.hedges.increment();
+                                return hedgingClient.get(serviceId, other, request);
+                            });
+                    return Mono.firstWithValue(primary, backup)
+                            .timeout(timeout)
+                            .doOnNext(response -> latencyTracker.record(state.routeId, System.nanoTime() - start))
+                            .doOnError(TimeoutException.class, e -> state.timeouts.increment())
+                            // Les deux appels ont échoué : l'erreur du premier plutôt que « aucune valeur »
+                            .onErrorMap(NoSuchElementException.class,
+                                    e -> e.getSuppressed().length > 0 ? e.getSuppressed()[0] : e)
+                            .flatMap(response -> write(exchange, response))
+                            .thenReturn(Boolean.TRUE);
+                })
+                // Aucune instance choisie : chemin normal, qui répond comme sans couverture
+                .switchIfEmpty(Mono.defer(() -> withRetries(exchange, chain, state, timeout, config.getRetries())
+                        .thenReturn(Boolean.TRUE)))
+                .then();
+    }
+
+    private static boolean hedgeable(ServerHttpRequest request, List<PathPattern> hedgePaths) {
+        HttpHeaders headers = request.getHeaders();
+        if (headers.getContentLength() > 0 || headers.containsKey(HttpHeaders.TRANSFER_ENCODING)) {
+            return false;
+        }
+        return matches(request, hedgePaths);
+    }
+
+    private static boolean matches(ServerHttpRequest request, List<PathPattern> patterns) {
+        for (PathPattern pattern : patterns) {
+            if (pattern.matches(request.getPath().pathWithinApplication())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Mono<Void> write(ServerWebExchange exchange, HedgingClient.UpstreamResponse upstream) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(upstream.status());
+        response.getHeaders().putAll(upstream.headers());
+        response.getHeaders().setContentLength(upstream.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(upstream.body())));
+    }
+
+    /**
+     * Budget et compteurs d'une route, créés à sa première lecture.
+     */
+    private final class RouteState {
+
+        final String routeId;
+        final RetryBudget budget;
+        final Counter timeouts;
+        final Counter retriesSent;
+        final Counter retriesRefused;
+        final Counter hedges;
+        volatile long timeoutMillis;
+
+        RouteState(String routeId, Config config) {
+            this.routeId = routeId;
+            this.budget = new RetryBudget(config.getRetryBudget(), config.getMaxRetryTokens());
+            this.timeouts = Counter.builder("gateway.resilience.timeouts").tag("route", routeId).register(meterRegistry);
+            this.retriesSent = Counter.builder("gateway.resilience.retries").tag("route", routeId)
+                    .tag("result", "sent").register(meterRegistry);
+            this.retriesRefused = Counter.builder("gateway.resilience.retries").tag("route", routeId)
+                    .tag("result", "refused").register(meterRegistry);
+            this.hedges = Counter.builder("gateway.resilience.hedges").tag("route", routeId).register(meterRegistry);
+            Gauge.builder("gateway.resilience.timeout", this, s -> s.timeoutMillis).tag("route", routeId)
+                    .baseUnit("milliseconds").register(meterRegistry);
+            Gauge.builder("gateway.resilience.retry.budget", budget, RetryBudget::available).tag("route", routeId)
+                    .register(meterRegistry);
+        }
+    }
+
+    public static class Config {
+
+        private double timeoutFactor = 2.0;
+        private Duration minTimeout = Duration.ofMillis(250);
+        private Duration maxTimeout = Duration.ofSeconds(5);
+        private Duration initialTimeout = Duration.ofSeconds(3);
+        private int retries = 1;
+        private double retryBudget = 0.1;
+        private int maxRetryTokens = 10;
+        private boolean hedge;
+        private List<String> hedgePaths = List.of();
+        private List<String> excludedPaths = List.of();
+
+        public double getTimeoutFactor() {
+            return timeoutFactor;
+        }
+
+        public void setTimeoutFactor(double timeoutFactor) {
+            this.timeoutFactor = timeoutFactor;
+        }
+
+        public Duration getMinTimeout() {
+            return minTimeout;
+        }
+
+        public void setMinTimeout(Duration minTimeout) {
+            this.minTimeout = minTimeout;
+        }
+
+        public Duration getMaxTimeout() {
+            return maxTimeout;
+        }
+
+        public void setMaxTimeout(Duration maxTimeout) {
+            this.maxTimeout = maxTimeout;
+        }
+
+        public Duration getInitialTimeout() {
+            return initialTimeout;
+        }
+
+        public void setInitialTimeout(Duration initialTimeout) {
+            this.initialTimeout = initialTimeout;
+        }
+
+        public int getRetries() {
+            return retries;
+        }
+
+        public void setRetries(int retries) {
+            this.retries = retries;
+        }
+
+        public double getRetryBudget() {
+            return retryBudget;
+        }
+
+        public void setRetryBudget(double retryBudget) {
+            this.retryBudget = retryBudget;
+        }
+
+        public int getMaxRetryTokens() {
+            return maxRetryTokens;
+        }
+
+        public void setMaxRetryTokens(int maxRetryTokens) {
+            this.maxRetryTokens = maxRetryTokens;
+        }
+
+        public boolean isHedge() {
+            return hedge;
+        }
+
+        public void setHedge(boolean hedge) {
+            this.hedge = hedge;
+        }
+
+        public List<String> getHedgePaths() {
+            return hedgePaths;
+        }
+
+        public void setHedgePaths(List<String> hedgePaths) {
+            this.hedgePaths = hedgePaths;
+        }
+
+        public List<String> getExcludedPaths() {
+            return excludedPaths;
+        }
+
+        public void setExcludedPaths(List<String> excludedPaths) {
+            this.excludedPaths = excludedPaths;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.devoir.apigateway.resilience;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycleValidator;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Appels directs à une instance choisie, pour les requêtes couvertes (hedging) : deux appels
+ * concurrents ne peuvent pas partager l'échange de la gateway, la réponse retenue est donc lue
+ * entièrement (au plus gateway.resilience.hedge-max-bytes) puis recopiée vers le client.
+ * Réservé aux GET courts listés par la route.
+ */
+@Component
+class HedgingClient {
+
+    record UpstreamResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+    }
+
+    // En-têtes propres à une connexion, jamais transmis d'un côté à l'autre
+    private static final Set<String> HOP_BY_HOP = Set.of("connection", "keep-alive", "transfer-encoding", "te",
+            "trailer", "upgrade", "proxy-authorization", "proxy-authenticate", "host", "content-length");
+    private static final byte[] EMPTY = new byte[0];
+
+    private final ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancers;
+    private final WebClient webClient;
+
+    HedgingClient(ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancers,
+                  @Value("${gateway.resilience.hedge-max-bytes:1048576}") int maxBytes) {
+        this.loadBalancers = loadBalancers;
+        this.webClient = WebClient.builder()
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxBytes))
+                .build();
+    }
+
+    /**
+     * Instance du service choisie par le répartiteur ; avec {@code excluded}, une autre instance
+     * que celle-ci (deux tirages au plus), ou rien si le service n'en a qu'une.
+     */
+    Mono<Response<ServiceInstance>> choose(String serviceId, ServiceInstance excluded) {
+        ReactiveLoadBalancer<ServiceInstance> loadBalancer = loadBalancers.getInstance(serviceId);
+        if (loadBalancer == null) {
+            return Mono.empty();
+        }
+        Mono<Response<ServiceInstance>> pick = Mono.defer(() -> Mono.from(loadBalancer.choose()))
+                .filter(Response::hasServer);
+        if (excluded == null) {
+            return pick;
+        }
+        Mono<Response<ServiceInstance>> other = pick.filter(chosen -> {
+            if (sameInstance(chosen.getServer(), excluded)) {
+                discard(serviceId, chosen);
+                return false;
+            }
+            return true;
+        });
+        return other.switchIfEmpty(other);
+    }
+
+    /**
+     * Appel vers l'instance choisie ; son issue (réponse, erreur, annulation de la requête perdante)
+     * est transmise au répartiteur comme pour les requêtes routées par la gateway.
+     */
+    Mono<UpstreamResponse> get(String serviceId, Response<ServiceInstance> chosen, ServerHttpRequest request) {
+        ServiceInstance instance = chosen.getServer();
+        URI requestUri = request.getURI();
+        URI uri = URI.create(instance.getUri().toString() + requestUri.getRawPath()
+                + (requestUri.getRawQuery() != null ? "?" + requestUri.getRawQuery() : ""));
+        RequestData requestData = new RequestData(request);
+        DefaultRequest<RequestDataContext> lbRequest = new DefaultRequest<>(new RequestDataContext(requestData));
+        Set<LoadBalancerLifecycle> lifecycles = lifecycles(serviceId);
+        return webClient.method(request.getMethod())
+                .uri(uri)
+                .headers(headers -> copy(request.getHeaders(), headers))
+                .exchangeToMono(response -> response.bodyToMono(byte[].class)
+                        .defaultIfEmpty(EMPTY)
+                        .map(body -> {
+                            HttpHeaders headers = new HttpHeaders();
+                            copy(response.headers().asHttpHeaders(), headers);
+                            return new UpstreamResponse(response.statusCode(), headers, body);
+                        }))
+                .doOnNext(response -> complete(lifecycles, new CompletionContext<>(CompletionContext.Status.SUCCESS,
+                        lbRequest, chosen, new ResponseData(response.status(), response.headers(),
+                        new LinkedMultiValueMap<>(), requestData))))
+                .doOnError(error -> complete(lifecycles,
+                        new CompletionContext<>(CompletionContext.Status.FAILED, error, lbRequest, chosen)))
+                .doOnCancel(() -> complete(lifecycles,
+                        new CompletionContext<>(CompletionContext.Status.DISCARD, lbRequest, chosen)));
+    }
+
+    /**
+     * Instance choisie mais finalement pas appelée.
+     */
+    void discard(String serviceId, Response<ServiceInstance> chosen) {
+        complete(lifecycles(serviceId), new CompletionContext<>(CompletionContext.Status.DISCARD,
+                new DefaultRequest<>(new RequestDataContext()), chosen));
+    }
+
+    @SuppressWarnings("rawtypes")
+    private Set<LoadBalancerLifecycle> lifecycles(String serviceId) {
+        return LoadBalancerLifecycleValidator.getSupportedLifecycleProcessors(
+                loadBalancers.getInstances(serviceId, LoadBalancerLifecycle.class),
+                RequestDataContext.class, ResponseData.class, ServiceInstance.class);
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static void complete(Set<LoadBalancerLifecycle> lifecycles, CompletionContext context) {
+        lifecycles.forEach(lifecycle -> lifecycle.onComplete(context));
+    }
+
+    private static void copy(HttpHeaders from, HttpHeaders to) {
+        from.forEach((name, values) -> {
+            if (!HOP_BY_HOP.contains(name.toLowerCase(Locale.ROOT))) {
+                to.addAll(name, values);
+            }
+        });
+    }
+
+    private static boolean sameInstance(ServiceInstance a, ServiceInstance b) {
+        return Objects.equals(a.getHost(), b.getHost()) && a.getPort() == b.getPort();
+    }
+}
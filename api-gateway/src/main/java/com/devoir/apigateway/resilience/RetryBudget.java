@@ -0,0 +1,47 @@
+package com.devoir.apigateway.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Budget de nouvelles tentatives d'une route : chaque requête dépose {@code ratio} jeton,
+ * chaque relance ou requête de couverture en retire un. Les tentatives supplémentaires restent
+ * ainsi une fraction bornée du trafic : quand le service est en panne, la gateway ne multiplie
+ * pas la charge qu'elle lui envoie. Le solde est plafonné à {@code maxTokens} pour qu'une
+ * longue période calme ne finance pas une rafale de relances.
+ *
+ * Sans verrou : le solde est compté en millièmes de jeton dans un AtomicLong.
+ */
+final class RetryBudget {
+
+    private static final long ONE_TOKEN = 1000;
+
+    private final long deposit;
+    private final long capacity;
+    private final AtomicLong balance;
+
+    RetryBudget(double ratio, int maxTokens) {
+        this.deposit = Math.round(ratio * ONE_TOKEN);
+        this.capacity = maxTokens * ONE_TOKEN;
+        this.balance = new AtomicLong(capacity);
+    }
+
+    void deposit() {
+        balance.accumulateAndGet(deposit, (current, added) -> Math.min(capacity, current + added));
+    }
+
+    boolean tryWithdraw() {
+        while (true) {
+            long current = balance.get();
+            if (current < ONE_TOKEN) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - ONE_TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    double available() {
+        return (double) balance.get() / ONE_TOKEN;
+    }
+}
@@ -0,0 +1,159 @@
+package com.devoir.apigateway.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValuePercentile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latence des lectures par route : délai entre l'envoi de la requête au service et la réception
+ * des en-têtes de sa réponse (le corps, éventuellement en flux, n'est pas compté).
+ *
+ * Chaque route a un timer gateway.route.latency dont les percentiles 95 et 99 portent sur une
+ * fenêtre glissante (gateway.resilience.latency-window) : ils suivent les changements de régime
+ * du service sans garder la mémoire d'un incident ancien. Les percentiles sont relus au plus
+ * une fois par seconde, pas à chaque requête.
+ *
+ * Tant qu'une route n'a pas gateway.resilience.min-samples mesures dans la fenêtre, aucun
+ * percentile n'est renvoyé et l'appelant garde ses valeurs par défaut : après une période
+ * calme, une ou deux mesures récentes ne suffisent pas à fixer le délai. Le compte suit la
+ * même rotation que la fenêtre des percentiles (trois tranches) et la même horloge, celle du
+ * registre de métriques.
+ */
+@Component
+public class RouteLatencyTracker {
+
+    public record Percentiles(Duration p95, Duration p99) {
+    }
+
+    private static final double P95 = 0.95;
+    private static final double P99 = 0.99;
+    private static final long REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int WINDOW_BUFFERS = 3;
+
+    private final MeterRegistry meterRegistry;
+    private final Duration window;
+    private final long minSamples;
+    private final Map<String, RouteLatency> routes = new ConcurrentHashMap<>();
+
+    public RouteLatencyTracker(MeterRegistry meterRegistry,
+                               @Value("${gateway.resilience.latency-window:PT1M}") Duration window,
+                               @Value("${gateway.resilience.min-samples:100}") long minSamples) {
+        this.meterRegistry = meterRegistry;
+        this.window = window;
+        this.minSamples = minSamples;
+    }
+
+    public void record(String routeId, long nanos) {
+        RouteLatency route = route(routeId);
+        route.timer.record(nanos, TimeUnit.NANOSECONDS);
+        route.recent.increment(now());
+    }
+
+    /**
+     * Percentiles récents de la route, ou null si elle n'a pas encore assez de mesures.
+     */
+    public Percentiles percentiles(String routeId) {
+        RouteLatency route = route(routeId);
+        long now = now();
+        if (now - route.computedAtNanos > REFRESH_NANOS) {
+            route.computedAtNanos = now;
+            // snapshot.count() compte depuis le démarrage : seules les mesures de la fenêtre comptent
+            route.percentiles = route.recent.sum(now) < minSamples ? null : compute(route.timer.takeSnapshot());
+        }
+        return route.percentiles;
+    }
+
+    private long now() {
+        return meterRegistry.config().clock().monotonicTime();
+    }
+
+    private Percentiles compute(HistogramSnapshot snapshot) {
+        double p95 = 0;
+        double p99 = 0;
+        for (ValuePercentile value : snapshot.percentileValues()) {
+            if (value.percentile() == P95) {
+                p95 = value.value(TimeUnit.NANOSECONDS);
+            } else if (value.percentile() == P99) {
+                p99 = value.value(TimeUnit.NANOSECONDS);
+            }
+        }
+        // Fenêtre vide (aucune lecture récente) : pas d'estimation
+        if (p99 <= 0) {
+            return null;
+        }
+        return new Percentiles(Duration.ofNanos((long) p95), Duration.ofNanos((long) p99));
+    }
+
+    private RouteLatency route(String routeId) {
+        return routes.computeIfAbsent(routeId, id -> new RouteLatency(Timer.builder("gateway.route.latency")
+                .description("Délai jusqu'aux en-têtes de la réponse du service, lectures uniquement")
+                .tag("route", id)
+                .publishPercentiles(P95, P99)
+                .distributionStatisticExpiry(window)
+                .distributionStatisticBufferLength(WINDOW_BUFFERS)
+                .register(meterRegistry), new WindowedCount(window.toNanos() / WINDOW_BUFFERS), now()));
+    }
+
+    private static final class RouteLatency {
+
+        final Timer timer;
+        final WindowedCount recent;
+        volatile Percentiles percentiles;
+        volatile long computedAtNanos;
+
+        RouteLatency(Timer timer, WindowedCount recent, long now) {
+            this.timer = timer;
+            this.recent = recent;
+            this.computedAtNanos = now - REFRESH_NANOS - 1;
+        }
+    }
+
+    /**
+     * Nombre de mesures des WINDOW_BUFFERS dernières tranches de {@code sliceNanos} : un compteur
+     * par tranche, remis à zéro quand la tranche est réutilisée. Approximatif sous concurrence
+     * au changement de tranche, ce qui suffit pour un seuil.
+     */
+    private static final class WindowedCount {
+
+        private final long sliceNanos;
+        private final AtomicLongArray slices = new AtomicLongArray(WINDOW_BUFFERS);
+        private final AtomicLongArray counts = new AtomicLongArray(WINDOW_BUFFERS);
+
+        WindowedCount(long sliceNanos) {
+            this.sliceNanos = Math.max(1, sliceNanos);
+            for (int i = 0; i < WINDOW_BUFFERS; i++) {
+                slices.set(i, Long.MIN_VALUE);
+            }
+        }
+
+        void increment(long now) {
+            long slice = Math.floorDiv(now, sliceNanos);
+            int i = (int) Math.floorMod(slice, WINDOW_BUFFERS);
+            long current = slices.get(i);
+            if (current != slice && slices.compareAndSet(i, current, slice)) {
+                counts.set(i, 0);
+            }
+            counts.incrementAndGet(i);
+        }
+
+        long sum(long now) {
+            long slice = Math.floorDiv(now, sliceNanos);
+            long sum = 0;
+            for (int i = 0; i < WINDOW_BUFFERS; i++) {
+                if (slices.get(i) > slice - WINDOW_BUFFERS) {
+                    sum += counts.get(i);
+                }
+            }
+            return sum;
+        }
+    }
+}
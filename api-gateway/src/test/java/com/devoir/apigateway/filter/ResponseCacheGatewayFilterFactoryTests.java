@@ -0,0 +1,140 @@
+package com.devoir.apigateway.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Rangement et relecture des réponses par le filtre ResponseCache, devant un service simulé
+ * qui compte ses appels.
+ */
+class ResponseCacheGatewayFilterFactoryTests {
+
+    private static final String BODY = "{\"id\":5,\"description\":\"Lampe\"}";
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final GatewayFilter filter = filter(1024);
+
+    @Test
+    void okResponseIsStoredAndReplayedWithoutUpstreamCall() {
+        MockServerWebExchange first = get("/produits/5");
+        filter.filter(first, upstream(HttpStatus.OK, headers -> { })).block();
+        MockServerWebExchange second = get("/produits/5");
+        filter.filter(second, upstream(HttpStatus.OK, headers -> { })).block();
+
+        assertEquals(1, calls.get());
+        assertEquals("MISS", first.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_STATUS_HEADER));
+        assertEquals("HIT", second.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_STATUS_HEADER));
+        assertEquals(HttpStatus.OK, second.getResponse().getStatusCode());
+        assertEquals(BODY, second.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void errorsCookiesAndNoStoreAreNeverStored() {
+        assertNotStored(HttpStatus.SERVICE_UNAVAILABLE, headers -> { });
+        assertNotStored(HttpStatus.TOO_MANY_REQUESTS, headers -> { });
+        assertNotStored(HttpStatus.OK, headers -> headers.add(HttpHeaders.SET_COOKIE, "session=1"));
+        assertNotStored(HttpStatus.OK, headers -> headers.setCacheControl("no-store"));
+        assertNotStored(HttpStatus.OK, headers -> headers.setCacheControl("private, max-age=60"));
+        assertNotStored(HttpStatus.OK, headers -> headers.setVary(List.of("*")));
+    }
+
+    @Test
+    void oversizedBodyIsNotStored() {
+        GatewayFilter small = filter(BODY.length() - 1);
+        small.filter(get("/produits/5"), upstream(HttpStatus.OK, headers -> { })).block();
+        small.filter(get("/produits/5"), upstream(HttpStatus.OK, headers -> { })).block();
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void writeInvalidatesTheWholeCollection() {
+        filter.filter(get("/produits/5"), upstream(HttpStatus.OK, headers -> { })).block();
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.put("/produits/7")),
+                upstream(HttpStatus.OK, headers -> { })).block();
+        MockServerWebExchange after = get("/produits/5");
+        filter.filter(after, upstream(HttpStatus.OK, headers -> { })).block();
+
+        assertEquals(3, calls.get());
+        assertEquals("MISS", after.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_STATUS_HEADER));
+    }
+
+    @Test
+    void varyKeepsVariantsApart() {
+        Consumer<HttpHeaders> vary = headers -> headers.setVary(List.of(HttpHeaders.ACCEPT_LANGUAGE));
+        filter.filter(get("/produits/5", HttpHeaders.ACCEPT_LANGUAGE, "fr"), upstream(HttpStatus.OK, vary)).block();
+        filter.filter(get("/produits/5", HttpHeaders.ACCEPT_LANGUAGE, "en"), upstream(HttpStatus.OK, vary)).block();
+        filter.filter(get("/produits/5", HttpHeaders.ACCEPT_LANGUAGE, "fr"), upstream(HttpStatus.OK, vary)).block();
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void cachedEtagAnswersConditionalGetWithNotModified() {
+        Consumer<HttpHeaders> etag = headers -> headers.setETag("\"e-3\"");
+        filter.filter(get("/produits/5"), upstream(HttpStatus.OK, etag)).block();
+        MockServerWebExchange conditional = get("/produits/5", HttpHeaders.IF_NONE_MATCH, "\"e-3\"");
+        filter.filter(conditional, upstream(HttpStatus.OK, etag)).block();
+
+        assertEquals(1, calls.get());
+        assertEquals(HttpStatus.NOT_MODIFIED, conditional.getResponse().getStatusCode());
+    }
+
+    @Test
+    void requestNoCacheBypassesTheCache() {
+        filter.filter(get("/produits/5"), upstream(HttpStatus.OK, headers -> { })).block();
+        filter.filter(get("/produits/5", HttpHeaders.CACHE_CONTROL, "no-cache"), upstream(HttpStatus.OK, headers -> { })).block();
+
+        assertEquals(2, calls.get());
+    }
+
+    private void assertNotStored(HttpStatus status, Consumer<HttpHeaders> headers) {
+        GatewayFilter fresh = filter(1024);
+        int before = calls.get();
+        fresh.filter(get("/produits/5"), upstream(status, headers)).block();
+        MockServerWebExchange second = get("/produits/5");
+        fresh.filter(second, upstream(status, headers)).block();
+
+        assertEquals(before + 2, calls.get(), status + " " + second.getResponse().getHeaders());
+    }
+
+    private static GatewayFilter filter(int maxEntryBytes) {
+        ResponseCacheStore store = new ResponseCacheStore(new SimpleMeterRegistry(), 1 << 20, maxEntryBytes);
+        return new ResponseCacheGatewayFilterFactory(store).apply(new ResponseCacheGatewayFilterFactory.Config());
+    }
+
+    private static MockServerWebExchange get(String path, String... header) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get(path);
+        for (int i = 0; i < header.length; i += 2) {
+            request.header(header[i], header[i + 1]);
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    private GatewayFilterChain upstream(HttpStatus status, Consumer<HttpHeaders> headers) {
+        return exchange -> {
+            calls.incrementAndGet();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(status);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            headers.accept(response.getHeaders());
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(BODY.getBytes(StandardCharsets.UTF_8))));
+        };
+    }
+}
@@ -0,0 +1,129 @@
+package com.devoir.apigateway.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Partage de la réponse de la première requête avec les requêtes identiques arrivées pendant
+ * qu'elle est en cours. Le service simulé ne répond à la première qu'une fois la seconde en attente.
+ */
+class SingleFlightGatewayFilterFactoryTests {
+
+    private static final String BODY = "[{\"id\":1}]";
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final GatewayFilter filter = new SingleFlightGatewayFilterFactory(new SimpleMeterRegistry(), 1024)
+            .apply(new SingleFlightGatewayFilterFactory.Config());
+
+    @Test
+    void concurrentIdenticalGetsShareOneUpstreamCall() {
+        MockServerWebExchange follower = concurrent(HttpStatus.OK, headers -> { });
+
+        assertEquals(1, calls.get());
+        assertEquals(HttpStatus.OK, follower.getResponse().getStatusCode());
+        assertEquals("follower", follower.getResponse().getHeaders().getFirst(SingleFlightGatewayFilterFactory.SINGLE_FLIGHT_HEADER));
+        assertEquals(BODY, follower.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void errorResponsesAreNotSharedAndFollowersCallTheServiceThemselves() {
+        for (HttpStatus status : new HttpStatus[] {HttpStatus.TOO_MANY_REQUESTS, HttpStatus.SERVICE_UNAVAILABLE,
+                HttpStatus.NOT_FOUND}) {
+            calls.set(0);
+            MockServerWebExchange follower = concurrent(status, headers -> headers.set(HttpHeaders.RETRY_AFTER, "1"));
+
+            assertEquals(2, calls.get(), status.toString());
+            assertNull(follower.getResponse().getHeaders().getFirst(SingleFlightGatewayFilterFactory.SINGLE_FLIGHT_HEADER));
+        }
+    }
+
+    @Test
+    void rateLimitHeadersOfTheLeaderAreNotCopied() {
+        MockServerWebExchange follower = concurrent(HttpStatus.OK, headers -> {
+            headers.set("X-RateLimit-Remaining", "3");
+            headers.set("X-RateLimit-Burst-Capacity", "40");
+            headers.set(HttpHeaders.ETAG, "\"c-1.7\"");
+        });
+
+        assertEquals(1, calls.get());
+        assertFalse(follower.getResponse().getHeaders().containsKey("X-RateLimit-Remaining"));
+        assertFalse(follower.getResponse().getHeaders().containsKey("X-RateLimit-Burst-Capacity"));
+        assertEquals("\"c-1.7\"", follower.getResponse().getHeaders().getETag());
+    }
+
+    @Test
+    void setCookieResponseIsNotShared() {
+        concurrent(HttpStatus.OK, headers -> headers.add(HttpHeaders.SET_COOKIE, "session=1"));
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void differentKeyHeadersAreNotGrouped() {
+        Sinks.Empty<Void> gate = Sinks.empty();
+        MockServerWebExchange leader = get(HttpHeaders.ACCEPT_LANGUAGE, "fr");
+        MockServerWebExchange other = get(HttpHeaders.ACCEPT_LANGUAGE, "en");
+        filter.filter(leader, upstream(gate.asMono(), HttpStatus.OK, headers -> { })).subscribe();
+        filter.filter(other, upstream(Mono.empty(), HttpStatus.OK, headers -> { })).block(Duration.ofSeconds(5));
+
+        assertEquals(2, calls.get());
+        gate.tryEmitEmpty();
+    }
+
+    /**
+     * Première requête retenue par le service jusqu'à l'arrivée de la seconde, identique ;
+     * renvoie l'échange de la seconde une fois terminé.
+     */
+    private MockServerWebExchange concurrent(HttpStatus status, Consumer<HttpHeaders> headers) {
+        Sinks.Empty<Void> gate = Sinks.empty();
+        MockServerWebExchange leader = get();
+        MockServerWebExchange follower = get();
+        filter.filter(leader, upstream(gate.asMono(), status, headers)).subscribe();
+        Mono<Void> followed = filter.filter(follower, upstream(Mono.empty(), status, headers));
+        Mono<Void> released = Mono.fromRunnable(gate::tryEmitEmpty);
+        Mono.when(followed, released).block(Duration.ofSeconds(5));
+        assertEquals(status, leader.getResponse().getStatusCode());
+        return follower;
+    }
+
+    private static MockServerWebExchange get(String... header) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/produits");
+        for (int i = 0; i < header.length; i += 2) {
+            request.header(header[i], header[i + 1]);
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    // Réponse écrite quand gate se termine
+    private GatewayFilterChain upstream(Mono<Void> gate, HttpStatus status, Consumer<HttpHeaders> headers) {
+        return exchange -> {
+            calls.incrementAndGet();
+            return gate.then(Mono.defer(() -> {
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(status);
+                response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                headers.accept(response.getHeaders());
+                return response.writeWith(Mono.just(response.bufferFactory().wrap(BODY.getBytes(StandardCharsets.UTF_8))));
+            }));
+        };
+    }
+}
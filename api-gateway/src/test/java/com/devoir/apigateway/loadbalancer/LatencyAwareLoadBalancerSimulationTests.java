@@ -0,0 +1,378 @@
+package com.devoir.apigateway.loadbalancer;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.CompletionContext.Status;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSuppliers;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.LinkedMultiValueMap;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Simulation en temps virtuel : quatre instances locales simulées, dont une deux fois plus lente
+ * et une autre figée 300 ms toutes les 1,5 s (pause GC). Les mêmes arrivées et les mêmes temps de
+ * service sont rejoués avec le tourniquet de Spring Cloud LoadBalancer puis avec
+ * {@link LatencyAwareLoadBalancer} ; le p99 doit baisser nettement.
+ *
+ * Les autres cas pilotent directement les callbacks du répartiteur : échecs et éjection,
+ * expiration des requêtes sans fin signalée, annulations (DISCARD), requêtes longues.
+ */
+class LatencyAwareLoadBalancerSimulationTests {
+
+    private static final Logger log = LoggerFactory.getLogger(LatencyAwareLoadBalancerSimulationTests.class);
+
+    private static final String SERVICE = "MICROSERVICE-PRODUIT";
+    private static final int REQUESTS = 20_000;
+    private static final double ARRIVALS_PER_MS = 0.4;
+    private static final DefaultRequest<RequestDataContext> REQUEST = new DefaultRequest<>(new RequestDataContext());
+
+    private record Completion(long atNanos, Response<ServiceInstance> response) {
+    }
+
+    /**
+     * Instance simulée : {@code threads} requêtes traitées en parallèle, file d'attente au-delà,
+     * temps de service exponentiel, pauses périodiques pendant lesquelles rien n'avance.
+     */
+    private static final class StubInstance {
+
+        final ServiceInstance instance;
+        final double meanServiceNanos;
+        final long pausePeriodNanos;
+        final long pauseNanos;
+        final long[] freeAtNanos;
+
+        StubInstance(int index, int threads, Duration meanService, Duration pausePeriod, Duration pause) {
+            this.instance = new DefaultServiceInstance("stub-" + index, SERVICE, "localhost", 9000 + index, false);
+            this.meanServiceNanos = meanService.toNanos();
+            this.pausePeriodNanos = pausePeriod.toNanos();
+            this.pauseNanos = pause.toNanos();
+            this.freeAtNanos = new long[threads];
+        }
+
+        long serve(long arrivalNanos, Random random) {
+            int thread = 0;
+            for (int t = 1; t < freeAtNanos.length; t++) {
+                if (freeAtNanos[t] < freeAtNanos[thread]) {
+                    thread = t;
+                }
+            }
+            long start = resume(Math.max(arrivalNanos, freeAtNanos[thread]));
+            long end = start + (long) (-Math.log(1 - random.nextDouble()) * meanServiceNanos);
+            if (pausePeriodNanos > 0 && end / pausePeriodNanos != start / pausePeriodNanos) {
+                end += pauseNanos;
+            }
+            freeAtNanos[thread] = end;
+            return end;
+        }
+
+        // Pause au début de chaque période
+        private long resume(long nanos) {
+            if (pausePeriodNanos == 0) {
+                return nanos;
+            }
+            long inPeriod = nanos % pausePeriodNanos;
+            return inPeriod < pauseNanos ? nanos - inPeriod + pauseNanos : nanos;
+        }
+    }
+
+    @Test
+    void latencyAwareLoadBalancerCutsTailLatencyComparedToRoundRobin() {
+        long[] roundRobin = simulate((clock, instances) -> new RoundRobinLoadBalancer(
+                ServiceInstanceListSuppliers.toProvider(SERVICE, instances), SERVICE));
+        long[] latencyAware = simulate((clock, instances) -> {
+            SplittableRandom random = new SplittableRandom(7);
+            return new LatencyAwareLoadBalancer(ServiceInstanceListSuppliers.toProvider(SERVICE, instances), SERVICE,
+                    new LatencyAwareLoadBalancer.Settings(Duration.ofSeconds(10), 5, Duration.ofSeconds(30), 50,
+                            Duration.ofSeconds(10)),
+                    clock::get, () -> random);
+        });
+
+        log.info("Tourniquet        : {}", summary(roundRobin));
+        log.info("Charge + latence  : {}", summary(latencyAware));
+
+        assertTrue(millis(latencyAware, 0.99) * 2 < millis(roundRobin, 0.99),
+                "le p99 devrait être au moins deux fois plus bas qu'avec le tourniquet");
+        assertTrue(millis(latencyAware, 0.50) <= millis(roundRobin, 0.50) * 1.2,
+                "la médiane ne devrait pas se dégrader");
+    }
+
+    @Test
+    void consecutiveFailuresEjectInstanceUntilEjectionTimeElapses() {
+        AtomicLong clock = new AtomicLong();
+        ServiceInstance[] instances = instances(3);
+        LatencyAwareLoadBalancer loadBalancer = balancer(clock, instances);
+        ServiceInstance failing = instances[0];
+
+        // Erreurs et réponses 5xx en alternance sur la même instance, succès ailleurs
+        int failures = 0;
+        while (failures < 5) {
+            Response<ServiceInstance> response = choose(loadBalancer, clock);
+            if (same(response, failing)) {
+                complete(loadBalancer, clock, response, failures % 2 == 0 ? Status.FAILED : null);
+                failures++;
+            } else {
+                complete(loadBalancer, clock, response, Status.SUCCESS);
+            }
+        }
+
+        assertEquals(0, picks(loadBalancer, clock, failing, 300), "instance écartée pendant ejection-time");
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertTrue(picks(loadBalancer, clock, failing, 300) > 0, "instance de nouveau candidate après ejection-time");
+    }
+
+    @Test
+    void failingEveryInstanceNeverLeavesTheServiceWithoutCandidates() {
+        AtomicLong clock = new AtomicLong();
+        ServiceInstance[] instances = instances(2);
+        LatencyAwareLoadBalancer loadBalancer = balancer(clock, instances);
+
+        // Les deux instances dépassent ejection-failures : au-delà de max-ejection-percent, toutes restent candidates
+        for (int i = 0; i < 40; i++) {
+            complete(loadBalancer, clock, choose(loadBalancer, clock), Status.FAILED);
+        }
+
+        assertTrue(picks(loadBalancer, clock, instances[0], 300) > 0);
+        assertTrue(picks(loadBalancer, clock, instances[1], 300) > 0);
+    }
+
+    @Test
+    void neverCompletedRequestsExpireEvenWithASingleInstance() {
+        AtomicLong clock = new AtomicLong();
+        ServiceInstance[] instances = instances(1);
+        LatencyAwareLoadBalancer loadBalancer = balancer(clock, instances);
+
+        for (int i = 0; i < 1000; i++) {
+            choose(loadBalancer, clock);
+        }
+        assertEquals(1000, loadBalancer.outstanding(instances[0]));
+
+        // Seule candidate : pas de comparaison de coûts, la purge se fait au choix suivant
+        clock.addAndGet(Duration.ofSeconds(11).toNanos());
+        choose(loadBalancer, clock);
+        assertEquals(1, loadBalancer.outstanding(instances[0]));
+    }
+
+    @Test
+    void expiredRequestsCountAsFailures() {
+        AtomicLong clock = new AtomicLong();
+        ServiceInstance[] instances = instances(3);
+        LatencyAwareLoadBalancer loadBalancer = balancer(clock, instances);
+        ServiceInstance silent = instances[0];
+
+        // Cinq requêtes vers la même instance sans aucun signal de fin
+        int lost = 0;
+        while (lost < 5) {
+            Response<ServiceInstance> response = choose(loadBalancer, clock);
+            if (same(response, silent)) {
+                lost++;
+            } else {
+                complete(loadBalancer, clock, response, Status.SUCCESS);
+            }
+        }
+        clock.addAndGet(Duration.ofSeconds(11).toNanos());
+
+        assertEquals(0, picks(loadBalancer, clock, silent, 300));
+        assertEquals(0, loadBalancer.outstanding(silent));
+    }
+
+    @Test
+    void discardedRequestsAreNeitherPendingNorFailures() {
+        AtomicLong clock = new AtomicLong();
+        ServiceInstance[] instances = instances(3);
+        LatencyAwareLoadBalancer loadBalancer = balancer(clock, instances);
+        ServiceInstance cancelled = instances[0];
+
+        // Vingt annulations (délai dépassé, couverture perdante) : bien plus que ejection-failures
+        int discarded = 0;
+        while (discarded < 20) {
+            Response<ServiceInstance> response = choose(loadBalancer, clock);
+            if (same(response, cancelled)) {
+                complete(loadBalancer, clock, response, Status.DISCARD);
+                discarded++;
+            } else {
+                complete(loadBalancer, clock, response, Status.SUCCESS);
+            }
+        }
+
+        assertEquals(0, loadBalancer.outstanding(cancelled));
+        assertTrue(picks(loadBalancer, clock, cancelled, 300) > 0, "une annulation n'écarte pas l'instance");
+    }
+
+    @Test
+    void longLivedRequestsDiscardedAtChoiceNeitherSkewNorEjectTheInstance() {
+        AtomicLong clock = new AtomicLong();
+        ServiceInstance[] instances = instances(3);
+        LatencyAwareLoadBalancer loadBalancer = balancer(clock, instances);
+        ServiceInstance polled = instances[0];
+
+        // Vingt long-polls ouverts sur la même instance, signalés DISCARD dès le choix (LongLivedRequestFilter)
+        List<Response<ServiceInstance>> longPolls = new ArrayList<>();
+        while (longPolls.size() < 20) {
+            Response<ServiceInstance> response = choose(loadBalancer, clock);
+            if (same(response, polled)) {
+                complete(loadBalancer, clock, response, Status.DISCARD);
+                longPolls.add(response);
+            } else {
+                complete(loadBalancer, clock, response, Status.SUCCESS);
+            }
+        }
+        assertEquals(0, loadBalancer.outstanding(polled));
+
+        // Bien après pending-expiry, pendant que les long-polls sont ouverts : trafic normal
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertTrue(picks(loadBalancer, clock, polled, 300) > 50, "long-polls ignorés dans le coût de l'instance");
+
+        // Réponses 200 après 60 s : ni latence de 60 s, ni échec
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        longPolls.forEach(response -> complete(loadBalancer, clock, response, Status.SUCCESS));
+        assertTrue(picks(loadBalancer, clock, polled, 300) > 50, "instance ni écartée ni pénalisée");
+    }
+
+    private static ServiceInstance[] instances(int count) {
+        ServiceInstance[] instances = new ServiceInstance[count];
+        for (int i = 0; i < count; i++) {
+            instances[i] = new DefaultServiceInstance("stub-" + i, SERVICE, "localhost", 9000 + i, false);
+        }
+        return instances;
+    }
+
+    private static LatencyAwareLoadBalancer balancer(AtomicLong clock, ServiceInstance[] instances) {
+        SplittableRandom random = new SplittableRandom(7);
+        return new LatencyAwareLoadBalancer(ServiceInstanceListSuppliers.toProvider(SERVICE, instances), SERVICE,
+                new LatencyAwareLoadBalancer.Settings(Duration.ofSeconds(10), 5, Duration.ofSeconds(30), 50,
+                        Duration.ofSeconds(10)),
+                clock::get, () -> random);
+    }
+
+    private static Response<ServiceInstance> choose(LatencyAwareLoadBalancer loadBalancer, AtomicLong clock) {
+        clock.addAndGet(1_000_000);
+        return loadBalancer.choose(REQUEST).block();
+    }
+
+    /**
+     * Fin de la requête 1 ms après son choix ; {@code status} null = réponse 503 (succès HTTP,
+     * échec pour le répartiteur).
+     */
+    private static void complete(LatencyAwareLoadBalancer loadBalancer, AtomicLong clock,
+                                 Response<ServiceInstance> response, Status status) {
+        clock.addAndGet(1_000_000);
+        if (status == null) {
+            loadBalancer.onComplete(new CompletionContext<>(Status.SUCCESS, REQUEST, response,
+                    new ResponseData(HttpStatus.SERVICE_UNAVAILABLE, new HttpHeaders(), new LinkedMultiValueMap<>(), null)));
+        } else if (status == Status.FAILED) {
+            loadBalancer.onComplete(new CompletionContext<>(Status.FAILED, new IOException("connexion refusée"),
+                    REQUEST, response));
+        } else {
+            loadBalancer.onComplete(new CompletionContext<>(status, REQUEST, response));
+        }
+    }
+
+    // Nombre de choix de l'instance sur {@code requests} requêtes terminées avec succès
+    private static int picks(LatencyAwareLoadBalancer loadBalancer, AtomicLong clock, ServiceInstance instance,
+                             int requests) {
+        int picks = 0;
+        for (int i = 0; i < requests; i++) {
+            Response<ServiceInstance> response = choose(loadBalancer, clock);
+            if (same(response, instance)) {
+                picks++;
+            }
+            complete(loadBalancer, clock, response, Status.SUCCESS);
+        }
+        return picks;
+    }
+
+    private static boolean same(Response<ServiceInstance> response, ServiceInstance instance) {
+        return response.getServer().getInstanceId().equals(instance.getInstanceId());
+    }
+
+    private static List<StubInstance> stubs() {
+        return List.of(
+                new StubInstance(0, 8, Duration.ofMillis(5), Duration.ZERO, Duration.ZERO),
+                new StubInstance(1, 8, Duration.ofMillis(5), Duration.ZERO, Duration.ZERO),
+                new StubInstance(2, 8, Duration.ofMillis(10), Duration.ZERO, Duration.ZERO),
+                new StubInstance(3, 8, Duration.ofMillis(5), Duration.ofMillis(1500), Duration.ofMillis(300)));
+    }
+
+    private interface Factory {
+        ReactorServiceInstanceLoadBalancer create(AtomicLong clock, ServiceInstance[] instances);
+    }
+
+    /**
+     * Rejoue {@link #REQUESTS} arrivées poissonniennes (graine fixe) et renvoie les latences triées.
+     * Les fins de requêtes sont signalées au répartiteur dans l'ordre du temps virtuel, avant
+     * chaque nouveau choix.
+     */
+    private static long[] simulate(Factory factory) {
+        AtomicLong clock = new AtomicLong();
+        List<StubInstance> stubs = stubs();
+        Map<String, StubInstance> byId = new HashMap<>();
+        stubs.forEach(s -> byId.put(s.instance.getInstanceId(), s));
+        ReactorServiceInstanceLoadBalancer loadBalancer = factory.create(clock,
+                stubs.stream().map(s -> s.instance).toArray(ServiceInstance[]::new));
+
+        Random random = new Random(42);
+        PriorityQueue<Completion> completions = new PriorityQueue<>(Comparator.comparingLong(Completion::atNanos));
+        long[] latencies = new long[REQUESTS];
+        long now = 0;
+        for (int i = 0; i < REQUESTS; i++) {
+            now += (long) (-Math.log(1 - random.nextDouble()) / ARRIVALS_PER_MS * 1_000_000);
+            deliver(completions, now, clock, loadBalancer);
+            clock.set(now);
+            Response<ServiceInstance> response = loadBalancer.choose(REQUEST).block();
+            long end = byId.get(response.getServer().getInstanceId()).serve(now, random);
+            latencies[i] = end - now;
+            completions.add(new Completion(end, response));
+        }
+        deliver(completions, Long.MAX_VALUE, clock, loadBalancer);
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static void deliver(PriorityQueue<Completion> completions, long untilNanos, AtomicLong clock,
+                                ReactorServiceInstanceLoadBalancer loadBalancer) {
+        while (!completions.isEmpty() && completions.peek().atNanos() <= untilNanos) {
+            Completion completion = completions.poll();
+            clock.set(completion.atNanos());
+            if (loadBalancer instanceof LatencyAwareLoadBalancer latencyAware) {
+                latencyAware.onComplete(new CompletionContext<ResponseData, ServiceInstance, RequestDataContext>(
+                        CompletionContext.Status.SUCCESS, REQUEST, completion.response()));
+            }
+        }
+    }
+
+    private static String summary(long[] sortedNanos) {
+        return String.format("p50 %6.1f ms, p99 %6.1f ms, p99.9 %6.1f ms",
+                millis(sortedNanos, 0.50), millis(sortedNanos, 0.99), millis(sortedNanos, 0.999));
+    }
+
+    private static double millis(long[] sortedNanos, double percentile) {
+        int index = Math.max(0, (int) Math.ceil(percentile * sortedNanos.length) - 1);
+        return sortedNanos[index] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,273 @@
+package com.devoir.apigateway.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.loadbalancer.CompletionContext.Status;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.http.client.PrematureCloseException;
+
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Relances, budget, chemins exclus et couverture du filtre AdaptiveResilience. Les relances
+ * passent par un service simulé dans la chaîne de filtres ; la couverture par des instances
+ * locales ({@link StubService}), comme en production.
+ */
+class AdaptiveResilienceGatewayFilterFactoryTests {
+
+    private static final String ROUTE_ID = "route-produits";
+    private static final String BODY = "{\"id\":1}";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StubService service = new StubService();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @AfterEach
+    void stopInstances() {
+        service.close();
+    }
+
+    @Test
+    void unavailableStatusIsRetriedAndTheDiscardedAttemptForgotten() {
+        GatewayFilter filter = filter(config());
+        MockServerWebExchange exchange = get("/produits/1");
+        Connection firstConnection = mock(Connection.class);
+
+        filter.filter(exchange, upstream(call -> {
+            if (call == 1) {
+                // Première tentative : 503 d'une instance saturée, connexion laissée dans l'échange
+                exchange.getAttributes().put(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR, firstConnection);
+                exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ALREADY_ROUTED_ATTR, true);
+                return HttpStatus.SERVICE_UNAVAILABLE;
+            }
+            return HttpStatus.OK;
+        })).block();
+
+        assertEquals(2, calls.get());
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertEquals(BODY, exchange.getResponse().getBodyAsString().block());
+        verify(firstConnection).dispose();
+        assertEquals(1, retries("sent"));
+    }
+
+    @Test
+    void connectionErrorsAndResetsAreRetried() {
+        for (Exception error : new Exception[] {new ConnectException("Connection refused"), PrematureCloseException.TEST_EXCEPTION}) {
+            calls.set(0);
+            MockServerWebExchange exchange = get("/produits/1");
+
+            filter(config()).filter(exchange, failing(error)).block();
+
+            assertEquals(2, calls.get(), error.toString());
+            assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        }
+    }
+
+    @Test
+    void timeoutIsRetried() {
+        AdaptiveResilienceGatewayFilterFactory.Config config = config();
+        config.setInitialTimeout(Duration.ofMillis(100));
+        MockServerWebExchange exchange = get("/produits/1");
+
+        filter(config).filter(exchange, attempt -> calls.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofSeconds(5)).then()
+                : write(attempt, HttpStatus.OK)).block();
+
+        assertEquals(2, calls.get());
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertEquals(1.0, meterRegistry.get("gateway.resilience.timeouts").tag("route", ROUTE_ID).counter().count());
+    }
+
+    @Test
+    void retriesStopWhenTheBudgetIsExhausted() {
+        AdaptiveResilienceGatewayFilterFactory.Config config = config();
+        config.setRetryBudget(0);
+        config.setMaxRetryTokens(1);
+        GatewayFilter filter = filter(config);
+
+        MockServerWebExchange first = get("/produits/1");
+        filter.filter(first, upstream(call -> HttpStatus.SERVICE_UNAVAILABLE)).block();
+        assertEquals(2, calls.get());
+
+        // Seul jeton dépensé, aucun dépôt : la requête suivante n'est pas relancée
+        MockServerWebExchange second = get("/produits/1");
+        filter.filter(second, upstream(call -> HttpStatus.SERVICE_UNAVAILABLE)).block();
+        assertEquals(3, calls.get());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, second.getResponse().getStatusCode());
+        assertEquals(1, retries("sent"));
+        assertEquals(1, retries("refused"));
+    }
+
+    @Test
+    void committedResponsesOtherErrorsAndWritesAreNotRetried() {
+        GatewayFilter filter = filter(config());
+
+        // 503 déjà transmis au client
+        filter.filter(get("/produits/1"), exchange -> {
+            calls.incrementAndGet();
+            return write(exchange, HttpStatus.SERVICE_UNAVAILABLE);
+        }).block();
+        assertEquals(1, calls.get());
+
+        // Erreur qui ne vient ni de la connexion ni d'un délai
+        calls.set(0);
+        assertThrows(IllegalStateException.class,
+                () -> filter.filter(get("/produits/1"), failing(new IllegalStateException("bug"))).block());
+        assertEquals(1, calls.get());
+
+        // Écriture
+        calls.set(0);
+        MockServerWebExchange post = MockServerWebExchange.from(MockServerHttpRequest.post("/produits").build());
+        filter.filter(post, upstream(call -> HttpStatus.SERVICE_UNAVAILABLE)).block();
+        assertEquals(1, calls.get());
+        assertEquals(0, retries("sent"));
+    }
+
+    @Test
+    void excludedPathsHaveNeitherTimeoutNorRetry() {
+        AdaptiveResilienceGatewayFilterFactory.Config config = config();
+        config.setInitialTimeout(Duration.ofMillis(50));
+        config.setExcludedPaths(List.of("/produits/changes/**"));
+        GatewayFilter filter = filter(config);
+        MockServerWebExchange poll = get("/produits/changes/poll");
+
+        filter.filter(poll, exchange -> {
+            calls.incrementAndGet();
+            return Mono.delay(Duration.ofMillis(300)).then(Mono.defer(() -> write(exchange, HttpStatus.SERVICE_UNAVAILABLE)));
+        }).block();
+
+        assertEquals(1, calls.get());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, poll.getResponse().getStatusCode());
+    }
+
+    @Test
+    void slowInstanceIsHedgedAndTheLoserReportedAsDiscard() throws InterruptedException {
+        service.instance(Duration.ofSeconds(5), "lente").instance(Duration.ZERO, "rapide");
+        GatewayFilter filter = hedgingFilter(1024);
+        MockServerWebExchange exchange = get("/produits/1");
+
+        filter.filter(exchange, upstream(call -> HttpStatus.OK)).block();
+
+        assertEquals(0, calls.get(), "requête couverte : pas de passage par la chaîne");
+        assertEquals("rapide", exchange.getResponse().getBodyAsString().block());
+        service.awaitCompletions(2);
+        assertTrue(service.completions().contains(new StubService.Completion(Status.SUCCESS, service.port(1))));
+        assertTrue(service.completions().contains(new StubService.Completion(Status.DISCARD, service.port(0))));
+        assertEquals(1.0, meterRegistry.get("gateway.resilience.hedges").tag("route", ROUTE_ID).counter().count());
+    }
+
+    @Test
+    void bothHedgedCallsFailingSurfaceTheFirstError() throws InterruptedException {
+        service.closedInstance().closedInstance();
+        GatewayFilter filter = hedgingFilter(1024);
+
+        assertThrows(WebClientRequestException.class,
+                () -> filter.filter(get("/produits/1"), upstream(call -> HttpStatus.OK)).block());
+
+        service.awaitCompletions(2);
+        assertEquals(List.of(new StubService.Completion(Status.FAILED, service.port(0)),
+                new StubService.Completion(Status.FAILED, service.port(1))), service.completions());
+    }
+
+    @Test
+    void hedgedResponsesOverHedgeMaxBytesFail() throws InterruptedException {
+        service.instance(Duration.ZERO, "x".repeat(64)).instance(Duration.ZERO, "x".repeat(64));
+        GatewayFilter filter = hedgingFilter(16);
+
+        assertThrows(RuntimeException.class,
+                () -> filter.filter(get("/produits/1"), upstream(call -> HttpStatus.OK)).block());
+
+        service.awaitCompletions(2);
+        assertTrue(service.completions().stream().allMatch(c -> c.status() == Status.FAILED), service.completions().toString());
+    }
+
+    private AdaptiveResilienceGatewayFilterFactory.Config config() {
+        AdaptiveResilienceGatewayFilterFactory.Config config = new AdaptiveResilienceGatewayFilterFactory.Config();
+        config.setRetries(1);
+        config.setRetryBudget(1);
+        return config;
+    }
+
+    private GatewayFilter filter(AdaptiveResilienceGatewayFilterFactory.Config config) {
+        return factory(new RouteLatencyTracker(meterRegistry, Duration.ofMinutes(1), 100), 1024).apply(config);
+    }
+
+    // Couverture après le p95 de la route (20 ms), délai global large pour ne pas couper la réponse retenue
+    private GatewayFilter hedgingFilter(int hedgeMaxBytes) {
+        RouteLatencyTracker tracker = new RouteLatencyTracker(meterRegistry, Duration.ofMinutes(1), 10);
+        for (int i = 0; i < 50; i++) {
+            tracker.record(ROUTE_ID, Duration.ofMillis(20).toNanos());
+        }
+        AdaptiveResilienceGatewayFilterFactory.Config config = config();
+        config.setHedge(true);
+        config.setHedgePaths(List.of("/produits/{id:[0-9]+}"));
+        config.setMinTimeout(Duration.ofSeconds(3));
+        return factory(tracker, hedgeMaxBytes).apply(config);
+    }
+
+    private AdaptiveResilienceGatewayFilterFactory factory(RouteLatencyTracker tracker, int hedgeMaxBytes) {
+        return new AdaptiveResilienceGatewayFilterFactory(tracker,
+                new HedgingClient(service.loadBalancers(), hedgeMaxBytes), meterRegistry);
+    }
+
+    private double retries(String result) {
+        return meterRegistry.get("gateway.resilience.retries").tag("route", ROUTE_ID).tag("result", result)
+                .counter().count();
+    }
+
+    private static MockServerWebExchange get(String path) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+                .id(ROUTE_ID)
+                .uri("lb://" + StubService.SERVICE_ID)
+                .predicate(e -> true)
+                .build());
+        return exchange;
+    }
+
+    // Service simulé : statut choisi selon le numéro de l'appel, sans écrire le corps d'un statut à relancer
+    private GatewayFilterChain upstream(Function<Integer, HttpStatus> status) {
+        return exchange -> {
+            HttpStatus current = status.apply(calls.incrementAndGet());
+            if (current.is5xxServerError()) {
+                exchange.getResponse().setStatusCode(current);
+                return Mono.empty();
+            }
+            return write(exchange, current);
+        };
+    }
+
+    // Premier appel en erreur, le suivant répond 200
+    private GatewayFilterChain failing(Exception error) {
+        return exchange -> calls.incrementAndGet() == 1 ? Mono.error(error) : write(exchange, HttpStatus.OK);
+    }
+
+    private static Mono<Void> write(ServerWebExchange exchange, HttpStatus status) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(status);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(BODY.getBytes(StandardCharsets.UTF_8))));
+    }
+}
@@ -0,0 +1,124 @@
+package com.devoir.apigateway.resilience;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext.Status;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Appels directs de HedgingClient vers des instances locales simulées, et issues signalées au
+ * répartiteur : succès, échec, réponse trop grande, annulation (DISCARD).
+ */
+class HedgingClientTests {
+
+    private static final ServerHttpRequest REQUEST = MockServerHttpRequest.get("/produits/1").build();
+
+    private final StubService service = new StubService();
+
+    @AfterEach
+    void stopInstances() {
+        service.close();
+    }
+
+    @Test
+    void responseIsReadAndReportedAsSuccess() {
+        service.instance(Duration.ZERO, "lampe");
+        HedgingClient client = new HedgingClient(service.loadBalancers(), 1024);
+
+        Response<ServiceInstance> chosen = client.choose(StubService.SERVICE_ID, null).block();
+        HedgingClient.UpstreamResponse response = client.get(StubService.SERVICE_ID, chosen, REQUEST).block();
+
+        assertEquals(HttpStatus.OK, response.status());
+        assertEquals("lampe", new String(response.body(), StandardCharsets.UTF_8));
+        assertEquals(List.of(new StubService.Completion(Status.SUCCESS, service.port(0))), service.completions());
+    }
+
+    @Test
+    void responseOverHedgeMaxBytesFailsAndIsReportedAsFailure() {
+        service.instance(Duration.ZERO, "x".repeat(64));
+        HedgingClient client = new HedgingClient(service.loadBalancers(), 16);
+
+        Response<ServiceInstance> chosen = client.choose(StubService.SERVICE_ID, null).block();
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> client.get(StubService.SERVICE_ID, chosen, REQUEST).block());
+
+        assertTrue(causedBy(error, DataBufferLimitException.class), error.toString());
+        assertEquals(List.of(new StubService.Completion(Status.FAILED, service.port(0))), service.completions());
+    }
+
+    @Test
+    void refusedConnectionIsReportedAsFailure() {
+        service.closedInstance();
+        HedgingClient client = new HedgingClient(service.loadBalancers(), 1024);
+
+        Response<ServiceInstance> chosen = client.choose(StubService.SERVICE_ID, null).block();
+        assertThrows(RuntimeException.class, () -> client.get(StubService.SERVICE_ID, chosen, REQUEST).block());
+
+        assertEquals(List.of(new StubService.Completion(Status.FAILED, service.port(0))), service.completions());
+    }
+
+    @Test
+    void cancelledCallIsReportedAsDiscard() {
+        service.instance(Duration.ofSeconds(5), "lente");
+        HedgingClient client = new HedgingClient(service.loadBalancers(), 1024);
+
+        Response<ServiceInstance> chosen = client.choose(StubService.SERVICE_ID, null).block();
+        HedgingClient.UpstreamResponse response = client.get(StubService.SERVICE_ID, chosen, REQUEST)
+                .timeout(Duration.ofMillis(200), Mono.empty())
+                .block();
+
+        assertNull(response);
+        assertEquals(List.of(new StubService.Completion(Status.DISCARD, service.port(0))), service.completions());
+    }
+
+    @Test
+    void secondChoiceAvoidsTheExcludedInstance() {
+        service.instance(Duration.ZERO, "a").instance(Duration.ZERO, "b");
+        HedgingClient client = new HedgingClient(service.loadBalancers(), 1024);
+
+        Response<ServiceInstance> first = client.choose(StubService.SERVICE_ID, null).block();
+        Response<ServiceInstance> second = client.choose(StubService.SERVICE_ID, first.getServer()).block();
+
+        assertNotEquals(first.getServer().getPort(), second.getServer().getPort());
+        assertTrue(service.completions().isEmpty());
+    }
+
+    @Test
+    void singleInstanceGivesNoSecondChoiceAndDiscardsTheDraws() {
+        service.instance(Duration.ZERO, "a");
+        HedgingClient client = new HedgingClient(service.loadBalancers(), 1024);
+
+        Response<ServiceInstance> first = client.choose(StubService.SERVICE_ID, null).block();
+        Response<ServiceInstance> second = client.choose(StubService.SERVICE_ID, first.getServer()).block();
+
+        assertNull(second);
+        // Deux tirages, tous deux sur l'instance exclue, rendus au répartiteur sans appel
+        assertEquals(List.of(new StubService.Completion(Status.DISCARD, service.port(0)),
+                new StubService.Completion(Status.DISCARD, service.port(0))), service.completions());
+    }
+
+    private static boolean causedBy(Throwable error, Class<? extends Throwable> type) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (type.isInstance(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
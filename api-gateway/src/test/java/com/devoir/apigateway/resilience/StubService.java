@@ -0,0 +1,132 @@
+package com.devoir.apigateway.resilience;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service simulé pour les tests de couverture : instances locales (serveurs reactor-netty sur
+ * des ports libres) qui répondent après un délai fixé, répartiteur qui les choisit à tour de
+ * rôle dans l'ordre de déclaration, et LoadBalancerLifecycle qui enregistre les issues signalées.
+ */
+final class StubService implements AutoCloseable {
+
+    static final String SERVICE_ID = "MICROSERVICE-PRODUIT";
+
+    record Completion(CompletionContext.Status status, int port) {
+    }
+
+    private final List<DisposableServer> servers = new ArrayList<>();
+    private final List<ServiceInstance> instances = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final List<Completion> completions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Instance qui répond 200 avec {@code body} après {@code delay}, quel que soit le chemin.
+     */
+    StubService instance(Duration delay, String body) {
+        DisposableServer server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .handle((request, response) -> response
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
+                        .sendString(Mono.delay(delay).thenReturn(body)))
+                .bindNow();
+        servers.add(server);
+        return add(server.port());
+    }
+
+    /**
+     * Instance enregistrée dont le port ne répond plus (connexion refusée).
+     */
+    StubService closedInstance() {
+        DisposableServer server = HttpServer.create().host("localhost").port(0).bindNow();
+        int port = server.port();
+        server.disposeNow();
+        return add(port);
+    }
+
+    private StubService add(int port) {
+        instances.add(new DefaultServiceInstance("stub-" + port, SERVICE_ID, "localhost", port, false));
+        return this;
+    }
+
+    int port(int index) {
+        return instances.get(index).getPort();
+    }
+
+    List<Completion> completions() {
+        return completions;
+    }
+
+    // Les issues d'un appel annulé peuvent arriver juste après la réponse retenue
+    void awaitCompletions(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (completions.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancers() {
+        ReactiveLoadBalancer<ServiceInstance> loadBalancer = request -> Mono.<Response<ServiceInstance>>just(
+                new DefaultResponse(instances.get(next.getAndIncrement() % instances.size())));
+        LoadBalancerLifecycle<RequestDataContext, ResponseData, ServiceInstance> recorder = new LoadBalancerLifecycle<>() {
+
+            @Override
+            public void onStart(Request<RequestDataContext> request) {
+            }
+
+            @Override
+            public void onStartRequest(Request<RequestDataContext> request, Response<ServiceInstance> lbResponse) {
+            }
+
+            @Override
+            public void onComplete(CompletionContext<ResponseData, ServiceInstance, RequestDataContext> completionContext) {
+                completions.add(new Completion(completionContext.status(),
+                        completionContext.getLoadBalancerResponse().getServer().getPort()));
+            }
+        };
+        return new ReactiveLoadBalancer.Factory<>() {
+
+            @Override
+            public ReactiveLoadBalancer<ServiceInstance> getInstance(String serviceId) {
+                return loadBalancer;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public <X> Map<String, X> getInstances(String name, Class<X> type) {
+                return (Map<String, X>) Map.of("recorder", recorder);
+            }
+
+            @Override
+            public <X> X getInstance(String name, Class<?> clazz, Class<?>... generics) {
+                return null;
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        servers.forEach(DisposableServer::disposeNow);
+    }
+}
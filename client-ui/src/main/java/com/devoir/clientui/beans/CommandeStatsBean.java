@@ -0,0 +1,18 @@
+package com.devoir.clientui.beans;
+
+import lombok.*;
+
+/**
+ * DTO pour recevoir les statistiques agrégées des commandes (GET /commandes/stats)
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+public class CommandeStatsBean {
+    private long nombreCommandes;
+    private double totalMontant;
+    private long totalQuantite;
+    private double moyenneMontant;
+}
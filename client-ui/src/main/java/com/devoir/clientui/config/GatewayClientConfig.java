@@ -0,0 +1,35 @@
+package com.devoir.clientui.config;
+
+import feign.RequestInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * En-têtes ajoutés aux appels Feign vers l'API Gateway : la clé d'API de client-ui
+ * (api.gateway.api-key, déclarée dans gateway.rate-limit.api-keys) et l'adresse du navigateur
+ * dans X-Forwarded-For. Avec les deux, la gateway limite le débit par navigateur au lieu de
+ * faire partager un seul seau à toutes les sessions de client-ui.
+ */
+@Configuration
+public class GatewayClientConfig {
+
+    static final String API_KEY_HEADER = "X-API-Key";
+    static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+
+    @Bean
+    public RequestInterceptor gatewayClientHeaders(@Value("${api.gateway.api-key:}") String apiKey) {
+        return template -> {
+            if (apiKey.isEmpty()) {
+                return;
+            }
+            template.header(API_KEY_HEADER, apiKey);
+            // Appel fait pendant une requête du navigateur : son adresse identifie l'utilisateur
+            if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+                template.header(FORWARDED_FOR_HEADER, attributes.getRequest().getRemoteAddr());
+            }
+        };
+    }
+}
@@ -1,19 +1,25 @@
 package com.devoir.clientui.controller;
 
 import com.devoir.clientui.beans.CommandeBean;
+import com.devoir.clientui.beans.CommandeStatsBean;
 import com.devoir.clientui.beans.ProduitBean;
 import com.devoir.clientui.proxies.MicroserviceProxy;
+import com.devoir.clientui.proxies.ProduitCatalog;
 import feign.FeignException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 @Controller
 @RequiredArgsConstructor
@@ -21,6 +27,7 @@ import java.util.List;
 public class ClientController {
 
     private final MicroserviceProxy proxy;
+    private final ProduitCatalog produitCatalog;
 
     // ========== PAGE D'ACCUEIL ==========
 
@@ -54,15 +61,21 @@ public class ClientController {
             commande.setDateCommande(LocalDate.now());
             
             // Création de la commande
-            proxy.createCommande(commande);
+            proxy.createCommande(UUID.randomUUID().toString(), commande);
             redirectAttributes.addFlashAttribute("success", "Commande créée avec succès !");
             log.info("Commande créée: {}", commande);
+        } catch (FeignException.Conflict e) {
+            log.warn("Stock insuffisant (409): {}", e.getMessage());
+            redirectAttributes.addFlashAttribute("error", "Stock insuffisant pour le produit sélectionné.");
         } catch (FeignException.NotFound e) {
             log.error("Ressource non trouvée (404): {}", e.getMessage());
             redirectAttributes.addFlashAttribute("error", "Le service n'a pas pu être trouvé. Vérifiez que les microservices sont démarrés.");
         } catch (FeignException.ServiceUnavailable e) {
             log.error("Service indisponible (503): {}", e.getMessage());
             redirectAttributes.addFlashAttribute("error", "Le service est temporairement indisponible. Veuillez réessayer plus tard.");
+        } catch (FeignException.TooManyRequests e) {
+            log.warn("Débit limité par l'API Gateway (429): {}", e.getMessage());
+            redirectAttributes.addFlashAttribute("error", tooManyRequests(e));
         } catch (FeignException e) {
             log.error("Erreur Feign ({}): {}", e.status(), e.getMessage());
             redirectAttributes.addFlashAttribute("error", 
@@ -106,6 +119,9 @@ public class ClientController {
         } catch (FeignException.ServiceUnavailable e) {
             log.error("Service indisponible (503): {}", e.getMessage());
             redirectAttributes.addFlashAttribute("error", "Le service est temporairement indisponible. Veuillez réessayer plus tard.");
+        } catch (FeignException.TooManyRequests e) {
+            log.warn("Débit limité par l'API Gateway (429): {}", e.getMessage());
+            redirectAttributes.addFlashAttribute("error", tooManyRequests(e));
         } catch (FeignException e) {
             log.error("Erreur Feign ({}): {}", e.status(), e.getMessage());
             redirectAttributes.addFlashAttribute("error", 
@@ -130,6 +146,9 @@ public class ClientController {
         } catch (FeignException.ServiceUnavailable e) {
             log.error("Service indisponible (503): {}", e.getMessage());
             redirectAttributes.addFlashAttribute("error", "Le service est temporairement indisponible. Veuillez réessayer plus tard.");
+        } catch (FeignException.TooManyRequests e) {
+            log.warn("Débit limité par l'API Gateway (429): {}", e.getMessage());
+            redirectAttributes.addFlashAttribute("error", tooManyRequests(e));
         } catch (FeignException e) {
             log.error("Erreur Feign ({}): {}", e.status(), e.getMessage());
             redirectAttributes.addFlashAttribute("error", 
@@ -161,7 +180,7 @@ public class ClientController {
                 return "redirect:/";
             }
             
-            proxy.createProduit(produit);
+            proxy.createProduit(UUID.randomUUID().toString(), produit);
             redirectAttributes.addFlashAttribute("success", "Produit créé avec succès !");
             log.info("Produit créé: {}", produit);
         } catch (FeignException.NotFound e) {
@@ -170,6 +189,9 @@ public class ClientController {
         } catch (FeignException.ServiceUnavailable e) {
             log.error("Service indisponible (503): {}", e.getMessage());
             redirectAttributes.addFlashAttribute("error", "Le service est temporairement indisponible. Veuillez réessayer plus tard.");
+        } catch (FeignException.TooManyRequests e) {
+            log.warn("Débit limité par l'API Gateway (429): {}", e.getMessage());
+            redirectAttributes.addFlashAttribute("error", tooManyRequests(e));
         } catch (FeignException e) {
             log.error("Erreur Feign ({}): {}", e.status(), e.getMessage());
             redirectAttributes.addFlashAttribute("error", 
@@ -208,6 +230,9 @@ public class ClientController {
         } catch (FeignException.ServiceUnavailable e) {
             log.error("Service indisponible (503): {}", e.getMessage());
             redirectAttributes.addFlashAttribute("error", "Le service est temporairement indisponible. Veuillez réessayer plus tard.");
+        } catch (FeignException.TooManyRequests e) {
+            log.warn("Débit limité par l'API Gateway (429): {}", e.getMessage());
+            redirectAttributes.addFlashAttribute("error", tooManyRequests(e));
         } catch (FeignException e) {
             log.error("Erreur Feign ({}): {}", e.status(), e.getMessage());
             redirectAttributes.addFlashAttribute("error", 
@@ -232,6 +257,9 @@ public class ClientController {
         } catch (FeignException.ServiceUnavailable e) {
             log.error("Service indisponible (503): {}", e.getMessage());
             redirectAttributes.addFlashAttribute("error", "Le service est temporairement indisponible. Veuillez réessayer plus tard.");
+        } catch (FeignException.TooManyRequests e) {
+            log.warn("Débit limité par l'API Gateway (429): {}", e.getMessage());
+            redirectAttributes.addFlashAttribute("error", tooManyRequests(e));
         } catch (FeignException e) {
             log.error("Erreur Feign ({}): {}", e.status(), e.getMessage());
             redirectAttributes.addFlashAttribute("error", 
@@ -250,28 +278,11 @@ public class ClientController {
         try {
             List<CommandeBean> commandes = proxy.getCommandes();
             
-            // Calcul des statistiques
-            if (commandes != null && !commandes.isEmpty()) {
-                double totalMontant = commandes.stream()
-                    .filter(c -> c.getMontant() != null)
-                    .mapToDouble(CommandeBean::getMontant)
-                    .sum();
-                
-                int totalQuantite = commandes.stream()
-                    .filter(c -> c.getQuantite() != null)
-                    .mapToInt(CommandeBean::getQuantite)
-                    .sum();
-                
-                double moyenneMontant = totalMontant / commandes.size();
-                
-                model.addAttribute("totalMontant", totalMontant);
-                model.addAttribute("totalQuantite", totalQuantite);
-                model.addAttribute("moyenneMontant", moyenneMontant);
-            } else {
-                model.addAttribute("totalMontant", 0.0);
-                model.addAttribute("totalQuantite", 0);
-                model.addAttribute("moyenneMontant", 0.0);
-            }
+            // Statistiques calculées par microservice-commandes (agrégats maintenus en mémoire)
+            CommandeStatsBean stats = proxy.getCommandeStats();
+            model.addAttribute("totalMontant", stats != null ? stats.getTotalMontant() : 0.0);
+            model.addAttribute("totalQuantite", stats != null ? stats.getTotalQuantite() : 0);
+            model.addAttribute("moyenneMontant", stats != null ? stats.getMoyenneMontant() : 0.0);
             
             model.addAttribute("commandes", commandes != null ? commandes : Collections.emptyList());
             log.info("Nombre de commandes récupérées: {}", commandes != null ? commandes.size() : 0);
@@ -281,6 +292,13 @@ public class ClientController {
             model.addAttribute("totalMontant", 0.0);
             model.addAttribute("totalQuantite", 0);
             model.addAttribute("moyenneMontant", 0.0);
+        } catch (FeignException.TooManyRequests e) {
+            log.warn("Débit limité par l'API Gateway (429): {}", e.getMessage());
+            model.addAttribute("commandes", Collections.emptyList());
+            model.addAttribute("totalMontant", 0.0);
+            model.addAttribute("totalQuantite", 0);
+            model.addAttribute("moyenneMontant", 0.0);
+            model.addAttribute("error", tooManyRequests(e));
         } catch (FeignException.ServiceUnavailable e) {
             log.error("Service indisponible (503): {}", e.getMessage());
             model.addAttribute("commandes", Collections.emptyList());
@@ -302,7 +320,7 @@ public class ClientController {
 
     private void loadProduits(Model model) {
         try {
-            List<ProduitBean> produits = proxy.getProduits();
+            List<ProduitBean> produits = produitCatalog.getProduits();
             
             // Calcul des statistiques produits
             if (produits != null && !produits.isEmpty()) {
@@ -325,6 +343,14 @@ public class ClientController {
             
             model.addAttribute("produits", produits != null ? produits : Collections.emptyList());
             log.info("Nombre de produits récupérés: {}", produits != null ? produits.size() : 0);
+        } catch (FeignException.TooManyRequests e) {
+            log.warn("Débit limité par l'API Gateway (429): {}", e.getMessage());
+            model.addAttribute("produits", Collections.emptyList());
+            model.addAttribute("totalStock", 0);
+            model.addAttribute("valeurStock", 0.0);
+            if (!model.containsAttribute("error")) {
+                model.addAttribute("error", tooManyRequests(e));
+            }
         } catch (Exception e) {
             log.error("Erreur lors de la récupération des produits: {}", e.getMessage());
             model.addAttribute("produits", Collections.emptyList());
@@ -332,4 +358,15 @@ public class ClientController {
             model.addAttribute("valeurStock", 0.0);
         }
     }
+
+    // Message du 429 du Gateway, avec le délai de Retry-After s'il est fourni
+    private static String tooManyRequests(FeignException e) {
+        for (Map.Entry<String, Collection<String>> header : e.responseHeaders().entrySet()) {
+            if (HttpHeaders.RETRY_AFTER.equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+                return "Trop de requêtes en peu de temps. Veuillez réessayer dans "
+                        + header.getValue().iterator().next() + " s.";
+            }
+        }
+        return "Trop de requêtes en peu de temps. Veuillez réessayer dans quelques secondes.";
+    }
 }
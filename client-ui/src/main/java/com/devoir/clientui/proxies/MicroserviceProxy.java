@@ -1,8 +1,11 @@
 package com.devoir.clientui.proxies;
 
 import com.devoir.clientui.beans.CommandeBean;
+import com.devoir.clientui.beans.CommandeStatsBean;
 import com.devoir.clientui.beans.ProduitBean;
+import feign.Response;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -17,11 +20,15 @@ public interface MicroserviceProxy {
     @GetMapping("/commandes")
     List<CommandeBean> getCommandes();
 
+    @GetMapping("/commandes/stats")
+    CommandeStatsBean getCommandeStats();
+
     @GetMapping("/commandes/{id}")
     CommandeBean getCommande(@PathVariable Long id);
 
+    // L'Idempotency-Key est conservée par les relances Feign : une relance ne crée pas de doublon
     @PostMapping("/commandes")
-    CommandeBean createCommande(@RequestBody CommandeBean commande);
+    CommandeBean createCommande(@RequestHeader("Idempotency-Key") String idempotencyKey, @RequestBody CommandeBean commande);
 
     @PutMapping("/commandes/{id}")
     CommandeBean updateCommande(@PathVariable Long id, @RequestBody CommandeBean commande);
@@ -34,11 +41,15 @@ public interface MicroserviceProxy {
     @GetMapping("/produits")
     List<ProduitBean> getProduits();
 
+    // Réponse brute (200 ou 304) pour la revalidation du catalogue, cf. ProduitCatalog
+    @GetMapping("/produits")
+    Response getProduitsIfNoneMatch(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String etag);
+
     @GetMapping("/produits/{id}")
     ProduitBean getProduit(@PathVariable Long id);
 
     @PostMapping("/produits")
-    ProduitBean createProduit(@RequestBody ProduitBean produit);
+    ProduitBean createProduit(@RequestHeader("Idempotency-Key") String idempotencyKey, @RequestBody ProduitBean produit);
 
     @PutMapping("/produits/{id}")
     ProduitBean updateProduit(@PathVariable Long id, @RequestBody ProduitBean produit);
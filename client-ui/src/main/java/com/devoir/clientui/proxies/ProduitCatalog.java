@@ -0,0 +1,63 @@
+package com.devoir.clientui.proxies;
+
+import com.devoir.clientui.beans.ProduitBean;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import feign.FeignException;
+import feign.Response;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Catalogue des produits gardé en mémoire et revalidé à chaque lecture avec If-None-Match :
+ * tant que le catalogue ne change pas, le Gateway relaie un 304 sans corps et la liste
+ * locale est réutilisée.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProduitCatalog {
+
+    private static final TypeReference<List<ProduitBean>> PRODUITS = new TypeReference<>() { };
+
+    private final MicroserviceProxy proxy;
+    private final ObjectMapper objectMapper;
+
+    private volatile Snapshot snapshot;
+
+    public List<ProduitBean> getProduits() {
+        Snapshot current = snapshot;
+        try (Response response = proxy.getProduitsIfNoneMatch(current != null ? current.etag() : null)) {
+            if (response.status() == HttpStatus.NOT_MODIFIED.value() && current != null) {
+                return current.produits();
+            }
+            if (response.status() < 200 || response.status() >= 300) {
+                throw FeignException.errorStatus("MicroserviceProxy#getProduitsIfNoneMatch", response);
+            }
+            List<ProduitBean> produits;
+            try (InputStream body = response.body().asInputStream()) {
+                produits = List.copyOf(objectMapper.readValue(body, PRODUITS));
+            }
+            String etag = header(response, HttpHeaders.ETAG);
+            snapshot = etag != null ? new Snapshot(etag, produits) : null;
+            return produits;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String header(Response response, String name) {
+        Collection<String> values = response.headers().get(name);
+        return values == null || values.isEmpty() ? null : values.iterator().next();
+    }
+
+    private record Snapshot(String etag, List<ProduitBean> produits) {
+    }
+}
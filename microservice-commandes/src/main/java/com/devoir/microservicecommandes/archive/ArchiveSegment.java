@@ -0,0 +1,293 @@
+package com.devoir.microservicecommandes.archive;
+
+import com.devoir.microservicecommandes.model.Commande;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Segment d'archive immuable : un fichier par lot archivé, stocké colonne par colonne.
+ *
+ * Format : en-tête (magic, version, nombre de lignes, date min, date max en jours epoch,
+ * nombre de colonnes, puis depuis la version 2 ID min et ID max), puis pour chaque colonne
+ * sa taille compressée, sa taille brute et les octets compressés (Deflate). Les IDs et les
+ * dates, triés, sont codés en deltas. La lecture se fait sur un fichier mappé en mémoire ;
+ * l'en-tête permet d'écarter un segment sans décompresser ses colonnes si sa plage de dates
+ * ou d'IDs ne correspond pas. Les segments de version 1 restent lisibles : leurs bornes d'IDs
+ * sont calculées à l'ouverture.
+ */
+final class ArchiveSegment {
+
+    static final String EXTENSION = ".cmda";
+
+    private static final int MAGIC = 0x434D4441; // "CMDA"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE_V1 = 6 * Integer.BYTES;
+    private static final int HEADER_SIZE = HEADER_SIZE_V1 + 2 * Long.BYTES;
+    private static final int COLUMNS = 6;
+
+    private final Path path;
+    private final int headerSize;
+    private final int rowCount;
+    private final LocalDate minDate;
+    private final LocalDate maxDate;
+    private final long minId;
+    private final long maxId;
+
+    private ArchiveSegment(Path path, int headerSize, int rowCount, LocalDate minDate, LocalDate maxDate,
+                           long minId, long maxId) {
+        this.path = path;
+        this.headerSize = headerSize;
+        this.rowCount = rowCount;
+        this.minDate = minDate;
+        this.maxDate = maxDate;
+        this.minId = minId;
+        this.maxId = maxId;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    int rowCount() {
+        return rowCount;
+    }
+
+    long maxId() {
+        return maxId;
+    }
+
+    boolean overlaps(LocalDate from, LocalDate to) {
+        return (from == null || !maxDate.isBefore(from)) && (to == null || !minDate.isAfter(to));
+    }
+
+    /**
+     * Écrit les commandes (toutes datées) triées par (date, id) dans un nouveau segment.
+     * Le fichier est écrit sous un nom temporaire, synchronisé sur disque puis renommé.
+     */
+    static ArchiveSegment write(Path file, List<Commande> rows) {
+        List<Commande> sorted = new ArrayList<>(rows);
+        sorted.sort((a, b) -> {
+            int byDate = a.getDateCommande().compareTo(b.getDateCommande());
+            return byDate != 0 ? byDate : Long.compare(a.getId(), b.getId());
+        });
+
+        ColumnWriter ids = new ColumnWriter();
+        ColumnWriter dates = new ColumnWriter();
+        ColumnWriter quantites = new ColumnWriter();
+        ColumnWriter montants = new ColumnWriter();
+        ColumnWriter produits = new ColumnWriter();
+        ColumnWriter descriptions = new ColumnWriter();
+        long previousId = 0;
+        long previousDay = 0;
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        for (Commande c : sorted) {
+            minId = Math.min(minId, c.getId());
+            maxId = Math.max(maxId, c.getId());
+            ids.writeVarLong(c.getId() - previousId);
+            previousId = c.getId();
+            long day = c.getDateCommande().toEpochDay();
+            dates.writeVarLong(day - previousDay);
+            previousDay = day;
+            quantites.writeNullableLong(c.getQuantite() != null ? c.getQuantite().longValue() : null);
+            montants.writeNullableDouble(c.getMontant());
+            produits.writeNullableLong(c.getIdProduit());
+            descriptions.writeNullableString(c.getDescription());
+        }
+
+        List<byte[]> raw = List.of(ids.toByteArray(), dates.toByteArray(), quantites.toByteArray(),
+                montants.toByteArray(), produits.toByteArray(), descriptions.toByteArray());
+        LocalDate minDate = sorted.get(0).getDateCommande();
+        LocalDate maxDate = sorted.get(sorted.size() - 1).getDateCommande();
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC).putInt(VERSION).putInt(sorted.size())
+                    .putInt((int) minDate.toEpochDay()).putInt((int) maxDate.toEpochDay()).putInt(COLUMNS)
+                    .putLong(minId).putLong(maxId)
+                    .flip();
+            writeFully(channel, header);
+            for (byte[] column : raw) {
+                byte[] compressed = deflate(column);
+                writeFully(channel, ByteBuffer.allocate(2 * Integer.BYTES).putInt(compressed.length).putInt(column.length).flip());
+                writeFully(channel, ByteBuffer.wrap(compressed));
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Écriture du segment " + file + " impossible", e);
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Publication du segment " + file + " impossible", e);
+        }
+        return new ArchiveSegment(file, HEADER_SIZE, sorted.size(), minDate, maxDate, minId, maxId);
+    }
+
+    /**
+     * Ouvre un segment en ne lisant que son en-tête.
+     */
+    static ArchiveSegment open(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) { }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE_V1 || header.getInt() != MAGIC) {
+                throw new IllegalStateException("Segment d'archive invalide : " + file);
+            }
+            int version = header.getInt();
+            int rows = header.getInt();
+            LocalDate min = LocalDate.ofEpochDay(header.getInt());
+            LocalDate max = LocalDate.ofEpochDay(header.getInt());
+            header.getInt(); // nombre de colonnes
+            if (version == VERSION && header.remaining() >= 2 * Long.BYTES) {
+                return new ArchiveSegment(file, HEADER_SIZE, rows, min, max, header.getLong(), header.getLong());
+            }
+            if (version != 1) {
+                throw new IllegalStateException("Segment d'archive invalide : " + file);
+            }
+            return withIdBounds(new ArchiveSegment(file, HEADER_SIZE_V1, rows, min, max, Long.MIN_VALUE, Long.MAX_VALUE));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lecture du segment " + file + " impossible", e);
+        }
+    }
+
+    // Segment de version 1 : bornes d'IDs lues dans les données
+    private static ArchiveSegment withIdBounds(ArchiveSegment v1) {
+        long[] bounds = {Long.MAX_VALUE, Long.MIN_VALUE};
+        v1.scan(null, null, c -> {
+            bounds[0] = Math.min(bounds[0], c.getId());
+            bounds[1] = Math.max(bounds[1], c.getId());
+        });
+        return new ArchiveSegment(v1.path, v1.headerSize, v1.rowCount, v1.minDate, v1.maxDate, bounds[0], bounds[1]);
+    }
+
+    /**
+     * Commande {@code id} si elle est dans ce segment ; les colonnes ne sont décompressées que
+     * si l'ID est dans les bornes de l'en-tête.
+     */
+    Optional<Commande> find(long id) {
+        if (id < minId || id > maxId) {
+            return Optional.empty();
+        }
+        Commande[] found = new Commande[1];
+        scan(null, null, c -> {
+            if (c.getId() == id) found[0] = c;
+        });
+        return Optional.ofNullable(found[0]);
+    }
+
+    /**
+     * Parcourt les commandes du segment dont la date est dans [from, to] (bornes nulles = ouvertes).
+     */
+    void scan(LocalDate from, LocalDate to, Consumer<Commande> consumer) {
+        if (!overlaps(from, to)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.position(headerSize);
+            ColumnReader ids = nextColumn(mapped);
+            ColumnReader dates = nextColumn(mapped);
+            ColumnReader quantites = nextColumn(mapped);
+            ColumnReader montants = nextColumn(mapped);
+            ColumnReader produits = nextColumn(mapped);
+            ColumnReader descriptions = nextColumn(mapped);
+
+            long id = 0;
+            long day = 0;
+            for (int i = 0; i < rowCount; i++) {
+                id += ids.readVarLong();
+                day += dates.readVarLong();
+                Long quantite = quantites.readNullableLong();
+                Double montant = montants.readNullableDouble();
+                Long idProduit = produits.readNullableLong();
+                String description = descriptions.readNullableString();
+
+                LocalDate date = LocalDate.ofEpochDay(day);
+                if (to != null && date.isAfter(to)) {
+                    break; // lignes triées par date
+                }
+                if (from == null || !date.isBefore(from)) {
+                    consumer.accept(Commande.builder()
+                            .id(id)
+                            .dateCommande(date)
+                            .quantite(quantite != null ? quantite.intValue() : null)
+                            .montant(montant)
+                            .idProduit(idProduit)
+                            .description(description)
+                            .build());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lecture du segment " + path + " impossible", e);
+        }
+    }
+
+    private static ColumnReader nextColumn(ByteBuffer mapped) {
+        int compressedLength = mapped.getInt();
+        int rawLength = mapped.getInt();
+        ByteBuffer compressed = mapped.slice(mapped.position(), compressedLength);
+        mapped.position(mapped.position() + compressedLength);
+
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int n = 0;
+            while (n < rawLength && !inflater.finished()) {
+                int read = inflater.inflate(raw, n, rawLength - n);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Colonne d'archive tronquée");
+                }
+                n += read;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Colonne d'archive corrompue", e);
+        } finally {
+            inflater.end();
+        }
+        return new ColumnReader(raw);
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] buffer = new byte[Math.max(64, raw.length / 2)];
+            ByteArrayOutputStream out = new ByteArrayOutputStream(buffer.length);
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
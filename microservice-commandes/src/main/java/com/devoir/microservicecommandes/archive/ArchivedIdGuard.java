@@ -0,0 +1,50 @@
+package com.devoir.microservicecommandes.archive;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Les commandes archivées ont quitté la table : si la base est recréée (base en mémoire,
+ * fichier H2 supprimé) alors que l'archive est conservée, la séquence des IDs repartirait en
+ * dessous et de nouvelles commandes reprendraient des IDs archivés. Au démarrage, une fois le
+ * schéma créé, la séquence est avancée au-delà du plus grand ID archivé, lu dans les en-têtes
+ * des segments.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@Slf4j
+class ArchivedIdGuard {
+
+    // allocationSize du générateur de Commande : Hibernate distribue les IDs par blocs sous la valeur lue
+    private static final long ALLOCATION_SIZE = 50;
+
+    private final CommandeArchive archive;
+    private final JdbcTemplate jdbcTemplate;
+
+    ArchivedIdGuard(CommandeArchive archive, JdbcTemplate jdbcTemplate) {
+        this.archive = archive;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void advanceSequence() {
+        long maxId = archive.maxId();
+        if (maxId == 0) {
+            return;
+        }
+        Long next = jdbcTemplate.queryForList("select base_value from information_schema.sequences " +
+                "where sequence_name = 'COMMANDE_SEQ'", Long.class).stream().findFirst().orElse(null);
+        if (next == null) {
+            log.warn("Séquence commande_seq introuvable : IDs archivés (jusqu'à {}) non protégés", maxId);
+            return;
+        }
+        long floor = maxId + ALLOCATION_SIZE + 1;
+        if (next < floor) {
+            jdbcTemplate.execute("alter sequence commande_seq restart with " + floor);
+            log.info("Séquence commande_seq avancée de {} à {}, après le plus grand ID archivé", next, floor);
+        }
+    }
+}
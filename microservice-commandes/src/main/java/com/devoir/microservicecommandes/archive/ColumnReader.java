@@ -0,0 +1,58 @@
+package com.devoir.microservicecommandes.archive;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lecture d'une colonne décompressée, symétrique de ColumnWriter.
+ */
+final class ColumnReader {
+
+    private final byte[] data;
+    private int pos;
+
+    ColumnReader(byte[] data) {
+        this.data = data;
+    }
+
+    long readVarLong() {
+        long v = readUnsigned();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    Long readNullableLong() {
+        long v = readUnsigned();
+        if (v == 0) return null;
+        v -= 1;
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    Double readNullableDouble() {
+        if (data[pos++] == 0) return null;
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = (bits << 8) | (data[pos++] & 0xFF);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    String readNullableString() {
+        long length = readUnsigned();
+        if (length == 0) return null;
+        int n = (int) (length - 1);
+        String value = new String(data, pos, n, StandardCharsets.UTF_8);
+        pos += n;
+        return value;
+    }
+
+    private long readUnsigned() {
+        long result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[pos++];
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+}
@@ -0,0 +1,96 @@
+package com.devoir.microservicecommandes.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Écriture compacte d'une colonne : entiers en varint zigzag, valeurs nulles codées par 0.
+ * Écrit en mémoire pour une colonne d'archive, ou directement dans un flux pour l'export
+ * binaire (lignes écrites au fil de l'eau, sans tampon intermédiaire).
+ */
+public final class ColumnWriter {
+
+    private final OutputStream out;
+
+    ColumnWriter() {
+        this(new ByteArrayOutputStream());
+    }
+
+    public ColumnWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public void writeByte(int value) {
+        write(value);
+    }
+
+    public void writeBytes(byte[] bytes) {
+        write(bytes, bytes.length);
+    }
+
+    public void writeVarLong(long value) {
+        writeUnsigned((value << 1) ^ (value >> 63));
+    }
+
+    // 0 = null, sinon zigzag(valeur) + 1
+    public void writeNullableLong(Long value) {
+        if (value == null) {
+            write(0);
+        } else {
+            writeUnsigned(((value << 1) ^ (value >> 63)) + 1);
+        }
+    }
+
+    public void writeNullableDouble(Double value) {
+        if (value == null) {
+            write(0);
+        } else {
+            write(1);
+            long bits = Double.doubleToRawLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (bits >>> shift));
+            }
+        }
+    }
+
+    public void writeNullableString(String value) {
+        if (value == null) {
+            write(0);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeUnsigned(bytes.length + 1L);
+            write(bytes, bytes.length);
+        }
+    }
+
+    private void writeUnsigned(long v) {
+        while ((v & ~0x7FL) != 0) {
+            write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        write((int) v);
+    }
+
+    private void write(int b) {
+        try {
+            out.write(b);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(byte[] bytes, int length) {
+        try {
+            out.write(bytes, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    byte[] toByteArray() {
+        return ((ByteArrayOutputStream) out).toByteArray();
+    }
+}
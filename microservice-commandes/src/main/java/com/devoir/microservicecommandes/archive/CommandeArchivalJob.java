@@ -0,0 +1,90 @@
+package com.devoir.microservicecommandes.archive;
+
+import com.devoir.microservicecommandes.model.Commande;
+import com.devoir.microservicecommandes.repository.CommandeRepository;
+import com.devoir.microservicecommandes.service.CommandeStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Déplace périodiquement les commandes plus anciennes que commandes.archive.max-age
+ * de la table vers l'archive. Chaque lot est lu avec verrou d'écriture, archivé puis supprimé
+ * dans une même transaction : une modification concurrente attend la fin du lot et ne peut
+ * pas être perdue ; la réconciliation des statistiques l'attend aussi. Si la transaction
+ * échoue, les segments du lot sont retirés ; après un arrêt brutal entre l'écriture du
+ * segment et la validation, la commande existe en double et la lecture fusionnée garde la
+ * version de la table.
+ *
+ * Activé par le profil persistent seulement : avec la base en mémoire, les commandes
+ * archivées seraient les seules à survivre à un redémarrage.
+ */
+@Component
+@ConditionalOnProperty(name = "commandes.archive.enabled", havingValue = "true")
+@Slf4j
+public class CommandeArchivalJob {
+
+    private final CommandeRepository repository;
+    private final CommandeArchive archive;
+    private final CommandeStatsService statsService;
+    private final TransactionTemplate transactionTemplate;
+    private final Period maxAge;
+    private final int batchSize;
+
+    public CommandeArchivalJob(CommandeRepository repository, CommandeArchive archive,
+                               CommandeStatsService statsService, PlatformTransactionManager transactionManager,
+                               @Value("${commandes.archive.max-age:P365D}") Period maxAge,
+                               @Value("${commandes.archive.batch-size:10000}") int batchSize) {
+        this.repository = repository;
+        this.archive = archive;
+        this.statsService = statsService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAge = maxAge;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${commandes.archive.interval:PT1H}",
+               fixedDelayString = "${commandes.archive.interval:PT1H}")
+    public void archiveOldCommandes() {
+        LocalDate cutoff = LocalDate.now().minus(maxAge);
+        long archived = 0;
+        int size;
+        do {
+            size = archiveBatch(cutoff);
+            archived += size;
+        } while (size == batchSize);
+
+        if (archived > 0) {
+            log.info("{} commandes antérieures au {} archivées", archived, cutoff);
+        }
+    }
+
+    private int archiveBatch(LocalDate cutoff) {
+        List<List<ArchiveSegment>> written = new ArrayList<>(1);
+        try {
+            return transactionTemplate.execute(status -> {
+                List<Commande> batch = repository.lockArchivable(cutoff, Limit.of(batchSize));
+                if (batch.isEmpty()) {
+                    return 0;
+                }
+                statsService.holdWhileArchiving();
+                written.add(archive.append(batch));
+                repository.deleteAllByIdInBatch(batch.stream().map(Commande::getId).toList());
+                return batch.size();
+            });
+        } catch (RuntimeException e) {
+            written.forEach(archive::discard);
+            throw e;
+        }
+    }
+}
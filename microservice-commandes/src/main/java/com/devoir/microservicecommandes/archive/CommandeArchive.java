@@ -0,0 +1,169 @@
+package com.devoir.microservicecommandes.archive;
+
+import com.devoir.microservicecommandes.model.Commande;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Archive froide des commandes : segments en ajout seul, un répertoire par mois
+ * (archive/2024-03/seg-....cmda). Seules les partitions couvrant la plage demandée sont lues.
+ */
+@Component
+@Slf4j
+public class CommandeArchive {
+
+    private final Path directory;
+    private final NavigableMap<YearMonth, List<ArchiveSegment>> partitions = new ConcurrentSkipListMap<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    public CommandeArchive(@Value("${commandes.archive.dir:./data/archive}") Path directory) {
+        this.directory = directory;
+    }
+
+    @PostConstruct
+    void load() throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            files.filter(f -> f.getFileName().toString().endsWith(ArchiveSegment.EXTENSION))
+                    .forEach(f -> {
+                        YearMonth month = YearMonth.parse(f.getParent().getFileName().toString());
+                        partition(month).add(ArchiveSegment.open(f));
+                    });
+        }
+        log.info("Archive des commandes : {} segments, {} commandes", segmentCount(), rowCount());
+    }
+
+    /**
+     * Ajoute les commandes (toutes datées) à l'archive, un segment par mois ; renvoie les
+     * segments écrits, à retirer avec {@link #discard} si la suppression en base échoue.
+     */
+    List<ArchiveSegment> append(List<Commande> commandes) {
+        List<ArchiveSegment> written = new ArrayList<>();
+        try {
+            commandes.stream()
+                    .collect(Collectors.groupingBy(c -> YearMonth.from(c.getDateCommande())))
+                    .forEach((month, rows) -> {
+                        Path dir = directory.resolve(month.toString());
+                        try {
+                            Files.createDirectories(dir);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        String name = "seg-" + System.currentTimeMillis() + "-" + sequence.incrementAndGet() + ArchiveSegment.EXTENSION;
+                        ArchiveSegment segment = ArchiveSegment.write(dir.resolve(name), rows);
+                        partition(month).add(segment);
+                        written.add(segment);
+                    });
+        } catch (RuntimeException e) {
+            discard(written);
+            throw e;
+        }
+        return written;
+    }
+
+    /**
+     * Retire de l'archive des segments que la base n'a finalement pas cédés.
+     */
+    void discard(List<ArchiveSegment> segments) {
+        for (ArchiveSegment segment : segments) {
+            partitions.values().forEach(list -> list.remove(segment));
+            try {
+                Files.deleteIfExists(segment.path());
+            } catch (IOException e) {
+                log.warn("Segment d'archive {} non supprimé, ses commandes resteront en double", segment.path(), e);
+            }
+        }
+    }
+
+    /**
+     * Commande archivée {@code id} ; seuls les segments dont les bornes d'IDs la couvrent sont lus.
+     */
+    public Optional<Commande> findById(long id) {
+        for (List<ArchiveSegment> segments : partitions.values()) {
+            for (ArchiveSegment segment : segments) {
+                Optional<Commande> found = segment.find(id);
+                if (found.isPresent()) {
+                    return found;
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Plus grand ID archivé, conservé dans les en-têtes des segments (0 si l'archive est vide).
+     */
+    public long maxId() {
+        return partitions.values().stream().flatMap(List::stream).mapToLong(ArchiveSegment::maxId).max().orElse(0);
+    }
+
+    /**
+     * Parcourt les commandes archivées dont la date est dans [from, to] (bornes nulles = ouvertes).
+     */
+    public void scan(LocalDate from, LocalDate to, Consumer<Commande> consumer) {
+        NavigableMap<YearMonth, List<ArchiveSegment>> range = partitions;
+        if (from != null) range = range.tailMap(YearMonth.from(from), true);
+        if (to != null) range = range.headMap(YearMonth.from(to), true);
+        range.values().forEach(segments -> segments.forEach(s -> s.scan(from, to, consumer)));
+    }
+
+    /**
+     * Segments présents, par chemin. Un segment ne change jamais : un calcul fait sur son contenu
+     * reste valable tant qu'il figure dans cette liste.
+     */
+    public List<Path> segments() {
+        return partitions.values().stream().flatMap(List::stream).map(ArchiveSegment::path).toList();
+    }
+
+    /**
+     * Parcourt toutes les commandes d'un segment ; rien s'il a été retiré entre-temps.
+     */
+    public void scanSegment(Path segment, Consumer<Commande> consumer) {
+        partitions.values().stream().flatMap(List::stream)
+                .filter(s -> s.path().equals(segment))
+                .findFirst()
+                .ifPresent(s -> s.scan(null, null, consumer));
+    }
+
+    /**
+     * Premier et dernier mois présents dans l'archive (vide si l'archive est vide).
+     */
+    public Optional<YearMonth> firstMonth() {
+        return partitions.isEmpty() ? Optional.empty() : Optional.of(partitions.firstKey());
+    }
+
+    public Optional<YearMonth> lastMonth() {
+        return partitions.isEmpty() ? Optional.empty() : Optional.of(partitions.lastKey());
+    }
+
+    public long rowCount() {
+        return partitions.values().stream().flatMap(List::stream).mapToLong(ArchiveSegment::rowCount).sum();
+    }
+
+    public int segmentCount() {
+        return partitions.values().stream().mapToInt(List::size).sum();
+    }
+
+    private List<ArchiveSegment> partition(YearMonth month) {
+        return partitions.computeIfAbsent(month, m -> new CopyOnWriteArrayList<>());
+    }
+}
@@ -0,0 +1,127 @@
+package com.devoir.microservicecommandes.client;
+
+import com.devoir.microservicecommandes.dto.ProduitDto;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Client non bloquant vers microservice-produit.
+ * Les réponses sont gardées dans un cache borné avec TTL, et les requêtes simultanées
+ * pour un même produit partagent le même appel en cours (single-flight) :
+ * un produit populaire ne coûte qu'un appel amont par fenêtre de TTL.
+ */
+@Component
+public class ProduitClient {
+
+    private static final int IDS_PER_REQUEST = 500;
+
+    private final WebClient webClient;
+    private final AsyncCache<Long, ProduitDto> cache;
+
+    public ProduitClient(WebClient.Builder loadBalancedWebClientBuilder,
+                         @Value("${produit.service.url:http://MICROSERVICE-PRODUIT}") String baseUrl,
+                         @Value("${produit.cache.ttl:PT30S}") Duration ttl,
+                         @Value("${produit.cache.max-size:10000}") long maxSize) {
+        this.webClient = loadBalancedWebClientBuilder.baseUrl(baseUrl).build();
+        // Un futur en échec ou vide est retiré du cache : seul un succès est mémorisé
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .buildAsync();
+    }
+
+    /**
+     * Retourne le produit, ou un Mono vide si microservice-produit répond 404.
+     */
+    public Mono<ProduitDto> getProduit(Long idProduit) {
+        // suppressCancel : l'annulation d'un appelant ne doit pas annuler l'appel partagé
+        return Mono.fromFuture(() -> cache.get(idProduit, (id, executor) -> fetch(id).toFuture()), true);
+    }
+
+    /**
+     * Retourne les produits demandés indexés par ID. Seuls les IDs absents du cache
+     * sont demandés à microservice-produit, en une requête GET /produits?ids=... par paquet.
+     */
+    public Mono<Map<Long, ProduitDto>> getProduits(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(Collections.emptyMap());
+        }
+        return Mono.fromFuture(() -> cache.getAll(ids, (missing, executor) -> fetchAll(missing).toFuture()), true);
+    }
+
+    /**
+     * Réserve du stock sur microservice-produit sous l'ID {@code reservationId} (rejouable sans
+     * double décrément). Retourne true si la réservation est acceptée, false si le stock est
+     * insuffisant (409) ; une erreur si le produit n'existe pas ou si le service échoue.
+     */
+    public Mono<Boolean> reserveStock(Long idProduit, int quantite, String reservationId) {
+        return webClient.post()
+                .uri("/produits/{id}/reservation?quantite={q}&reservation={r}", idProduit, quantite, reservationId)
+                .exchangeToMono(response -> {
+                    if (response.statusCode().is2xxSuccessful()) {
+                        return response.releaseBody().thenReturn(true);
+                    }
+                    if (response.statusCode().isSameCodeAs(HttpStatus.CONFLICT)) {
+                        return response.releaseBody().thenReturn(false);
+                    }
+                    return response.createError();
+                });
+    }
+
+    /**
+     * Libère la réservation {@code reservationId}. Sans effet si elle n'a jamais abouti ;
+     * microservice-produit refusera alors cette réservation si elle lui parvient plus tard.
+     */
+    public Mono<Void> releaseStock(Long idProduit, String reservationId) {
+        return webClient.delete()
+                .uri("/produits/{id}/reservation?reservation={r}", idProduit, reservationId)
+                .retrieve()
+                .toBodilessEntity()
+                .then();
+    }
+
+    private Mono<ProduitDto> fetch(Long idProduit) {
+        return webClient.get()
+                .uri("/produits/{id}", idProduit)
+                .exchangeToMono(response -> {
+                    if (response.statusCode().is2xxSuccessful()) {
+                        return response.bodyToMono(ProduitDto.class);
+                    }
+                    if (response.statusCode().isSameCodeAs(HttpStatus.NOT_FOUND)) {
+                        return response.releaseBody().then(Mono.empty());
+                    }
+                    return response.createError();
+                });
+    }
+
+    private Mono<Map<Long, ProduitDto>> fetchAll(Set<? extends Long> ids) {
+        List<Long> all = new ArrayList<>(ids);
+        // Paquets bornés pour ne pas dépasser la taille maximale d'URL
+        return Flux.range(0, (all.size() + IDS_PER_REQUEST - 1) / IDS_PER_REQUEST)
+                .map(i -> all.subList(i * IDS_PER_REQUEST, Math.min(all.size(), (i + 1) * IDS_PER_REQUEST)))
+                .flatMap(chunk -> webClient.get()
+                        .uri(builder -> builder.path("/produits").queryParam("ids", joinIds(chunk)).build())
+                        .retrieve()
+                        .bodyToFlux(ProduitDto.class))
+                .collectMap(ProduitDto::getId);
+    }
+
+    private static String joinIds(List<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+}
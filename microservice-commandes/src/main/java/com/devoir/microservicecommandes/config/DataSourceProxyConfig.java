@@ -0,0 +1,39 @@
+package com.devoir.microservicecommandes.config;
+
+import com.devoir.microservicecommandes.monitoring.SqlMetricsListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+public class DataSourceProxyConfig {
+
+    // Enveloppe la DataSource pour mesurer chaque requête (remplace show-sql / DEBUG org.hibernate.SQL)
+    @Bean
+    public static BeanPostProcessor dataSourceProxyPostProcessor(
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${commandes.sql.slow-threshold:PT0.1S}") Duration slowThreshold,
+            @Value("${commandes.sql.sample-rate:0.0}") double sampleRate,
+            @Value("${commandes.sql.max-shapes:200}") int maxShapes) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(new SqlMetricsListener(meterRegistry.getObject(), slowThreshold, sampleRate, maxShapes))
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+}
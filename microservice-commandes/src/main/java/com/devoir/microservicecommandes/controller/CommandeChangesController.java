@@ -0,0 +1,201 @@
+package com.devoir.microservicecommandes.controller;
+
+import com.devoir.microservicecommandes.model.OutboxEvent;
+import com.devoir.microservicecommandes.repository.OutboxEventRepository;
+import com.devoir.microservicecommandes.service.ChangeBroker;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+@RestController
+@RequestMapping("/commandes/changes")
+@Slf4j
+@Tag(name = "Commandes - Changements", description = "Flux des changements sur les commandes (outbox)")
+public class CommandeChangesController {
+
+    // Bornes de l'attente d'un long-poll : timeout=0 ne doit pas ouvrir une requête sans fin
+    static final long MIN_TIMEOUT_SECONDS = 1;
+    static final long MAX_TIMEOUT_SECONDS = 300;
+
+    private final OutboxEventRepository repository;
+    private final ChangeBroker broker;
+    private final TaskExecutor taskExecutor;
+
+    @Value("${commandes.pagination.max-limit:1000}")
+    private int maxLimit;
+
+    public CommandeChangesController(OutboxEventRepository repository, ChangeBroker broker,
+                                     @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor) {
+        this.repository = repository;
+        this.broker = broker;
+        this.taskExecutor = taskExecutor;
+    }
+
+    @GetMapping
+    @Operation(summary = "Changements depuis un offset (long-poll)",
+               description = "Retourne les événements de position > since. S'il n'y en a aucun, la requête attend jusqu'à 'timeout' secondes (entre 1 et 300) qu'un nouvel événement soit publié.")
+    @ApiResponse(responseCode = "200", description = "Événements de changement, éventuellement vide si le délai expire")
+    public DeferredResult<List<OutboxEvent>> changes(
+            @Parameter(description = "Dernière position reçue (exclue)", example = "0") @RequestParam(defaultValue = "0") long since,
+            @Parameter(description = "Nombre maximum d'événements", example = "500") @RequestParam(defaultValue = "500") int limit,
+            @Parameter(description = "Attente maximale en secondes", example = "30") @RequestParam(defaultValue = "30") long timeout) {
+        int size = Math.max(1, Math.min(limit, maxLimit));
+        long waitSeconds = Math.max(MIN_TIMEOUT_SECONDS, Math.min(timeout, MAX_TIMEOUT_SECONDS));
+        DeferredResult<List<OutboxEvent>> result = new DeferredResult<>(waitSeconds * 1000, Collections.emptyList());
+
+        // Abonnement avant la lecture en base : aucun événement ne peut passer entre les deux
+        Consumer<List<OutboxEvent>> listener = events -> {
+            List<OutboxEvent> fresh = events.stream().filter(e -> e.getPosition() > since).limit(size).toList();
+            if (!fresh.isEmpty()) {
+                result.setResult(fresh);
+            }
+        };
+        broker.subscribe(listener);
+        result.onCompletion(() -> broker.unsubscribe(listener));
+
+        List<OutboxEvent> pending = repository.findByPositionGreaterThanOrderByPositionAsc(since, Limit.of(size));
+        if (!pending.isEmpty()) {
+            result.setResult(pending);
+        }
+        return result;
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Flux des changements (SSE)",
+               description = "Rejoue les événements de position > since puis pousse les nouveaux événements au fil de leur publication")
+    @ApiResponse(responseCode = "200", description = "Flux Server-Sent Events")
+    public SseEmitter stream(
+            @Parameter(description = "Dernière position reçue (exclue)", example = "0") @RequestParam(defaultValue = "0") long since) {
+        SseEmitter emitter = new SseEmitter(0L);
+        ChangeSubscription subscription = new ChangeSubscription(emitter, since);
+        broker.subscribe(subscription);
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(t -> subscription.close());
+        subscription.start();
+        return emitter;
+    }
+
+    /**
+     * Abonné SSE : envoie les événements dans l'ordre des positions. Si un lot publié
+     * n'est pas contigu à la dernière position envoyée, les événements manquants sont relus en base.
+     *
+     * Les envois se font sur l'exécuteur de tâches, un seul à la fois par abonné : le relais qui
+     * publie ne fait que mettre le lot en file, un client lent ne retarde que lui-même. Au-delà de
+     * commandes.pagination.max-limit événements en attente, la file est vidée et l'abonné relit
+     * la base à partir de sa dernière position.
+     */
+    private class ChangeSubscription implements Consumer<List<OutboxEvent>> {
+
+        private final SseEmitter emitter;
+        private final Queue<List<OutboxEvent>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queuedEvents = new AtomicInteger();
+        private final AtomicBoolean behind = new AtomicBoolean();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+        // Lu et écrit uniquement par la tâche d'envoi en cours
+        private long lastSent;
+
+        ChangeSubscription(SseEmitter emitter, long since) {
+            this.emitter = emitter;
+            this.lastSent = since;
+        }
+
+        void start() {
+            behind.set(true);
+            schedule();
+        }
+
+        void close() {
+            closed = true;
+            broker.unsubscribe(this);
+            queue.clear();
+        }
+
+        @Override
+        public void accept(List<OutboxEvent> events) {
+            if (closed || events.isEmpty()) {
+                return;
+            }
+            if (queuedEvents.addAndGet(events.size()) > maxLimit) {
+                behind.set(true);
+            } else {
+                queue.add(events);
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (!closed && draining.compareAndSet(false, true)) {
+                taskExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                do {
+                    if (behind.getAndSet(false)) {
+                        queue.clear();
+                        queuedEvents.set(0);
+                        catchUp();
+                    }
+                    List<OutboxEvent> events;
+                    while (!closed && (events = queue.poll()) != null) {
+                        queuedEvents.addAndGet(-events.size());
+                        if (events.get(events.size() - 1).getPosition() <= lastSent) {
+                            continue;
+                        }
+                        if (events.get(0).getPosition() > lastSent + 1) {
+                            catchUp();
+                        }
+                        send(events);
+                    }
+                    draining.set(false);
+                    // Lot arrivé entre la fin de la boucle et la remise à zéro du drapeau
+                } while (!closed && (!queue.isEmpty() || behind.get()) && draining.compareAndSet(false, true));
+            } catch (IOException | RuntimeException e) {
+                log.debug("Abonné SSE aux changements déconnecté: {}", e.getMessage());
+                close();
+                emitter.completeWithError(e);
+            }
+        }
+
+        private void catchUp() throws IOException {
+            List<OutboxEvent> page;
+            do {
+                page = repository.findByPositionGreaterThanOrderByPositionAsc(lastSent, Limit.of(maxLimit));
+                send(page);
+            } while (page.size() == maxLimit && !closed);
+        }
+
+        private void send(List<OutboxEvent> events) throws IOException {
+            for (OutboxEvent event : events) {
+                if (event.getPosition() <= lastSent) continue;
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(event.getPosition()))
+                        .name(event.getType())
+                        .data(event, MediaType.APPLICATION_JSON));
+                lastSent = event.getPosition();
+            }
+        }
+    }
+}
@@ -1,7 +1,26 @@
 package com.devoir.microservicecommandes.controller;
 
+import com.devoir.microservicecommandes.client.ProduitClient;
+import com.devoir.microservicecommandes.dto.BatchResult;
+import com.devoir.microservicecommandes.dto.CommandeDetail;
+import com.devoir.microservicecommandes.dto.CommandePage;
+import com.devoir.microservicecommandes.dto.CommandeStats;
+import com.devoir.microservicecommandes.dto.RollupBucket;
+import com.devoir.microservicecommandes.dto.RollupRebuild;
+import com.devoir.microservicecommandes.export.CommandeExportService;
+import com.devoir.microservicecommandes.export.ExportFormat;
 import com.devoir.microservicecommandes.model.Commande;
 import com.devoir.microservicecommandes.repository.CommandeRepository;
+import com.devoir.microservicecommandes.service.CommandeBatchService;
+import com.devoir.microservicecommandes.service.CommandeCreationService;
+import com.devoir.microservicecommandes.service.CommandeEnrichmentService;
+import com.devoir.microservicecommandes.service.CommandeHistoryService;
+import com.devoir.microservicecommandes.service.CommandeRollupService;
+import com.devoir.microservicecommandes.service.CommandeService;
+import com.devoir.microservicecommandes.service.CommandeStatsService;
+import com.devoir.microservicecommandes.service.CommandeStreamService;
+import com.devoir.microservicecommandes.service.ConditionalWrite;
+import com.devoir.microservicecommandes.service.IdempotencyStore;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -11,12 +30,23 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.circuitbreaker.ReactiveCircuitBreakerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
 
 
 import java.time.LocalDate;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -26,11 +56,32 @@ import java.util.Map;
 @Tag(name = "Commandes", description = "API de gestion des commandes")
 public class CommandeController {
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String MERGE_PATCH = "application/merge-patch+json";
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String IDEMPOTENCY_REPLAYED = "Idempotency-Replayed";
+    private static final long MAX_SIMULATED_DELAY_MS = 30_000;
+
     private final CommandeRepository service;
+    private final CommandeService commandeService;
+    private final CommandeCreationService creationService;
+    private final CommandeStreamService streamService;
+    private final CommandeExportService exportService;
+    private final CommandeStatsService statsService;
+    private final CommandeRollupService rollupService;
+    private final CommandeHistoryService historyService;
+    private final CommandeBatchService batchService;
+    private final ProduitClient produitClient;
+    private final IdempotencyStore idempotencyStore;
+    private final CommandeEnrichmentService enrichmentService;
+    private final ReactiveCircuitBreakerFactory<?, ?> circuitBreakerFactory;
 
     @Value("${mes-config-ms.commandes-last:10}")
     private int commandesLast;
 
+    @Value("${commandes.pagination.max-limit:1000}")
+    private int maxLimit;
+
     @GetMapping
     @Operation(summary = "Récupérer toutes les commandes", description = "Retourne la liste de toutes les commandes")
     @ApiResponse(responseCode = "200", description = "Liste des commandes récupérée avec succès")
@@ -38,8 +89,154 @@ public class CommandeController {
         return service.findAll(); 
     }
 
+    @GetMapping(params = "expand=produit")
+    @Operation(summary = "Récupérer toutes les commandes avec leur produit", description = "Retourne la liste des commandes enrichie des détails produit, récupérés en une seule requête groupée vers microservice-produit")
+    @ApiResponse(responseCode = "200", description = "Liste des commandes enrichie")
+    public Mono<List<CommandeDetail>> allExpanded() {
+        return enrichmentService.expand(service.findAll());
+    }
+
+    @GetMapping(params = "limit")
+    @Operation(summary = "Récupérer une page de commandes par curseur",
+               description = "Pagination keyset : 'after' = dernier ID reçu. Avec sort=date, le curseur est le couple (afterDate, after).")
+    @ApiResponse(responseCode = "200", description = "Page de commandes récupérée avec succès")
+    public CommandePage<Commande> page(
+            @Parameter(description = "Nombre maximum de commandes à retourner", example = "100") @RequestParam int limit,
+            @Parameter(description = "Dernier ID reçu (exclu)") @RequestParam(required = false) Long after,
+            @Parameter(description = "Dernière date reçue (uniquement avec sort=date)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate afterDate,
+            @Parameter(description = "Ordre de parcours : id ou date", example = "id") @RequestParam(defaultValue = "id") String sort) {
+        return loadPage(limit, after, afterDate, sort);
+    }
+
+    @GetMapping(params = {"limit", "expand=produit"})
+    @Operation(summary = "Récupérer une page de commandes avec leur produit",
+               description = "Comme la pagination par curseur, avec les détails produit joints en mémoire (un seul appel à microservice-produit par page)")
+    @ApiResponse(responseCode = "200", description = "Page de commandes enrichie")
+    public Mono<CommandePage<CommandeDetail>> pageExpanded(
+            @Parameter(description = "Nombre maximum de commandes à retourner", example = "100") @RequestParam int limit,
+            @Parameter(description = "Dernier ID reçu (exclu)") @RequestParam(required = false) Long after,
+            @Parameter(description = "Dernière date reçue (uniquement avec sort=date)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate afterDate,
+            @Parameter(description = "Ordre de parcours : id ou date", example = "id") @RequestParam(defaultValue = "id") String sort) {
+        CommandePage<Commande> page = loadPage(limit, after, afterDate, sort);
+        return enrichmentService.expand(page.getItems())
+                .map(details -> CommandePage.<CommandeDetail>builder()
+                        .items(details)
+                        .hasMore(page.isHasMore())
+                        .nextAfter(page.getNextAfter())
+                        .nextAfterDate(page.getNextAfterDate())
+                        .build());
+    }
+
+    private CommandePage<Commande> loadPage(int limit, Long after, LocalDate afterDate, String sort) {
+        int size = Math.max(1, Math.min(limit, maxLimit));
+        // On lit un élément de plus pour savoir s'il reste une page, sans COUNT(*)
+        Limit fetch = Limit.of(size + 1);
+        boolean byDate = "date".equalsIgnoreCase(sort);
+
+        List<Commande> rows;
+        if (byDate) {
+            rows = afterDate == null
+                    ? service.findAllByOrderByDateCommandeAscIdAsc(fetch)
+                    : service.findPageAfterDate(afterDate, after != null ? after : Long.MIN_VALUE, fetch);
+        } else {
+            rows = service.findByIdGreaterThanOrderByIdAsc(after != null ? after : Long.MIN_VALUE, fetch);
+        }
+
+        boolean hasMore = rows.size() > size;
+        List<Commande> items = hasMore ? rows.subList(0, size) : rows;
+        Commande last = items.isEmpty() ? null : items.get(items.size() - 1);
+        return CommandePage.<Commande>builder()
+                .items(items)
+                .hasMore(hasMore)
+                .nextAfter(hasMore ? last.getId() : null)
+                .nextAfterDate(hasMore && byDate ? last.getDateCommande() : null)
+                .build();
+    }
+
+    @GetMapping(value = "/stream", produces = NDJSON)
+    @Operation(summary = "Exporter toutes les commandes en flux", description = "Retourne les commandes en NDJSON (une par ligne), lues par curseur sans charger la table en mémoire")
+    @ApiResponse(responseCode = "200", description = "Flux NDJSON des commandes")
+    public ResponseEntity<StreamingResponseBody> stream() {
+        StreamingResponseBody body = streamService::writeNdjson;
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Export en masse des commandes",
+               description = "Exporte les commandes en CSV ou en binaire compact, lues par curseur et écrites en flux (mémoire constante). Compressé en gzip si la requête envoie Accept-Encoding: gzip.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Flux d'export des commandes"),
+        @ApiResponse(responseCode = "400", description = "Format inconnu ou période invalide")
+    })
+    public ResponseEntity<StreamingResponseBody> export(
+            @Parameter(description = "Format : csv ou bin", example = "csv") @RequestParam(defaultValue = "csv") String format,
+            @Parameter(description = "Date de début (incluse)", example = "2025-01-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Date de fin (incluse)", example = "2025-12-31")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "Uniquement les commandes de ce produit") @RequestParam(required = false) Long idProduit,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        ExportFormat exportFormat = ExportFormat.fromParameter(format)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Format d'export inconnu : " + format));
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "La date de début doit précéder la date de fin");
+        }
+        boolean gzip = CommandeExportService.acceptsGzip(acceptEncoding);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(exportFormat.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("commandes." + exportFormat.extension()).build().toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        StreamingResponseBody body = out -> exportService.export(exportFormat, from, to, idProduit, gzip, out);
+        return response.body(body);
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "Statistiques des commandes", description = "Retourne les totaux maintenus en mémoire (nombre, montant, quantité, moyenne), avec la répartition par produit et par jour si details=true")
+    @ApiResponse(responseCode = "200", description = "Statistiques des commandes")
+    public CommandeStats stats(
+            @Parameter(description = "Inclure la répartition par produit et par jour") @RequestParam(defaultValue = "false") boolean details) {
+        return statsService.snapshot(details);
+    }
+
+    @GetMapping("/stats/rollup")
+    @Operation(summary = "Totaux des commandes par période ou par produit",
+               description = "Répond depuis les rollups matérialisés (jour, produit), sans parcourir les commandes. groupBy : day, week (semaine commençant le lundi), month ou produit.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Totaux regroupés"),
+        @ApiResponse(responseCode = "400", description = "Regroupement inconnu ou période invalide")
+    })
+    public List<RollupBucket> rollup(
+            @Parameter(description = "Date de début (incluse)", example = "2025-01-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Date de fin (incluse)", example = "2025-12-31")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "Regroupement : day, week, month ou produit", example = "day") @RequestParam(defaultValue = "day") String groupBy) {
+        CommandeRollupService.GroupBy grouping = CommandeRollupService.GroupBy.fromParameter(groupBy)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Regroupement inconnu : " + groupBy));
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "La date de début doit précéder la date de fin");
+        }
+        return rollupService.query(from, to, grouping);
+    }
+
+    @PostMapping("/stats/rollup/rebuild")
+    @Operation(summary = "Reconstruire les rollups",
+               description = "Recalcule tous les rollups depuis la table et l'archive, en parallèle par mois. Les écritures sur les commandes attendent la fin de la reconstruction.")
+    @ApiResponse(responseCode = "200", description = "Rollups reconstruits",
+                 content = @Content(schema = @Schema(implementation = RollupRebuild.class)))
+    public RollupRebuild rebuildRollup() {
+        return rollupService.rebuild();
+    }
+
     @GetMapping("/{id}")
-    @Operation(summary = "Récupérer une commande par ID", description = "Retourne une commande spécifique par son identifiant")
+    @Operation(summary = "Récupérer une commande par ID", description = "Retourne une commande spécifique par son identifiant, y compris une commande archivée (sans ETag : elle n'est plus modifiable)")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Commande trouvée", 
                      content = @Content(schema = @Schema(implementation = Commande.class))),
@@ -47,54 +244,113 @@ public class CommandeController {
     })
     public ResponseEntity<Commande> get(
             @Parameter(description = "ID de la commande", required = true) @PathVariable Long id) {
-        return service.findById(id).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+        return historyService.findById(id)
+                .map(c -> c.getVersion() != null
+                        ? ResponseEntity.ok().eTag(ETags.of(c.getVersion())).body(c)
+                        : ResponseEntity.ok().body(c))
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @PostMapping
-    @Operation(summary = "Créer une nouvelle commande", description = "Crée une nouvelle commande. L'ID sera généré automatiquement. La date sera automatiquement définie si non fournie.")
+    @Operation(summary = "Créer une nouvelle commande", description = "Crée une nouvelle commande. L'ID sera généré automatiquement. La date sera automatiquement définie si non fournie. Le stock du produit associé est réservé.")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Commande créée avec succès",
-                     content = @Content(schema = @Schema(implementation = Commande.class)))
+                     content = @Content(schema = @Schema(implementation = Commande.class))),
+        @ApiResponse(responseCode = "409", description = "Stock insuffisant pour le produit associé"),
+        @ApiResponse(responseCode = "422", description = "Idempotency-Key déjà utilisée avec un autre corps de requête")
+    })
+    public ResponseEntity<Commande> create(
+            @Parameter(description = "Clé d'idempotence : une requête répétée avec la même clé renvoie la commande déjà créée")
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @RequestBody Commande c) {
+        IdempotencyStore.Result<Commande> result = idempotencyStore.execute("POST /commandes", idempotencyKey, c,
+                () -> creationService.create(c));
+        return ResponseEntity.ok()
+                .eTag(ETags.of(result.value().getVersion()))
+                .header(IDEMPOTENCY_REPLAYED, String.valueOf(result.replayed()))
+                .body(result.value());
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Créer des commandes par lot", description = "Insère plusieurs milliers de commandes dans une seule transaction avec des INSERT JDBC groupés. Chaque élément est validé individuellement ; le stock de chaque élément est réservé ; les éléments invalides ou sans stock sont ignorés et signalés.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Lot traité",
+                     content = @Content(schema = @Schema(implementation = BatchResult.class)))
     })
-    public Commande create(@RequestBody Commande c) {
-        // Ignorer l'ID s'il est fourni (sera généré automatiquement)
-        c.setId(null);
-        if (c.getDateCommande() == null) c.setDateCommande(LocalDate.now());
-        return service.save(c);
+    public BatchResult createBatch(@RequestBody List<Commande> commandes) {
+        return batchService.insertAll(commandes);
     }
 
     @PutMapping("/{id}")
-    @Operation(summary = "Modifier une commande", description = "Met à jour une commande existante par son ID")
+    @Operation(summary = "Modifier une commande", description = "Remplace les champs d'une commande existante en une seule requête UPDATE. Avec If-Match, la modification n'est appliquée que si la version correspond.")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Commande modifiée avec succès",
                      content = @Content(schema = @Schema(implementation = Commande.class))),
-        @ApiResponse(responseCode = "404", description = "Commande non trouvée")
+        @ApiResponse(responseCode = "404", description = "Commande non trouvée"),
+        @ApiResponse(responseCode = "409", description = "Commande archivée, en lecture seule"),
+        @ApiResponse(responseCode = "412", description = "La commande a été modifiée depuis (If-Match ne correspond plus)")
     })
     public ResponseEntity<Commande> update(
-            @Parameter(description = "ID de la commande", required = true) @PathVariable Long id, 
+            @Parameter(description = "ID de la commande", required = true) @PathVariable Long id,
+            @Parameter(description = "ETag de la version modifiée (verrouillage optimiste)", example = "\"3\"")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody Commande c) {
-        return service.findById(id).map(existing -> {
-            existing.setDescription(c.getDescription());
-            existing.setMontant(c.getMontant());
-            existing.setQuantite(c.getQuantite());
-            existing.setDateCommande(c.getDateCommande());
-            existing.setIdProduit(c.getIdProduit());
-            service.save(existing);
-            return ResponseEntity.ok(existing);
-        }).orElse(ResponseEntity.notFound().build());
+        return toResponse(id, commandeService.update(id, c, ETags.parseIfMatch(ifMatch)));
+    }
+
+    @PatchMapping(value = "/{id}", consumes = MERGE_PATCH)
+    @Operation(summary = "Modifier partiellement une commande", description = "Applique un JSON Merge Patch (RFC 7396) en une seule requête UPDATE : seuls les champs présents sont modifiés, null efface un champ. Avec If-Match, la modification n'est appliquée que si la version correspond.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Commande modifiée avec succès",
+                     content = @Content(schema = @Schema(implementation = Commande.class))),
+        @ApiResponse(responseCode = "400", description = "Champ inconnu ou valeur invalide"),
+        @ApiResponse(responseCode = "404", description = "Commande non trouvée"),
+        @ApiResponse(responseCode = "409", description = "Commande archivée, en lecture seule"),
+        @ApiResponse(responseCode = "412", description = "La commande a été modifiée depuis (If-Match ne correspond plus)")
+    })
+    public ResponseEntity<Commande> patch(
+            @Parameter(description = "ID de la commande", required = true) @PathVariable Long id,
+            @Parameter(description = "ETag de la version modifiée (verrouillage optimiste)", example = "\"3\"")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody Map<String, Object> patch) {
+        try {
+            return toResponse(id, commandeService.patch(id, patch, ETags.parseIfMatch(ifMatch)));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
     }
 
     @DeleteMapping("/{id}")
-    @Operation(summary = "Supprimer une commande", description = "Supprime une commande par son ID")
+    @Operation(summary = "Supprimer une commande", description = "Supprime une commande par son ID en une seule requête DELETE. Avec If-Match, la suppression n'est appliquée que si la version correspond.")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Commande supprimée avec succès"),
-        @ApiResponse(responseCode = "404", description = "Commande non trouvée")
+        @ApiResponse(responseCode = "404", description = "Commande non trouvée"),
+        @ApiResponse(responseCode = "409", description = "Commande archivée, en lecture seule"),
+        @ApiResponse(responseCode = "412", description = "La commande a été modifiée depuis (If-Match ne correspond plus)")
     })
     public ResponseEntity<Void> delete(
-            @Parameter(description = "ID de la commande", required = true) @PathVariable Long id) {
-        if (service.findById(id).isPresent()) { 
-            service.deleteById(id); 
-            return ResponseEntity.ok().build(); 
+            @Parameter(description = "ID de la commande", required = true) @PathVariable Long id,
+            @Parameter(description = "ETag de la version supprimée (verrouillage optimiste)", example = "\"3\"")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return switch (commandeService.delete(id, ETags.parseIfMatch(ifMatch)).resultat()) {
+            case APPLIQUEE -> ResponseEntity.ok().build();
+            case INTROUVABLE -> notFoundUnlessArchived(id);
+            case VERSION_PERIMEE -> ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        };
+    }
+
+    private ResponseEntity<Commande> toResponse(Long id, ConditionalWrite<Commande> write) {
+        return switch (write.resultat()) {
+            case APPLIQUEE -> ResponseEntity.ok().eTag(ETags.of(write.value().getVersion())).body(write.value());
+            case INTROUVABLE -> notFoundUnlessArchived(id);
+            case VERSION_PERIMEE -> ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        };
+    }
+
+    // Absente de la table : 409 si elle a été archivée, pour ne pas la faire passer pour supprimée
+    private <T> ResponseEntity<T> notFoundUnlessArchived(Long id) {
+        if (historyService.isArchived(id)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Commande archivée, en lecture seule");
         }
         return ResponseEntity.notFound().build();
     }
@@ -103,23 +359,51 @@ public class CommandeController {
     @Operation(summary = "Récupérer les commandes récentes", description = "Retourne les commandes des N derniers jours (configurable)")
     @ApiResponse(responseCode = "200", description = "Liste des commandes récentes")
     public List<Commande> recent() {
-        return service.findByDateCommandeAfter(LocalDate.now().minusDays(commandesLast));
+        return historyService.findByDateRange(LocalDate.now().minusDays(commandesLast).plusDays(1), null);
+    }
+
+    @GetMapping("/range")
+    @Operation(summary = "Récupérer les commandes d'une période", description = "Retourne les commandes dont la date est comprise entre 'from' et 'to' (inclus), en fusionnant la table et l'archive des commandes anciennes")
+    @ApiResponse(responseCode = "200", description = "Liste des commandes de la période, triées par date")
+    public List<Commande> range(
+            @Parameter(description = "Date de début (incluse)", example = "2025-01-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Date de fin (incluse)", example = "2025-12-31")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return historyService.findByDateRange(from, to);
     }
 
     @GetMapping("/{id}/produit-info")
     @Operation(summary = "Récupérer les informations du produit associé", description = "Retourne les informations du produit associé à la commande")
     @ApiResponse(responseCode = "200", description = "Informations du produit")
-    public Map<String, Object> produitInfo(
+    public Mono<Map<String, Object>> produitInfo(
             @Parameter(description = "ID de la commande", required = true) @PathVariable Long id) {
-        return Collections.singletonMap("message", "Produit info would be fetched from microservice-produit");
+        Commande commande = historyService.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Commande non trouvée"));
+        if (commande.getIdProduit() == null) {
+            return Mono.just(Collections.singletonMap("message", "Aucun produit associé à cette commande"));
+        }
+
+        Mono<Map<String, Object>> info = produitClient.getProduit(commande.getIdProduit())
+                .map(produit -> {
+                    Map<String, Object> result = new LinkedHashMap<>();
+                    result.put("commandeId", id);
+                    result.put("produit", produit);
+                    return result;
+                })
+                .defaultIfEmpty(Collections.singletonMap("message", "Produit " + commande.getIdProduit() + " introuvable"));
+        return circuitBreakerFactory.create("produitCB").run(info, t -> Mono.just(fallbackProduitInfo(id)));
     }
 
     @GetMapping("/test-timeout")
     @Operation(summary = "Test du Circuit Breaker", description = "Endpoint de test pour vérifier le fonctionnement du Circuit Breaker (simule une lenteur)")
     @ApiResponse(responseCode = "200", description = "Test du timeout")
-    public Map<String, String> testTimeout() throws InterruptedException {
-        System.out.println("⏳ Début de la simulation de lenteur (5 secondes)...");
-        Thread.sleep(5000);
+    public Map<String, String> testTimeout(
+            @Parameter(description = "Durée de la lenteur simulée en millisecondes (30000 au plus)", example = "5000") @RequestParam(defaultValue = "5000") long delayMs) throws InterruptedException {
+        // Bornée : un appel ne doit pas pouvoir immobiliser un thread indéfiniment
+        long delay = Math.max(0, Math.min(delayMs, MAX_SIMULATED_DELAY_MS));
+        System.out.println("⏳ Début de la simulation de lenteur (" + delay + " ms)...");
+        Thread.sleep(delay);
         return Collections.singletonMap("message", "Réponse normale (Si vous voyez ceci, le Circuit Breaker n'a pas marché !)");
     }
 
@@ -0,0 +1,41 @@
+package com.devoir.microservicecommandes.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ETag fort dérivé de la colonne @Version : "3" pour la version 3.
+ * microservice-produit a sa propre variante (ETags de catalogue en plus) : pas de module commun.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(Long version) {
+        return "\"" + (version != null ? version : 0L) + "\"";
+    }
+
+    /**
+     * Versions acceptées par un en-tête If-Match : null si l'en-tête est absent ou vaut "*"
+     * (pas de condition de version), liste vide si aucune valeur ne peut correspondre
+     * (ETag faible ou inconnu : la comparaison forte échoue).
+     */
+    static List<Long> parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        List<Long> versions = new ArrayList<>();
+        for (String tag : ifMatch.split(",")) {
+            String value = tag.trim();
+            if (value.length() > 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                try {
+                    versions.add(Long.parseLong(value.substring(1, value.length() - 1)));
+                } catch (NumberFormatException ignored) {
+                    // ETag qui ne vient pas de ce service : ne correspond à aucune version
+                }
+            }
+        }
+        return versions;
+    }
+}
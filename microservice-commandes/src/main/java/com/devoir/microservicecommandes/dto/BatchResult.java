@@ -0,0 +1,43 @@
+package com.devoir.microservicecommandes.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Résultat d'une insertion par lot : un statut par élément, dans l'ordre de la requête.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+@Schema(description = "Résultat d'une insertion de commandes par lot")
+public class BatchResult {
+
+    @Schema(description = "Nombre de commandes insérées", example = "998")
+    private int acceptees;
+
+    @Schema(description = "Nombre de commandes rejetées par la validation ou la réservation du stock", example = "2")
+    private int rejetees;
+
+    @Schema(description = "Statut de chaque élément, dans l'ordre de la requête")
+    private List<Item> items;
+
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Getter
+    @Setter
+    @Schema(description = "Statut d'un élément du lot")
+    public static class Item {
+        @Schema(description = "Position de l'élément dans la requête", example = "0")
+        private int index;
+
+        @Schema(description = "ID généré si l'élément a été inséré", example = "51")
+        private Long id;
+
+        @Schema(description = "Motif du rejet (validation, stock insuffisant, produit inconnu ou indisponible)")
+        private String erreur;
+    }
+}
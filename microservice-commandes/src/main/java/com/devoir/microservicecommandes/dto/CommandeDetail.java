@@ -0,0 +1,24 @@
+package com.devoir.microservicecommandes.dto;
+
+import com.devoir.microservicecommandes.model.Commande;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+/**
+ * Commande accompagnée des détails de son produit (GET /commandes?expand=produit).
+ * Les champs de la commande sont aplatis au premier niveau du JSON.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Schema(description = "Commande enrichie des détails du produit associé")
+public class CommandeDetail {
+
+    @JsonUnwrapped
+    private Commande commande;
+
+    @Schema(description = "Produit associé, null s'il est introuvable ou si microservice-produit est indisponible")
+    private ProduitDto produit;
+}
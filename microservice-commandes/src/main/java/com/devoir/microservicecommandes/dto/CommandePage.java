@@ -0,0 +1,33 @@
+package com.devoir.microservicecommandes.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Page de commandes obtenue par curseur (keyset pagination).
+ * Le curseur suivant est null lorsque la dernière page est atteinte.
+ * Les éléments sont des {@code Commande}, ou des {@code CommandeDetail} avec expand=produit.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+@Schema(description = "Page de commandes paginée par curseur")
+public class CommandePage<T> {
+
+    @Schema(description = "Commandes de la page courante")
+    private List<T> items;
+
+    @Schema(description = "Valeur à passer dans 'after' pour obtenir la page suivante", example = "42")
+    private Long nextAfter;
+
+    @Schema(description = "Valeur à passer dans 'afterDate' (mode curseur par date)", example = "2025-12-20")
+    private LocalDate nextAfterDate;
+
+    @Schema(description = "Indique s'il reste des commandes après cette page")
+    private boolean hasMore;
+}
@@ -0,0 +1,48 @@
+package com.devoir.microservicecommandes.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Agrégats des commandes maintenus en mémoire par le microservice.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+@Schema(description = "Statistiques agrégées des commandes")
+public class CommandeStats {
+
+    @Schema(description = "Nombre total de commandes", example = "12")
+    private long nombreCommandes;
+
+    @Schema(description = "Somme des montants en DHS", example = "2500.50")
+    private double totalMontant;
+
+    @Schema(description = "Somme des quantités commandées", example = "48")
+    private long totalQuantite;
+
+    @Schema(description = "Montant moyen par commande en DHS", example = "208.37")
+    private double moyenneMontant;
+
+    @Schema(description = "Répartition par identifiant de produit (si details=true)")
+    private Map<Long, Totaux> parProduit;
+
+    @Schema(description = "Répartition par jour de commande (si details=true)")
+    private Map<LocalDate, Totaux> parJour;
+
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Getter
+    @Setter
+    @Schema(description = "Totaux d'un sous-ensemble de commandes")
+    public static class Totaux {
+        private long nombreCommandes;
+        private double totalMontant;
+        private long totalQuantite;
+    }
+}
@@ -0,0 +1,20 @@
+package com.devoir.microservicecommandes.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+/**
+ * Produit tel que renvoyé par microservice-produit.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+@Schema(description = "Produit récupéré depuis microservice-produit")
+public class ProduitDto {
+    private Long id;
+    private String description;
+    private Integer quantite;
+    private Double montant;
+}
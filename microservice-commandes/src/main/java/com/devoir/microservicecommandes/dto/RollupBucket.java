@@ -0,0 +1,35 @@
+package com.devoir.microservicecommandes.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * Totaux d'une période (jour, semaine, mois) ou d'un produit, lus dans les rollups.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Totaux des commandes d'une période ou d'un produit")
+public class RollupBucket {
+
+    @Schema(description = "Premier jour de la période (groupBy=day|week|month ; la semaine commence le lundi)", example = "2025-01-06")
+    private LocalDate periode;
+
+    @Schema(description = "Identifiant du produit (groupBy=produit ; absent pour les commandes sans produit)", example = "1")
+    private Long idProduit;
+
+    @Schema(description = "Nombre de commandes", example = "12")
+    private long nombreCommandes;
+
+    @Schema(description = "Somme des montants en DHS", example = "2500.50")
+    private double totalMontant;
+
+    @Schema(description = "Somme des quantités commandées", example = "48")
+    private long totalQuantite;
+}
@@ -0,0 +1,25 @@
+package com.devoir.microservicecommandes.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+/**
+ * Compte rendu d'une reconstruction complète des rollups.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+@Schema(description = "Résultat de la reconstruction des rollups")
+public class RollupRebuild {
+
+    @Schema(description = "Nombre de partitions mensuelles recalculées", example = "24")
+    private int partitions;
+
+    @Schema(description = "Nombre de lignes (jour, produit) écrites", example = "3650")
+    private int lignes;
+
+    @Schema(description = "Durée de la reconstruction en millisecondes", example = "420")
+    private long dureeMs;
+}
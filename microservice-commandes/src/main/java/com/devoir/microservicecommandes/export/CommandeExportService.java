@@ -0,0 +1,172 @@
+package com.devoir.microservicecommandes.export;
+
+import com.devoir.microservicecommandes.archive.ColumnWriter;
+import com.devoir.microservicecommandes.model.Commande;
+import com.devoir.microservicecommandes.repository.CommandeRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Export en masse des commandes (CSV ou binaire compact), lu par curseur JDBC et écrit
+ * directement dans la réponse, compressé à la volée si le client accepte gzip.
+ *
+ * Format binaire : "CMDX", version, puis pour chaque ligne un octet 1 suivi de l'écart
+ * d'ID (varint zigzag), description, quantité, date (jour epoch), montant et idProduit
+ * (nullables, codés comme les colonnes d'archive, cf. {@link ColumnWriter}). Un octet 0 et
+ * le nombre de lignes terminent le flux, ce qui permet de détecter un export tronqué.
+ */
+@Service
+public class CommandeExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] MAGIC = {'C', 'M', 'D', 'X'};
+    private static final int VERSION = 1;
+    private static final String CSV_HEADER = "id,description,quantite,dateCommande,montant,idProduit\n";
+
+    private final CommandeRepository repository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    public CommandeExportService(CommandeRepository repository, EntityManager entityManager,
+                                 PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Écrit les commandes filtrées (bornes incluses, filtres null ignorés) triées par ID.
+     * Chaque entité est détachée après écriture : la mémoire reste constante.
+     */
+    public void export(ExportFormat format, LocalDate from, LocalDate to, Long idProduit,
+                       boolean gzip, OutputStream out) {
+        transactionTemplate.execute(status -> {
+            try (Stream<Commande> commandes = repository.streamFiltered(from, to, idProduit)) {
+                // Compression rapide : l'export doit être limité par le réseau, pas par le CPU
+                GZIPOutputStream compressed = gzip ? fastGzip(out) : null;
+                OutputStream target = compressed != null ? compressed : out;
+                if (format == ExportFormat.CSV) {
+                    writeCsv(commandes, target);
+                } else {
+                    writeBinary(commandes, target);
+                }
+                if (compressed != null) {
+                    // finish() et non close() : le flux de la réponse reste géré par Spring
+                    compressed.finish();
+                }
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        });
+    }
+
+    private void writeCsv(Stream<Commande> commandes, OutputStream target) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), BUFFER_SIZE);
+        w.write(CSV_HEADER);
+        for (Commande c : (Iterable<Commande>) commandes::iterator) {
+            w.write(String.valueOf(c.getId()));
+            w.write(',');
+            writeCsvText(w, c.getDescription());
+            w.write(',');
+            writeCsvValue(w, c.getQuantite());
+            w.write(',');
+            writeCsvValue(w, c.getDateCommande());
+            w.write(',');
+            writeCsvValue(w, c.getMontant());
+            w.write(',');
+            writeCsvValue(w, c.getIdProduit());
+            w.write('\n');
+            entityManager.detach(c);
+        }
+        w.flush();
+    }
+
+    private void writeBinary(Stream<Commande> commandes, OutputStream target) throws IOException {
+        BufferedOutputStream buffered = new BufferedOutputStream(target, BUFFER_SIZE);
+        ColumnWriter w = new ColumnWriter(buffered);
+        w.writeBytes(MAGIC);
+        w.writeByte(VERSION);
+        long previousId = 0;
+        long rows = 0;
+        for (Commande c : (Iterable<Commande>) commandes::iterator) {
+            w.writeByte(1);
+            w.writeVarLong(c.getId() - previousId);
+            previousId = c.getId();
+            w.writeNullableString(c.getDescription());
+            w.writeNullableLong(c.getQuantite() == null ? null : c.getQuantite().longValue());
+            w.writeNullableLong(c.getDateCommande() == null ? null : c.getDateCommande().toEpochDay());
+            w.writeNullableDouble(c.getMontant());
+            w.writeNullableLong(c.getIdProduit());
+            entityManager.detach(c);
+            rows++;
+        }
+        w.writeByte(0);
+        w.writeVarLong(rows);
+        buffered.flush();
+    }
+
+    private static void writeCsvValue(Writer w, Object value) throws IOException {
+        if (value != null) {
+            w.write(value.toString());
+        }
+    }
+
+    // Guillemets uniquement si nécessaire (RFC 4180)
+    private static void writeCsvText(Writer w, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char ch = value.charAt(i);
+            quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+        }
+        if (!quote) {
+            w.write(value);
+            return;
+        }
+        w.write('"');
+        w.write(value.replace("\"", "\"\""));
+        w.write('"');
+    }
+
+    private static GZIPOutputStream fastGzip(OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, BUFFER_SIZE) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        };
+    }
+
+    // Accept-Encoding: gzip (ou gzip;q>0)
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,39 @@
+package com.devoir.microservicecommandes.export;
+
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Formats disponibles pour l'export en masse (paramètre {@code format} de GET /commandes/export).
+ */
+public enum ExportFormat {
+
+    CSV("csv", new MediaType("text", "csv", StandardCharsets.UTF_8)),
+    BINARY("bin", MediaType.APPLICATION_OCTET_STREAM);
+
+    private final String extension;
+    private final MediaType mediaType;
+
+    ExportFormat(String extension, MediaType mediaType) {
+        this.extension = extension;
+        this.mediaType = mediaType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    // Accepte le nom du format ou son extension, sans tenir compte de la casse
+    public static Optional<ExportFormat> fromParameter(String value) {
+        return Arrays.stream(values())
+                .filter(f -> f.name().equalsIgnoreCase(value) || f.extension.equalsIgnoreCase(value))
+                .findFirst();
+    }
+}
@@ -1,24 +1,62 @@
 package com.devoir.microservicecommandes.health;
 
-import com.devoir.microservicecommandes.repository.CommandeRepository;
+import com.devoir.microservicecommandes.service.CommandeStatsService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Instant;
+
+/**
+ * Indicateur de santé peu coûteux : le nombre de commandes vient du compteur maintenu
+ * en mémoire par CommandeStatsService, et la disponibilité de la base est vérifiée en
+ * arrière-plan (Connection.isValid) à intervalle configurable. Une sonde ne fait donc
+ * aucune requête SQL.
+ */
 @Component
 @RequiredArgsConstructor
+@Slf4j
 public class CommandeHealthIndicator implements HealthIndicator {
 
-    private final CommandeRepository service;
+    private final CommandeStatsService statsService;
+    private final DataSource dataSource;
+
+    @Value("${commandes.health.db-validation-timeout-seconds:1}")
+    private int validationTimeoutSeconds;
+
+    private volatile boolean databaseUp = true;
+    private volatile Instant lastCheck;
 
     @Override
     public Health health() {
-        long count = service.count();
+        long count = statsService.count();
+        if (!databaseUp) {
+            return Health.down().withDetail("commandes", count).withDetail("database", "unreachable")
+                    .withDetail("lastCheck", String.valueOf(lastCheck)).build();
+        }
         if (count > 0) {
             return Health.up().withDetail("commandes", count).build();
         } else {
             return Health.down().withDetail("commandes", count).withDetail("reason", "no commandes found").build();
         }
     }
+
+    @Scheduled(fixedDelayString = "${commandes.health.refresh-interval:PT10S}")
+    public void checkDatabase() {
+        boolean valid;
+        try (Connection connection = dataSource.getConnection()) {
+            valid = connection.isValid(validationTimeoutSeconds);
+        } catch (Exception e) {
+            log.warn("Base de données indisponible: {}", e.getMessage());
+            valid = false;
+        }
+        databaseUp = valid;
+        lastCheck = Instant.now();
+    }
 }
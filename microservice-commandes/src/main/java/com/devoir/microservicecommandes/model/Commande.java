@@ -15,7 +15,9 @@ import java.time.LocalDate;
 @Schema(description = "Entité représentant une commande")
 public class Commande {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Séquence avec allocation par blocs (pooled) : Hibernate peut regrouper les INSERT en lots JDBC
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "commande_seq")
+    @SequenceGenerator(name = "commande_seq", sequenceName = "commande_seq", allocationSize = 50)
     @Schema(description = "Identifiant unique de la commande (généré automatiquement, ne pas fournir lors de la création)", example = "1", accessMode = Schema.AccessMode.READ_ONLY)
     private Long id;
     
@@ -33,4 +35,8 @@ public class Commande {
     
     @Schema(description = "Identifiant du produit associé", example = "1")
     private Long idProduit; // version 2
+
+    @Version
+    @Schema(description = "Version pour le verrouillage optimiste (gérée par le serveur, renvoyée dans l'en-tête ETag)", accessMode = Schema.AccessMode.READ_ONLY)
+    private Long version;
 }
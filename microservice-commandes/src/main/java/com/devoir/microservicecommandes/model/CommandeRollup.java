@@ -0,0 +1,54 @@
+package com.devoir.microservicecommandes.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Agrégat matérialisé des commandes d'un jour pour un produit, maintenu de manière
+ * incrémentale par CommandeRollupService dans la transaction de chaque écriture.
+ */
+@Entity
+@Table(name = "commande_rollup")
+@IdClass(CommandeRollup.Key.class)
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+@Schema(description = "Totaux des commandes d'un jour pour un produit")
+public class CommandeRollup {
+
+    // Les IDs de produit commencent à 1 : 0 regroupe les commandes sans produit associé
+    public static final long SANS_PRODUIT = 0L;
+
+    @Id
+    @Column(name = "jour")
+    private LocalDate jour;
+
+    @Id
+    @Column(name = "id_produit")
+    private Long idProduit;
+
+    @Column(name = "nombre", nullable = false)
+    private long nombre;
+
+    @Column(name = "montant", nullable = false)
+    private double montant;
+
+    @Column(name = "quantite", nullable = false)
+    private long quantite;
+
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    @Getter
+    @Setter
+    public static class Key implements Serializable {
+        private LocalDate jour;
+        private Long idProduit;
+    }
+}
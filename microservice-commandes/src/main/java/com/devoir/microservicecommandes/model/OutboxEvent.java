@@ -0,0 +1,56 @@
+package com.devoir.microservicecommandes.model;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Événement de changement d'une commande, écrit dans la même transaction que la commande
+ * (transactional outbox) puis publié par OutboxRelay.
+ */
+@Entity
+@Table(name = "outbox_event", indexes = {
+    @Index(name = "idx_outbox_published", columnList = "published, id"),
+    @Index(name = "idx_outbox_position", columnList = "position")
+})
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+@Schema(description = "Événement de changement d'une commande")
+public class OutboxEvent {
+
+    public static final String CREATED = "CREATED";
+    public static final String UPDATED = "UPDATED";
+    public static final String DELETED = "DELETED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_seq")
+    @SequenceGenerator(name = "outbox_seq", sequenceName = "outbox_seq", allocationSize = 50)
+    @Schema(hidden = true)
+    private Long id;
+
+    @Schema(description = "Offset de l'événement dans le flux, attribué à la publication (à passer dans 'since')", example = "42")
+    private Long position;
+
+    @Schema(description = "Type de changement : CREATED, UPDATED ou DELETED", example = "CREATED")
+    private String type;
+
+    @Schema(description = "ID de la commande concernée", example = "1")
+    private Long commandeId;
+
+    @Schema(description = "Date de l'écriture")
+    private Instant occurredAt;
+
+    @Lob
+    @JsonRawValue
+    @Schema(description = "État de la commande après le changement (JSON)")
+    private String payload;
+
+    @Schema(hidden = true)
+    private boolean published;
+}
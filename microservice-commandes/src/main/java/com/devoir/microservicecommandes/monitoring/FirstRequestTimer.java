@@ -0,0 +1,68 @@
+package com.devoir.microservicecommandes.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Mesure la latence de la première requête applicative après le démarrage (hors /actuator),
+ * celle qui paie les initialisations paresseuses et les caches froids : timer
+ * http.server.first.request et une ligne de journal. À comparer avec application.ready.time.
+ * Filtre identique dans microservice-produit, dupliqué faute de module partagé entre services.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class FirstRequestTimer extends OncePerRequestFilter {
+
+    private final Timer timer;
+    private final AtomicBoolean measured = new AtomicBoolean();
+    private volatile long readyAt;
+
+    public FirstRequestTimer(MeterRegistry meterRegistry) {
+        this.timer = Timer.builder("http.server.first.request").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        readyAt = System.nanoTime();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return measured.get() || request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!measured.compareAndSet(false, true)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            timer.record(elapsed, TimeUnit.NANOSECONDS);
+            log.info("Première requête {} {} servie en {} ms, {} ms après la disponibilité du service",
+                    request.getMethod(), request.getRequestURI(), elapsed / 1_000_000,
+                    readyAt > 0 ? (start - readyAt) / 1_000_000 : -1);
+        }
+    }
+}
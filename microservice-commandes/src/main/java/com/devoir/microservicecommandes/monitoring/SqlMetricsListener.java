@@ -0,0 +1,113 @@
+package com.devoir.microservicecommandes.monitoring;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Mesure chaque requête JDBC dans un histogramme Micrometer par forme de requête
+ * (SQL normalisé, littéraux remplacés par '?'), et ne journalise que :
+ * - les requêtes au-dessus du seuil (logger sql.slow, WARN),
+ * - un échantillon aléatoire (logger sql.sample, INFO),
+ * - toutes les requêtes si le logger sql.trace est en DEBUG (modifiable via /actuator/loggers).
+ *
+ * La normalisation (expressions régulières) n'est faite qu'une fois par texte SQL : le timer
+ * est ensuite retrouvé par le SQL brut dans un cache borné. Au-delà de maxShapes formes, les
+ * nouvelles sont comptées sous la forme "other".
+ */
+public class SqlMetricsListener implements QueryExecutionListener {
+
+    private static final Logger SLOW = LoggerFactory.getLogger("sql.slow");
+    private static final Logger SAMPLE = LoggerFactory.getLogger("sql.sample");
+    private static final Logger TRACE = LoggerFactory.getLogger("sql.trace");
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final String OTHER_SHAPE = "other";
+    // Textes SQL distincts gardés avec leur timer (les requêtes préparées sont en nombre fini)
+    private static final int MAX_CACHED_STATEMENTS = 10_000;
+
+    private final MeterRegistry registry;
+    private final long slowThresholdMs;
+    private final double sampleRate;
+    private final int maxShapes;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final AtomicInteger shapeCount = new AtomicInteger();
+    private final Timer otherTimer;
+    private final Cache<String, Timer> timersBySql = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_STATEMENTS)
+            .build();
+
+    public SqlMetricsListener(MeterRegistry registry, Duration slowThreshold, double sampleRate, int maxShapes) {
+        this.registry = registry;
+        this.slowThresholdMs = slowThreshold.toMillis();
+        this.sampleRate = sampleRate;
+        this.maxShapes = maxShapes;
+        this.otherTimer = register(OTHER_SHAPE);
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long elapsedMs = execInfo.getElapsedTime();
+        for (QueryInfo query : queryInfoList) {
+            timersBySql.get(query.getQuery(), sql -> timerFor(shapeOf(sql))).record(elapsedMs, TimeUnit.MILLISECONDS);
+
+            if (elapsedMs >= slowThresholdMs) {
+                SLOW.warn("{} ms (batch={}, success={}) : {}", elapsedMs, execInfo.isBatch(), execInfo.isSuccess(), query.getQuery());
+            } else if (TRACE.isDebugEnabled()) {
+                TRACE.debug("{} ms : {}", elapsedMs, query.getQuery());
+            } else if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+                SAMPLE.info("{} ms : {}", elapsedMs, query.getQuery());
+            }
+        }
+    }
+
+    private Timer timerFor(String shape) {
+        // Nombre de formes borné pour ne pas faire exploser la cardinalité des métriques :
+        // la place est prise dans le calcul atomique de l'entrée, jamais au-delà de maxShapes
+        Timer timer = timers.computeIfAbsent(shape, k -> {
+            if (shapeCount.incrementAndGet() > maxShapes) {
+                shapeCount.decrementAndGet();
+                return null;
+            }
+            return register(k);
+        });
+        return timer != null ? timer : otherTimer;
+    }
+
+    private Timer register(String shape) {
+        return Timer.builder("commandes.sql.query")
+                .description("Durée des requêtes SQL par forme de requête")
+                .tag("shape", shape)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    static String shapeOf(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("(?...)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+}
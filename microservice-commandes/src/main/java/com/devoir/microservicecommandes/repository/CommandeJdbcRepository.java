@@ -0,0 +1,93 @@
+package com.devoir.microservicecommandes.repository;
+
+import com.devoir.microservicecommandes.model.Commande;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Écritures conditionnelles en une seule requête, sans charger l'entité : UPDATE/DELETE
+ * ... WHERE id = ? [AND version IN (...)] encapsulé dans OLD TABLE (H2), qui renvoie la
+ * ligne telle qu'elle était avant modification (aucune ligne = introuvable ou version périmée).
+ */
+@Repository
+@RequiredArgsConstructor
+public class CommandeJdbcRepository {
+
+    // Champs modifiables : nom JSON -> (colonne, accesseur)
+    public static final Map<String, Column> COLUMNS = Map.of(
+            "description", new Column("description", Commande::getDescription),
+            "quantite", new Column("quantite", Commande::getQuantite),
+            "dateCommande", new Column("date_commande", Commande::getDateCommande),
+            "montant", new Column("montant", Commande::getMontant),
+            "idProduit", new Column("id_produit", Commande::getIdProduit));
+
+    private static final String SELECTED = "select id, description, quantite, date_commande, montant, id_produit, version";
+
+    private static final RowMapper<Commande> ROW_MAPPER = (rs, i) -> Commande.builder()
+            .id(rs.getLong("id"))
+            .description(rs.getString("description"))
+            .quantite(rs.getObject("quantite", Integer.class))
+            .dateCommande(rs.getObject("date_commande", LocalDate.class))
+            .montant(rs.getObject("montant", Double.class))
+            .idProduit(rs.getObject("id_produit", Long.class))
+            .version(rs.getObject("version", Long.class))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Modifie les champs listés avec les valeurs de {@code values} et incrémente la version.
+     * {@code versions} null = sans condition de version.
+     */
+    public Optional<Commande> updateReturningPrevious(Long id, Commande values, Collection<String> fields,
+                                                      Collection<Long> versions) {
+        StringBuilder sql = new StringBuilder(SELECTED).append(" from old table (update commande set ");
+        List<Object> args = new ArrayList<>();
+        for (String field : fields) {
+            Column column = COLUMNS.get(field);
+            sql.append(column.name()).append(" = ?, ");
+            args.add(column.getter().apply(values));
+        }
+        sql.append("version = coalesce(version, 0) + 1 where id = ?");
+        args.add(id);
+        appendVersionCondition(sql, args, versions);
+        sql.append(')');
+        return jdbcTemplate.query(sql.toString(), ROW_MAPPER, args.toArray()).stream().findFirst();
+    }
+
+    public Optional<Commande> deleteReturningPrevious(Long id, Collection<Long> versions) {
+        StringBuilder sql = new StringBuilder(SELECTED).append(" from old table (delete from commande where id = ?");
+        List<Object> args = new ArrayList<>();
+        args.add(id);
+        appendVersionCondition(sql, args, versions);
+        sql.append(')');
+        return jdbcTemplate.query(sql.toString(), ROW_MAPPER, args.toArray()).stream().findFirst();
+    }
+
+    private static void appendVersionCondition(StringBuilder sql, List<Object> args, Collection<Long> versions) {
+        if (versions == null) {
+            return;
+        }
+        sql.append(" and coalesce(version, 0) in (");
+        String separator = "";
+        for (Long version : versions) {
+            sql.append(separator).append('?');
+            args.add(version);
+            separator = ", ";
+        }
+        sql.append(')');
+    }
+
+    public record Column(String name, Function<Commande, Object> getter) {
+    }
+}
@@ -1,13 +1,96 @@
 package com.devoir.microservicecommandes.repository;
 
 import com.devoir.microservicecommandes.model.Commande;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface CommandeRepository extends JpaRepository<Commande, Long> {
+
+    // Taille des lots lus par le curseur JDBC en mode streaming
+    String STREAM_FETCH_SIZE = "500";
+
     List<Commande> findByDateCommandeAfter(LocalDate date);
+
+    // Pagination par curseur (keyset) sur l'ID : "WHERE id > ? ORDER BY id LIMIT ?"
+    List<Commande> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+
+    // Pagination par curseur sur (dateCommande, id) pour parcourir les commandes chronologiquement
+    @Query("select c from Commande c " +
+           "where c.dateCommande > :afterDate or (c.dateCommande = :afterDate and c.id > :afterId) " +
+           "order by c.dateCommande asc, c.id asc")
+    List<Commande> findPageAfterDate(@Param("afterDate") LocalDate afterDate,
+                                     @Param("afterId") Long afterId,
+                                     Limit limit);
+
+    List<Commande> findAllByOrderByDateCommandeAscIdAsc(Limit limit);
+
+    // Plage de dates inclusive
+    List<Commande> findByDateCommandeBetweenOrderByDateCommandeAscIdAsc(LocalDate from, LocalDate to);
+
+    // Candidats à l'archivage, verrouillés jusqu'à la fin de la transaction qui les archive
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Commande c where c.dateCommande < :cutoff order by c.id asc")
+    List<Commande> lockArchivable(@Param("cutoff") LocalDate cutoff, Limit limit);
+
+    // Agrégats calculés par la base, utilisés pour la réconciliation des statistiques en mémoire
+    @Query("select count(c), coalesce(sum(c.montant), 0), coalesce(sum(c.quantite), 0) from Commande c")
+    List<Object[]> aggregateTotals();
+
+    @Query("select c.idProduit, count(c), coalesce(sum(c.montant), 0), coalesce(sum(c.quantite), 0) " +
+           "from Commande c where c.idProduit is not null group by c.idProduit")
+    List<Object[]> aggregateByProduit();
+
+    @Query("select c.dateCommande, count(c), coalesce(sum(c.montant), 0), coalesce(sum(c.quantite), 0) " +
+           "from Commande c where c.dateCommande is not null group by c.dateCommande")
+    List<Object[]> aggregateByJour();
+
+    // Commandes de la table datées au plus tard de la fin de l'archive, à confronter à celle-ci
+    @Query("select c.id from Commande c where c.dateCommande <= :to")
+    List<Long> findIdsUpTo(@Param("to") LocalDate to);
+
+    // Bornes des dates, pour découper la reconstruction des rollups en partitions
+    @Query("select min(c.dateCommande), max(c.dateCommande) from Commande c")
+    List<Object[]> dateBounds();
+
+    // Lignes (jour, idProduit, nombre, montant, quantité) d'une partition de dates
+    @Query("select c.dateCommande, c.idProduit, count(c), coalesce(sum(c.montant), 0), coalesce(sum(c.quantite), 0) " +
+           "from Commande c where c.dateCommande between :from and :to group by c.dateCommande, c.idProduit")
+    List<Object[]> aggregateByJourAndProduit(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Lecture en flux : doit être consommé dans une transaction et fermé après usage
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("select c from Commande c order by c.id asc")
+    Stream<Commande> streamAll();
+
+    // Export filtré en flux : un filtre null est ignoré
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("select c from Commande c " +
+           "where (:from is null or c.dateCommande >= :from) " +
+           "and (:to is null or c.dateCommande <= :to) " +
+           "and (:idProduit is null or c.idProduit = :idProduit) " +
+           "order by c.id asc")
+    Stream<Commande> streamFiltered(@Param("from") LocalDate from,
+                                    @Param("to") LocalDate to,
+                                    @Param("idProduit") Long idProduit);
 }
@@ -0,0 +1,24 @@
+package com.devoir.microservicecommandes.repository;
+
+import com.devoir.microservicecommandes.model.CommandeRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface CommandeRollupRepository extends JpaRepository<CommandeRollup, CommandeRollup.Key> {
+
+    // Lignes (jour, nombre, montant, quantité) : une ligne par jour ayant au moins une commande
+    @Query("select r.jour, sum(r.nombre), sum(r.montant), sum(r.quantite) from CommandeRollup r " +
+           "where r.jour between :from and :to group by r.jour having sum(r.nombre) > 0 order by r.jour")
+    List<Object[]> sumByJour(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Lignes (idProduit, nombre, montant, quantité)
+    @Query("select r.idProduit, sum(r.nombre), sum(r.montant), sum(r.quantite) from CommandeRollup r " +
+           "where r.jour between :from and :to group by r.idProduit having sum(r.nombre) > 0 order by r.idProduit")
+    List<Object[]> sumByProduit(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
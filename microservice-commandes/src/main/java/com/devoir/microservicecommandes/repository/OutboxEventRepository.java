@@ -0,0 +1,30 @@
+package com.devoir.microservicecommandes.repository;
+
+import com.devoir.microservicecommandes.model.OutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    List<OutboxEvent> findByPublishedFalseOrderByIdAsc(Limit limit);
+
+    List<OutboxEvent> findByPositionGreaterThanOrderByPositionAsc(Long since, Limit limit);
+
+    @Query("select coalesce(max(e.position), 0) from OutboxEvent e")
+    long maxPosition();
+
+    // Purge des événements publiés : le dernier est toujours gardé, le relais repart de sa position au redémarrage
+    @Modifying
+    @Transactional
+    @Query("delete from OutboxEvent e where e.published = true and e.occurredAt < :cutoff and e.position < :maxPosition")
+    int deletePublishedBefore(@Param("cutoff") Instant cutoff, @Param("maxPosition") long maxPosition);
+}
@@ -0,0 +1,39 @@
+package com.devoir.microservicecommandes.service;
+
+import com.devoir.microservicecommandes.model.OutboxEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Broker en mémoire qui tient lieu de bus de messages : OutboxRelay y publie les
+ * événements par lots, et les abonnés (SSE, long-poll) les reçoivent dans l'ordre des positions.
+ */
+@Component
+@Slf4j
+public class ChangeBroker {
+
+    private final List<Consumer<List<OutboxEvent>>> subscribers = new CopyOnWriteArrayList<>();
+
+    public void publish(List<OutboxEvent> events) {
+        for (Consumer<List<OutboxEvent>> subscriber : subscribers) {
+            try {
+                subscriber.accept(events);
+            } catch (RuntimeException e) {
+                log.warn("Abonné aux changements en erreur, désinscription: {}", e.getMessage());
+                subscribers.remove(subscriber);
+            }
+        }
+    }
+
+    public void subscribe(Consumer<List<OutboxEvent>> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(Consumer<List<OutboxEvent>> subscriber) {
+        subscribers.remove(subscriber);
+    }
+}
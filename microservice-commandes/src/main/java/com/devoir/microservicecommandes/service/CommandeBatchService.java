@@ -0,0 +1,134 @@
+package com.devoir.microservicecommandes.service;
+
+import com.devoir.microservicecommandes.dto.BatchResult;
+import com.devoir.microservicecommandes.model.Commande;
+import com.devoir.microservicecommandes.model.OutboxEvent;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Insertion de commandes par lot dans une seule transaction.
+ * Les IDs venant d'une séquence pooled, Hibernate envoie les INSERT par paquets
+ * de hibernate.jdbc.batch_size ; le contexte de persistance est vidé à chaque paquet.
+ *
+ * Comme pour la création unitaire, le stock de chaque élément valide est réservé avant la
+ * transaction ({@link StockReservationService}, commandes.stock.batch-concurrency appels
+ * simultanés) ; un élément dont la réservation est refusée est rejeté, et toutes les
+ * réservations sont rendues si la transaction échoue.
+ */
+@Service
+public class CommandeBatchService {
+
+    private final EntityManager entityManager;
+    private final CommandeStatsService statsService;
+    private final OutboxService outboxService;
+    private final CommandeRollupService rollupService;
+    private final StockReservationService stockReservationService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int reservationConcurrency;
+
+    public CommandeBatchService(EntityManager entityManager, CommandeStatsService statsService, OutboxService outboxService,
+                                CommandeRollupService rollupService, StockReservationService stockReservationService,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize,
+                                @Value("${commandes.stock.batch-concurrency:16}") int reservationConcurrency) {
+        this.entityManager = entityManager;
+        this.statsService = statsService;
+        this.outboxService = outboxService;
+        this.rollupService = rollupService;
+        this.stockReservationService = stockReservationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.reservationConcurrency = reservationConcurrency;
+    }
+
+    public BatchResult insertAll(List<Commande> commandes) {
+        String[] erreurs = new String[commandes.size()];
+        for (int i = 0; i < commandes.size(); i++) {
+            erreurs[i] = validate(commandes.get(i));
+        }
+        Map<Integer, StockReservationService.Reservation> reservations = reserve(commandes, erreurs);
+        try {
+            return transactionTemplate.execute(status -> insert(commandes, erreurs));
+        } catch (RuntimeException e) {
+            // Compensation : aucune commande du lot n'existe, le stock réservé est rendu
+            reservations.values().forEach(stockReservationService::release);
+            throw e;
+        }
+    }
+
+    // Réservations des éléments valides par position ; un refus devient l'erreur de l'élément
+    private Map<Integer, StockReservationService.Reservation> reserve(List<Commande> commandes, String[] erreurs) {
+        Map<Integer, StockReservationService.Reservation> reservations = Flux.range(0, commandes.size())
+                .filter(i -> erreurs[i] == null)
+                .flatMap(i -> stockReservationService.reserve(commandes.get(i).getIdProduit(), commandes.get(i).getQuantite())
+                        .map(reservation -> Map.entry(i, reservation))
+                        .onErrorResume(ResponseStatusException.class, e -> {
+                            erreurs[i] = e.getReason();
+                            return Mono.empty();
+                        }), reservationConcurrency)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .block();
+        return reservations != null ? reservations : Map.of();
+    }
+
+    private BatchResult insert(List<Commande> commandes, String[] erreurs) {
+        List<BatchResult.Item> items = new ArrayList<>(commandes.size());
+        List<Commande> inserted = new ArrayList<>();
+        int pending = 0;
+
+        for (int i = 0; i < commandes.size(); i++) {
+            Commande c = commandes.get(i);
+            if (erreurs[i] != null) {
+                items.add(new BatchResult.Item(i, null, erreurs[i]));
+                continue;
+            }
+            c.setId(null);
+            c.setVersion(null);
+            if (c.getDateCommande() == null) c.setDateCommande(LocalDate.now());
+            entityManager.persist(c);
+            outboxService.append(OutboxEvent.CREATED, c);
+            // Cumulé par (jour, produit) : une seule mise à jour par clé pour tout le lot
+            rollupService.apply(c, 1);
+            inserted.add(c);
+            items.add(new BatchResult.Item(i, c.getId(), null));
+
+            if (++pending == batchSize) {
+                entityManager.flush();
+                entityManager.clear();
+                pending = 0;
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        // Les statistiques ne sont mises à jour qu'une fois le lot validé en base
+        statsService.onCreated(inserted);
+        return BatchResult.builder()
+                .acceptees(inserted.size())
+                .rejetees(commandes.size() - inserted.size())
+                .items(items)
+                .build();
+    }
+
+    // Mêmes règles que le formulaire de client-ui
+    static String validate(Commande c) {
+        if (c == null) return "La commande est vide.";
+        if (c.getDescription() == null || c.getDescription().trim().isEmpty()) return "La description est obligatoire.";
+        if (c.getMontant() == null || c.getMontant() <= 0) return "Le montant doit être supérieur à 0.";
+        if (c.getQuantite() == null || c.getQuantite() <= 0) return "La quantité doit être supérieure à 0.";
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package com.devoir.microservicecommandes.service;
+
+import com.devoir.microservicecommandes.model.Commande;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Création d'une commande avec réservation du stock sur microservice-produit.
+ * Le stock est réservé avant l'écriture de la commande (hors transaction base),
+ * puis rendu si l'écriture échoue. Voir {@link StockReservationService}.
+ */
+@Service
+@RequiredArgsConstructor
+public class CommandeCreationService {
+
+    private final CommandeService commandeService;
+    private final StockReservationService stockReservationService;
+
+    public Commande create(Commande c) {
+        StockReservationService.Reservation reservation = stockReservationService.reserve(c.getIdProduit(), c.getQuantite()).block();
+        if (reservation == null) {
+            return commandeService.create(c);
+        }
+        try {
+            return commandeService.create(c);
+        } catch (RuntimeException e) {
+            // Compensation : la commande n'existe pas, le stock réservé est rendu
+            stockReservationService.release(reservation);
+            throw e;
+        }
+    }
+}
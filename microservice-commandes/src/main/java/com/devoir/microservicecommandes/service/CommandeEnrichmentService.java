@@ -0,0 +1,44 @@
+package com.devoir.microservicecommandes.service;
+
+import com.devoir.microservicecommandes.client.ProduitClient;
+import com.devoir.microservicecommandes.dto.CommandeDetail;
+import com.devoir.microservicecommandes.dto.ProduitDto;
+import com.devoir.microservicecommandes.model.Commande;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.client.circuitbreaker.ReactiveCircuitBreakerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Joint les produits aux commandes en mémoire : les IDs de produit distincts
+ * sont récupérés en une requête groupée au lieu d'un appel par commande (N+1).
+ */
+@Service
+@RequiredArgsConstructor
+public class CommandeEnrichmentService {
+
+    private final ProduitClient produitClient;
+    private final ReactiveCircuitBreakerFactory<?, ?> circuitBreakerFactory;
+
+    public Mono<List<CommandeDetail>> expand(List<Commande> commandes) {
+        Set<Long> ids = commandes.stream()
+                .map(Commande::getIdProduit)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        // Si microservice-produit est indisponible, les commandes sont renvoyées sans produit
+        Mono<Map<Long, ProduitDto>> produits = circuitBreakerFactory.create("produitCB")
+                .run(produitClient.getProduits(ids), t -> Mono.just(Collections.emptyMap()));
+
+        return produits.map(byId -> commandes.stream()
+                .map(c -> new CommandeDetail(c, c.getIdProduit() != null ? byId.get(c.getIdProduit()) : null))
+                .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,65 @@
+package com.devoir.microservicecommandes.service;
+
+import com.devoir.microservicecommandes.archive.CommandeArchive;
+import com.devoir.microservicecommandes.model.Commande;
+import com.devoir.microservicecommandes.repository.CommandeRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Lectures sur la table (commandes récentes) et l'archive (commandes anciennes), par plage de
+ * dates ou par ID.
+ * En cas de doublon entre les deux (archivage interrompu), la version de la table l'emporte.
+ */
+@Service
+@RequiredArgsConstructor
+public class CommandeHistoryService {
+
+    private static final Comparator<Commande> BY_DATE_THEN_ID = Comparator
+            .comparing(Commande::getDateCommande)
+            .thenComparing(Commande::getId);
+
+    private static final LocalDate MIN_DATE = LocalDate.of(1, 1, 1);
+    private static final LocalDate MAX_DATE = LocalDate.of(9999, 12, 31);
+
+    private final CommandeRepository repository;
+    private final CommandeArchive archive;
+
+    /**
+     * Commandes dont la date est dans [from, to] ; une borne nulle est ouverte.
+     */
+    public List<Commande> findByDateRange(LocalDate from, LocalDate to) {
+        List<Commande> hot = repository.findByDateCommandeBetweenOrderByDateCommandeAscIdAsc(
+                from != null ? from : MIN_DATE, to != null ? to : MAX_DATE);
+        Set<Long> hotIds = new HashSet<>();
+        hot.forEach(c -> hotIds.add(c.getId()));
+
+        List<Commande> merged = new ArrayList<>(hot);
+        archive.scan(from, to, c -> {
+            if (!hotIds.contains(c.getId())) merged.add(c);
+        });
+        merged.sort(BY_DATE_THEN_ID);
+        return merged;
+    }
+
+    /**
+     * Commande {@code id}, dans la table ou à défaut dans l'archive. Une commande archivée n'a
+     * plus de version : elle n'est plus modifiable.
+     */
+    public Optional<Commande> findById(Long id) {
+        Optional<Commande> hot = repository.findById(id);
+        return hot.isPresent() ? hot : archive.findById(id);
+    }
+
+    public boolean isArchived(Long id) {
+        return archive.findById(id).isPresent();
+    }
+}
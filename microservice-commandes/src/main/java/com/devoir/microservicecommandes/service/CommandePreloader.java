@@ -0,0 +1,110 @@
+package com.devoir.microservicecommandes.service;
+
+import com.devoir.microservicecommandes.client.ProduitClient;
+import com.devoir.microservicecommandes.model.Commande;
+import com.devoir.microservicecommandes.repository.CommandeRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Préchargement en arrière-plan au démarrage : les commandes des derniers jours
+ * (commandes.preload.days) sont lues par curseur, ce qui remonte leurs pages dans le cache de
+ * la base, puis les produits qu'elles référencent sont chargés dans le cache de {@link ProduitClient}.
+ * Les premières consultations après un redémarrage ne paient ainsi ni les lectures disque
+ * ni les appels vers microservice-produit.
+ *
+ * Lancé après ApplicationReadyEvent, sur l'exécuteur de tâches : il ne retarde pas la
+ * disponibilité du service. Durée mesurée dans le timer startup.preload.
+ */
+@Service
+@Slf4j
+public class CommandePreloader {
+
+    private static final Duration PRODUITS_TIMEOUT = Duration.ofSeconds(10);
+
+    private final CommandeRepository repository;
+    private final ProduitClient produitClient;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor taskExecutor;
+    private final Timer timer;
+    private final boolean enabled;
+    private final int days;
+
+    public CommandePreloader(CommandeRepository repository, ProduitClient produitClient, EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                             MeterRegistry meterRegistry,
+                             @Value("${commandes.preload.enabled:true}") boolean enabled,
+                             @Value("${commandes.preload.days:7}") int days) {
+        this.repository = repository;
+        this.produitClient = produitClient;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.taskExecutor = taskExecutor;
+        this.timer = Timer.builder("startup.preload").tag("cible", "commandes").register(meterRegistry);
+        this.enabled = enabled;
+        this.days = days;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady(ApplicationReadyEvent event) {
+        log.info("Service prêt en {} ms (démarrage JVM compris : application.ready.time)", event.getTimeTaken().toMillis());
+        if (enabled) {
+            taskExecutor.execute(() -> {
+                try {
+                    preload();
+                } catch (RuntimeException e) {
+                    log.warn("Préchargement des commandes interrompu", e);
+                }
+            });
+        }
+    }
+
+    void preload() {
+        long start = System.nanoTime();
+        Set<Long> idsProduit = new HashSet<>();
+        long commandes = transactionTemplate.execute(status -> {
+            long n = 0;
+            try (Stream<Commande> recentes = repository.streamFiltered(LocalDate.now().minusDays(days), null, null)) {
+                for (Commande c : (Iterable<Commande>) recentes::iterator) {
+                    if (c.getIdProduit() != null) {
+                        idsProduit.add(c.getIdProduit());
+                    }
+                    entityManager.detach(c);
+                    n++;
+                }
+            }
+            return n;
+        });
+        int produits = 0;
+        try {
+            produits = produitClient.getProduits(idsProduit).blockOptional(PRODUITS_TIMEOUT).map(Map::size).orElse(0);
+        } catch (RuntimeException e) {
+            // microservice-produit pas encore disponible : le cache se remplira à la demande
+            log.info("Préchargement des produits ignoré : {}", e.getMessage());
+        }
+        long elapsed = System.nanoTime() - start;
+        timer.record(Duration.ofNanos(elapsed));
+        log.info("Préchargement : {} commandes des {} derniers jours, {} produits en {} ms",
+                commandes, days, produits, elapsed / 1_000_000);
+    }
+}
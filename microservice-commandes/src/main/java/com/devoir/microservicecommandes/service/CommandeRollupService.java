@@ -0,0 +1,351 @@
+package com.devoir.microservicecommandes.service;
+
+import com.devoir.microservicecommandes.archive.CommandeArchive;
+import com.devoir.microservicecommandes.dto.RollupBucket;
+import com.devoir.microservicecommandes.dto.RollupRebuild;
+import com.devoir.microservicecommandes.model.Commande;
+import com.devoir.microservicecommandes.model.CommandeRollup;
+import com.devoir.microservicecommandes.repository.CommandeRepository;
+import com.devoir.microservicecommandes.repository.CommandeRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Rollups matérialisés des commandes par (jour, produit) dans la table commande_rollup.
+ *
+ * Chaque écriture cumule ses écarts par clé dans sa transaction ; ils sont appliqués juste
+ * avant le commit, une requête UPDATE (ou INSERT) par clé. La reconstruction complète
+ * recalcule les partitions mensuelles en parallèle (fork-join) puis remplace la table.
+ */
+@Service
+@Slf4j
+public class CommandeRollupService {
+
+    public enum GroupBy {
+        DAY, WEEK, MONTH, PRODUIT;
+
+        public static Optional<GroupBy> fromParameter(String value) {
+            return Arrays.stream(values()).filter(g -> g.name().equalsIgnoreCase(value)).findFirst();
+        }
+    }
+
+    private static final LocalDate MIN_DATE = LocalDate.of(1, 1, 1);
+    private static final LocalDate MAX_DATE = LocalDate.of(9999, 12, 31);
+    private static final int INSERT_BATCH = 1000;
+
+    private static final String UPDATE_SQL = "update commande_rollup set nombre = nombre + ?, montant = montant + ?, " +
+            "quantite = quantite + ? where jour = ? and id_produit = ?";
+    private static final String INSERT_SQL = "insert into commande_rollup (jour, id_produit, nombre, montant, quantite) " +
+            "values (?, ?, ?, ?, ?)";
+
+    private final CommandeRepository repository;
+    private final CommandeRollupRepository rollupRepository;
+    private final CommandeArchive archive;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int parallelism;
+
+    // Les commits qui modifient les rollups (verrou partagé) et la reconstruction (verrou exclusif)
+    // s'excluent : aucune écriture ne peut se perdre entre le recalcul et le remplacement de la table
+    private final ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    public CommandeRollupService(CommandeRepository repository, CommandeRollupRepository rollupRepository,
+                                 CommandeArchive archive, JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${commandes.rollup.rebuild-parallelism:4}") int parallelism) {
+        this.repository = repository;
+        this.rollupRepository = rollupRepository;
+        this.archive = archive;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Ajoute (sign = 1) ou retire (sign = -1) une commande des rollups. Doit être appelé dans la
+     * transaction de l'écriture ; les commandes sans date ne sont pas agrégées.
+     */
+    public void apply(Commande c, int sign) {
+        if (c.getDateCommande() != null) {
+            pendingDeltas().add(keyOf(c), c, sign);
+        }
+    }
+
+    /**
+     * Totaux par jour, semaine (commençant le lundi), mois ou produit sur [from, to] (bornes nulles = ouvertes).
+     */
+    public List<RollupBucket> query(LocalDate from, LocalDate to, GroupBy groupBy) {
+        LocalDate start = from != null ? from : MIN_DATE;
+        LocalDate end = to != null ? to : MAX_DATE;
+
+        if (groupBy == GroupBy.PRODUIT) {
+            List<RollupBucket> result = new ArrayList<>();
+            for (Object[] row : rollupRepository.sumByProduit(start, end)) {
+                Long idProduit = (Long) row[0];
+                result.add(bucket(null, idProduit == CommandeRollup.SANS_PRODUIT ? null : idProduit, row));
+            }
+            return result;
+        }
+
+        Map<LocalDate, RollupBucket> buckets = new TreeMap<>();
+        for (Object[] row : rollupRepository.sumByJour(start, end)) {
+            LocalDate jour = (LocalDate) row[0];
+            LocalDate periode = switch (groupBy) {
+                case WEEK -> jour.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> jour.withDayOfMonth(1);
+                default -> jour;
+            };
+            RollupBucket b = buckets.get(periode);
+            if (b == null) {
+                buckets.put(periode, bucket(periode, null, row));
+            } else {
+                b.setNombreCommandes(b.getNombreCommandes() + ((Number) row[1]).longValue());
+                b.setTotalMontant(b.getTotalMontant() + ((Number) row[2]).doubleValue());
+                b.setTotalQuantite(b.getTotalQuantite() + ((Number) row[3]).longValue());
+            }
+        }
+        return new ArrayList<>(buckets.values());
+    }
+
+    /**
+     * Recalcule tous les rollups depuis la table et l'archive, un mois par tâche fork-join,
+     * puis remplace le contenu de commande_rollup en une transaction. Les commits des
+     * écritures sur les commandes attendent la fin de la reconstruction.
+     */
+    public RollupRebuild rebuild() {
+        long start = System.nanoTime();
+        rebuildLock.writeLock().lock();
+        try {
+            List<YearMonth> months = months();
+            Map<Key, Delta> totals;
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                totals = months.isEmpty() ? new HashMap<>() : pool.invoke(new PartitionTask(months, 0, months.size()));
+            } finally {
+                pool.shutdown();
+            }
+            Integer lignes = transactionTemplate.execute(status -> replaceAll(totals));
+
+            long dureeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            log.info("Rollups des commandes reconstruits : {} partitions, {} lignes en {} ms", months.size(), lignes, dureeMs);
+            return RollupRebuild.builder()
+                    .partitions(months.size())
+                    .lignes(lignes != null ? lignes : 0)
+                    .dureeMs(dureeMs)
+                    .build();
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    // Base en mémoire vide au démarrage alors que l'archive persiste : on reconstruit
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (rollupRepository.count() == 0 && (repository.count() > 0 || archive.rowCount() > 0)) {
+            rebuild();
+        }
+    }
+
+    private List<YearMonth> months() {
+        YearMonth first = archive.firstMonth().orElse(null);
+        YearMonth last = archive.lastMonth().orElse(null);
+        for (Object[] bounds : repository.dateBounds()) {
+            if (bounds[0] != null) {
+                YearMonth min = YearMonth.from((LocalDate) bounds[0]);
+                YearMonth max = YearMonth.from((LocalDate) bounds[1]);
+                first = first == null || min.isBefore(first) ? min : first;
+                last = last == null || max.isAfter(last) ? max : last;
+            }
+        }
+        List<YearMonth> months = new ArrayList<>();
+        for (YearMonth m = first; m != null && !m.isAfter(last); m = m.plusMonths(1)) {
+            months.add(m);
+        }
+        return months;
+    }
+
+    private Map<Key, Delta> aggregate(YearMonth month) {
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.atEndOfMonth();
+        Map<Key, Delta> result = new HashMap<>();
+        for (Object[] row : repository.aggregateByJourAndProduit(from, to)) {
+            Key key = new Key((LocalDate) row[0], row[1] != null ? (Long) row[1] : CommandeRollup.SANS_PRODUIT);
+            result.computeIfAbsent(key, k -> new Delta())
+                    .add(((Number) row[2]).longValue(), ((Number) row[3]).doubleValue(), ((Number) row[4]).longValue());
+        }
+        // Les commandes archivées restent comptées, comme dans les statistiques
+        archive.scan(from, to, c -> result.computeIfAbsent(keyOf(c), k -> new Delta()).add(c, 1));
+        return result;
+    }
+
+    private int replaceAll(Map<Key, Delta> totals) {
+        jdbcTemplate.update("delete from commande_rollup");
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH);
+        for (Map.Entry<Key, Delta> e : totals.entrySet()) {
+            Delta d = e.getValue();
+            batch.add(new Object[]{e.getKey().jour(), e.getKey().idProduit(), d.nombre, d.montant, d.quantite});
+            if (batch.size() == INSERT_BATCH) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+        }
+        return totals.size();
+    }
+
+    private void upsert(Key key, Delta d) {
+        if (d.isZero()) {
+            return;
+        }
+        Object[] args = {d.nombre, d.montant, d.quantite, key.jour(), key.idProduit()};
+        if (jdbcTemplate.update(UPDATE_SQL, args) == 0) {
+            try {
+                jdbcTemplate.update(INSERT_SQL, key.jour(), key.idProduit(), d.nombre, d.montant, d.quantite);
+            } catch (DuplicateKeyException e) {
+                // Ligne créée entre-temps par une transaction concurrente
+                jdbcTemplate.update(UPDATE_SQL, args);
+            }
+        }
+    }
+
+    private PendingDeltas pendingDeltas() {
+        PendingDeltas pending = (PendingDeltas) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingDeltas();
+            // Échoue hors transaction : les rollups doivent être validés avec la commande
+            TransactionSynchronizationManager.registerSynchronization(pending);
+            TransactionSynchronizationManager.bindResource(this, pending);
+        }
+        return pending;
+    }
+
+    private static Key keyOf(Commande c) {
+        return new Key(c.getDateCommande(), c.getIdProduit() != null ? c.getIdProduit() : CommandeRollup.SANS_PRODUIT);
+    }
+
+    private static RollupBucket bucket(LocalDate periode, Long idProduit, Object[] row) {
+        return RollupBucket.builder()
+                .periode(periode)
+                .idProduit(idProduit)
+                .nombreCommandes(((Number) row[1]).longValue())
+                .totalMontant(((Number) row[2]).doubleValue())
+                .totalQuantite(((Number) row[3]).longValue())
+                .build();
+    }
+
+    /**
+     * Écarts d'une transaction, appliqués avant le commit.
+     */
+    private final class PendingDeltas implements TransactionSynchronization {
+
+        // Clés triées : toutes les transactions verrouillent les lignes dans le même ordre
+        private final Map<Key, Delta> deltas = new TreeMap<>();
+        private boolean locked;
+
+        void add(Key key, Commande c, int sign) {
+            deltas.computeIfAbsent(key, k -> new Delta()).add(c, sign);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            rebuildLock.readLock().lock();
+            locked = true;
+            deltas.forEach(CommandeRollupService.this::upsert);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(CommandeRollupService.this);
+            if (locked) {
+                rebuildLock.readLock().unlock();
+            }
+        }
+    }
+
+    private final class PartitionTask extends RecursiveTask<Map<Key, Delta>> {
+
+        private final List<YearMonth> months;
+        private final int from;
+        private final int to;
+
+        PartitionTask(List<YearMonth> months, int from, int to) {
+            this.months = months;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<Key, Delta> compute() {
+            if (to - from == 1) {
+                return aggregate(months.get(from));
+            }
+            int mid = (from + to) >>> 1;
+            PartitionTask right = new PartitionTask(months, mid, to);
+            right.fork();
+            Map<Key, Delta> result = new PartitionTask(months, from, mid).compute();
+            // Partitions disjointes : aucune clé commune à fusionner
+            result.putAll(right.join());
+            return result;
+        }
+    }
+
+    private record Key(LocalDate jour, Long idProduit) implements Comparable<Key> {
+
+        private static final Comparator<Key> ORDER = Comparator.comparing(Key::jour).thenComparing(Key::idProduit);
+
+        @Override
+        public int compareTo(Key other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    private static final class Delta {
+        private long nombre;
+        private double montant;
+        private long quantite;
+
+        void add(Commande c, int sign) {
+            nombre += sign;
+            if (c.getMontant() != null) montant += sign * c.getMontant();
+            if (c.getQuantite() != null) quantite += (long) sign * c.getQuantite();
+        }
+
+        void add(long nombre, double montant, long quantite) {
+            this.nombre += nombre;
+            this.montant += montant;
+            this.quantite += quantite;
+        }
+
+        boolean isZero() {
+            return nombre == 0 && montant == 0 && quantite == 0;
+        }
+    }
+}
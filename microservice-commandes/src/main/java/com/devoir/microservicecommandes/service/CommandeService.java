@@ -0,0 +1,153 @@
+package com.devoir.microservicecommandes.service;
+
+import com.devoir.microservicecommandes.model.Commande;
+import com.devoir.microservicecommandes.model.OutboxEvent;
+import com.devoir.microservicecommandes.repository.CommandeJdbcRepository;
+import com.devoir.microservicecommandes.repository.CommandeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Écritures sur les commandes. Chaque écriture ajoute son événement à l'outbox et met à jour
+ * les rollups dans la même transaction ; les statistiques en mémoire ne sont mises à jour
+ * qu'après validation.
+ */
+@Service
+@RequiredArgsConstructor
+public class CommandeService {
+
+    // Ignorés dans un patch : l'ID vient de l'URL, la version de If-Match
+    private static final Set<String> READ_ONLY_FIELDS = Set.of("id", "version");
+
+    private final CommandeRepository repository;
+    private final CommandeJdbcRepository jdbcRepository;
+    private final ObjectMapper objectMapper;
+    private final OutboxService outboxService;
+    private final CommandeStatsService statsService;
+    private final CommandeRollupService rollupService;
+
+    @Transactional
+    public Commande create(Commande c) {
+        // Ignorer l'ID s'il est fourni (sera généré automatiquement)
+        c.setId(null);
+        c.setVersion(null);
+        if (c.getDateCommande() == null) c.setDateCommande(LocalDate.now());
+        Commande saved = repository.save(c);
+        outboxService.append(OutboxEvent.CREATED, saved);
+        rollupService.apply(saved, 1);
+        statsService.onCreated(saved);
+        return saved;
+    }
+
+    /**
+     * Remplace tous les champs modifiables (PUT), en une seule requête conditionnelle.
+     * {@code versions} : versions acceptées (If-Match), null = sans condition.
+     */
+    @Transactional
+    public ConditionalWrite<Commande> update(Long id, Commande c, Collection<Long> versions) {
+        return write(id, c, CommandeJdbcRepository.COLUMNS.keySet(), versions);
+    }
+
+    /**
+     * Applique un JSON Merge Patch (RFC 7396) : seuls les champs présents sont modifiés,
+     * une valeur null efface le champ.
+     */
+    @Transactional
+    public ConditionalWrite<Commande> patch(Long id, Map<String, Object> patch, Collection<Long> versions) {
+        Set<String> fields = new HashSet<>(patch.keySet());
+        fields.removeAll(READ_ONLY_FIELDS);
+        for (String field : fields) {
+            if (!CommandeJdbcRepository.COLUMNS.containsKey(field)) {
+                throw new IllegalArgumentException("Champ inconnu : " + field);
+            }
+        }
+        Map<String, Object> values = new HashMap<>(patch);
+        values.keySet().retainAll(fields);
+        return write(id, objectMapper.convertValue(values, Commande.class), fields, versions);
+    }
+
+    @Transactional
+    public ConditionalWrite<Boolean> delete(Long id, Collection<Long> versions) {
+        if (versions != null && versions.isEmpty()) {
+            return ConditionalWrite.echec(missingOrStale(id, versions));
+        }
+        Optional<Commande> deleted = jdbcRepository.deleteReturningPrevious(id, versions);
+        if (deleted.isEmpty()) {
+            return ConditionalWrite.echec(missingOrStale(id, versions));
+        }
+        Commande existing = deleted.get();
+        outboxService.append(OutboxEvent.DELETED, existing);
+        rollupService.apply(existing, -1);
+        statsService.onDeleted(existing);
+        return ConditionalWrite.appliquee(true);
+    }
+
+    private ConditionalWrite<Commande> write(Long id, Commande values, Collection<String> fields, Collection<Long> versions) {
+        if (versions != null && versions.isEmpty()) {
+            return ConditionalWrite.echec(missingOrStale(id, versions));
+        }
+        if (fields.isEmpty()) {
+            // Patch vide : rien à écrire, la commande est renvoyée telle quelle
+            Optional<Commande> current = repository.findById(id);
+            if (current.isEmpty()) {
+                return ConditionalWrite.echec(ConditionalWrite.Resultat.INTROUVABLE);
+            }
+            Long version = current.get().getVersion() != null ? current.get().getVersion() : 0L;
+            return versions == null || versions.contains(version)
+                    ? ConditionalWrite.appliquee(current.get())
+                    : ConditionalWrite.echec(ConditionalWrite.Resultat.VERSION_PERIMEE);
+        }
+        Optional<Commande> previous = jdbcRepository.updateReturningPrevious(id, values, fields, versions);
+        if (previous.isEmpty()) {
+            return ConditionalWrite.echec(missingOrStale(id, versions));
+        }
+        Commande before = previous.get();
+        Commande after = merge(before, values, fields);
+        outboxService.append(OutboxEvent.UPDATED, after);
+        rollupService.apply(before, -1);
+        rollupService.apply(after, 1);
+        statsService.onUpdated(before, after);
+        return ConditionalWrite.appliquee(after);
+    }
+
+    // Requête supplémentaire uniquement en cas d'échec, pour distinguer 404 et 412
+    private ConditionalWrite.Resultat missingOrStale(Long id, Collection<Long> versions) {
+        return versions != null && repository.existsById(id)
+                ? ConditionalWrite.Resultat.VERSION_PERIMEE
+                : ConditionalWrite.Resultat.INTROUVABLE;
+    }
+
+    // État après l'UPDATE, reconstruit sans relire la ligne
+    private static Commande merge(Commande before, Commande values, Collection<String> fields) {
+        Commande after = copyOf(before);
+        if (fields.contains("description")) after.setDescription(values.getDescription());
+        if (fields.contains("quantite")) after.setQuantite(values.getQuantite());
+        if (fields.contains("dateCommande")) after.setDateCommande(values.getDateCommande());
+        if (fields.contains("montant")) after.setMontant(values.getMontant());
+        if (fields.contains("idProduit")) after.setIdProduit(values.getIdProduit());
+        after.setVersion((before.getVersion() != null ? before.getVersion() : 0) + 1);
+        return after;
+    }
+
+    static Commande copyOf(Commande c) {
+        return Commande.builder()
+                .id(c.getId())
+                .description(c.getDescription())
+                .montant(c.getMontant())
+                .quantite(c.getQuantite())
+                .dateCommande(c.getDateCommande())
+                .idProduit(c.getIdProduit())
+                .version(c.getVersion())
+                .build();
+    }
+}
@@ -0,0 +1,301 @@
+package com.devoir.microservicecommandes.service;
+
+import com.devoir.microservicecommandes.archive.CommandeArchive;
+import com.devoir.microservicecommandes.dto.CommandeStats;
+import com.devoir.microservicecommandes.model.Commande;
+import com.devoir.microservicecommandes.repository.CommandeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Maintient les agrégats des commandes (totaux, par produit, par jour) de manière
+ * incrémentale à chaque écriture, pour que /commandes/stats réponde sans parcourir la table.
+ * Une réconciliation périodique avec la base corrige les éventuelles dérives.
+ *
+ * Les écarts d'une écriture sont appliqués après son commit, sous un verrou en lecture pris
+ * avant le commit (comme les rollups) ; la réconciliation prend ce verrou en écriture le temps
+ * de relire la table et de remplacer les agrégats. Un commit est donc soit vu par la relecture
+ * et appliqué à l'ancien état, soit appliqué au nouveau, jamais les deux.
+ *
+ * Les segments d'archive sont immuables : leurs agrégats sont calculés une fois par segment et
+ * gardés avec leurs IDs triés, qui servent à écarter les commandes présentes à la fois dans la
+ * table et dans l'archive (archivage interrompu ; la table l'emporte, comme en lecture).
+ */
+@Service
+@Slf4j
+public class CommandeStatsService {
+
+    private record Segment(Agregats agregats, long[] ids, LocalDate maxDate) {}
+
+    private final CommandeRepository repository;
+    private final CommandeArchive archive;
+    private final TransactionTemplate readOnly;
+    private final ReentrantReadWriteLock reconcileLock = new ReentrantReadWriteLock();
+    private final Map<Path, Segment> segments = new ConcurrentHashMap<>();
+
+    private volatile Agregats agregats = new Agregats();
+
+    public CommandeStatsService(CommandeRepository repository, CommandeArchive archive,
+                                PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.archive = archive;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    public void onCreated(Commande c) {
+        afterCommit(current -> current.apply(c, 1));
+    }
+
+    public void onCreated(Collection<Commande> commandes) {
+        afterCommit(current -> commandes.forEach(c -> current.apply(c, 1)));
+    }
+
+    public void onDeleted(Commande c) {
+        afterCommit(current -> current.apply(c, -1));
+    }
+
+    public void onUpdated(Commande before, Commande after) {
+        afterCommit(current -> {
+            current.apply(before, -1);
+            current.apply(after, 1);
+        });
+    }
+
+    /**
+     * Applique l'écart après le commit de la transaction en cours (tout de suite s'il n'y en a
+     * pas), sous le verrou en lecture tenu du commit à sa fin.
+     */
+    private void afterCommit(Consumer<Agregats> update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reconcileLock.readLock().lock();
+            try {
+                update.accept(agregats);
+            } finally {
+                reconcileLock.readLock().unlock();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean locked;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                reconcileLock.readLock().lock();
+                locked = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                update.accept(agregats);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (locked) {
+                    reconcileLock.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    /**
+     * Nombre de commandes maintenu en mémoire (lecture O(1), sans requête).
+     */
+    public long count() {
+        return agregats.global.count.sum();
+    }
+
+    public CommandeStats snapshot(boolean details) {
+        Agregats current = agregats;
+        long count = current.global.count.sum();
+        double montant = current.global.montant.sum();
+        CommandeStats.CommandeStatsBuilder stats = CommandeStats.builder()
+                .nombreCommandes(count)
+                .totalMontant(montant)
+                .totalQuantite(current.global.quantite.sum())
+                .moyenneMontant(count > 0 ? montant / count : 0.0);
+        if (details) {
+            stats.parProduit(toMap(current.parProduit));
+            stats.parJour(toMap(current.parJour));
+        }
+        return stats.build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${commandes.stats.reconcile-interval:PT5M}",
+               fixedDelayString = "${commandes.stats.reconcile-interval:PT5M}")
+    public void reconcile() {
+        // Hors verrou : les nouveaux segments, les plus coûteux à lire, sont agrégés d'avance
+        refreshSegments();
+        Agregats previous;
+        Agregats fresh;
+        reconcileLock.writeLock().lock();
+        try {
+            Set<Path> current = refreshSegments();
+            fresh = readOnly.execute(status -> readTable(current));
+            previous = agregats;
+            agregats = fresh;
+        } finally {
+            reconcileLock.writeLock().unlock();
+        }
+        long drift = previous.global.count.sum() - fresh.global.count.sum();
+        if (drift != 0) {
+            log.warn("Statistiques des commandes réconciliées (écart de {} commandes)", drift);
+        } else {
+            log.debug("Statistiques des commandes réconciliées");
+        }
+    }
+
+    /**
+     * Tenu par l'archivage d'un lot, de l'écriture du segment à la fin de la transaction qui
+     * supprime les lignes : la réconciliation ne voit jamais un lot à moitié déplacé. Les totaux
+     * ne changent pas, les commandes archivées restant comptées.
+     */
+    public void holdWhileArchiving() {
+        reconcileLock.readLock().lock();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reconcileLock.readLock().unlock();
+            throw new IllegalStateException("Archivage hors transaction");
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                reconcileLock.readLock().unlock();
+            }
+        });
+    }
+
+    private Agregats readTable(Set<Path> current) {
+        Agregats fresh = new Agregats();
+        for (Object[] row : repository.aggregateTotals()) {
+            fresh.global.set(row[0], row[1], row[2]);
+        }
+        for (Object[] row : repository.aggregateByProduit()) {
+            fresh.parProduit.computeIfAbsent((Long) row[0], k -> new Totaux()).set(row[1], row[2], row[3]);
+        }
+        for (Object[] row : repository.aggregateByJour()) {
+            fresh.parJour.computeIfAbsent((LocalDate) row[0], k -> new Totaux()).set(row[1], row[2], row[3]);
+        }
+        // Les commandes archivées restent comptées dans les statistiques
+        LocalDate lastArchived = null;
+        for (Path path : current) {
+            Segment segment = segments.get(path);
+            fresh.add(segment.agregats());
+            if (lastArchived == null || segment.maxDate().isAfter(lastArchived)) {
+                lastArchived = segment.maxDate();
+            }
+        }
+        // Commandes restées dans la table après un archivage interrompu : seule la copie de la
+        // table est comptée ; seules celles datées d'avant la fin de l'archive sont candidates
+        if (lastArchived != null) {
+            for (Long id : repository.findIdsUpTo(lastArchived)) {
+                if (current.stream().anyMatch(path -> Arrays.binarySearch(segments.get(path).ids(), id) >= 0)) {
+                    archive.findById(id).ifPresent(archived -> fresh.apply(archived, -1));
+                }
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * Agrège les segments pas encore vus, oublie ceux qui ont disparu ; renvoie les segments présents.
+     */
+    private Set<Path> refreshSegments() {
+        Set<Path> current = new HashSet<>(archive.segments());
+        segments.keySet().retainAll(current);
+        for (Path path : current) {
+            segments.computeIfAbsent(path, p -> {
+                Agregats agregatsSegment = new Agregats();
+                List<Long> ids = new ArrayList<>();
+                LocalDate[] maxDate = {LocalDate.MIN};
+                archive.scanSegment(p, c -> {
+                    agregatsSegment.apply(c, 1);
+                    ids.add(c.getId());
+                    if (c.getDateCommande().isAfter(maxDate[0])) maxDate[0] = c.getDateCommande();
+                });
+                return new Segment(agregatsSegment, ids.stream().mapToLong(Long::longValue).sorted().toArray(), maxDate[0]);
+            });
+        }
+        return current;
+    }
+
+    private static <K extends Comparable<K>> Map<K, CommandeStats.Totaux> toMap(Map<K, Totaux> source) {
+        Map<K, CommandeStats.Totaux> result = new TreeMap<>();
+        source.forEach((key, t) -> {
+            long count = t.count.sum();
+            if (count > 0) {
+                result.put(key, new CommandeStats.Totaux(count, t.montant.sum(), t.quantite.sum()));
+            }
+        });
+        return result;
+    }
+
+    private static final class Agregats {
+        private final Totaux global = new Totaux();
+        private final Map<Long, Totaux> parProduit = new ConcurrentHashMap<>();
+        private final Map<LocalDate, Totaux> parJour = new ConcurrentHashMap<>();
+        void add(Agregats other) {
+            global.add(other.global);
+            other.parProduit.forEach((id, t) -> parProduit.computeIfAbsent(id, k -> new Totaux()).add(t));
+            other.parJour.forEach((jour, t) -> parJour.computeIfAbsent(jour, k -> new Totaux()).add(t));
+        }
+
+        void apply(Commande c, int sign) {
+            global.add(c, sign);
+            if (c.getIdProduit() != null) {
+                parProduit.computeIfAbsent(c.getIdProduit(), k -> new Totaux()).add(c, sign);
+            }
+            if (c.getDateCommande() != null) {
+                parJour.computeIfAbsent(c.getDateCommande(), k -> new Totaux()).add(c, sign);
+            }
+        }
+    }
+
+    private static final class Totaux {
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder montant = new DoubleAdder();
+        private final LongAdder quantite = new LongAdder();
+
+        void add(Commande c, int sign) {
+            count.add(sign);
+            if (c.getMontant() != null) montant.add(sign * c.getMontant());
+            if (c.getQuantite() != null) quantite.add((long) sign * c.getQuantite());
+        }
+
+        void add(Totaux other) {
+            count.add(other.count.sum());
+            montant.add(other.montant.sum());
+            quantite.add(other.quantite.sum());
+        }
+
+        void set(Object count, Object montant, Object quantite) {
+            this.count.add(((Number) count).longValue());
+            this.montant.add(((Number) montant).doubleValue());
+            this.quantite.add(((Number) quantite).longValue());
+        }
+    }
+}
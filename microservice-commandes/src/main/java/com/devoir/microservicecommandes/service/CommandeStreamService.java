@@ -0,0 +1,63 @@
+package com.devoir.microservicecommandes.service;
+
+import com.devoir.microservicecommandes.model.Commande;
+import com.devoir.microservicecommandes.repository.CommandeRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.stream.Stream;
+
+/**
+ * Écrit les commandes en NDJSON (une commande JSON par ligne) directement depuis
+ * un curseur JDBC. Chaque entité est détachée après écriture pour que la mémoire
+ * reste constante quelle que soit la taille de la table.
+ */
+@Service
+public class CommandeStreamService {
+
+    private static final int FLUSH_EVERY = 500;
+
+    private final CommandeRepository repository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    public CommandeStreamService(CommandeRepository repository, EntityManager entityManager,
+                                 PlatformTransactionManager transactionManager, ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public void writeNdjson(OutputStream out) {
+        transactionTemplate.execute(status -> {
+            try (Stream<Commande> commandes = repository.streamAll();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                int written = 0;
+                for (Commande c : (Iterable<Commande>) commandes::iterator) {
+                    generator.writeObject(c);
+                    generator.writeRaw('\n');
+                    entityManager.detach(c);
+                    if (++written % FLUSH_EVERY == 0) {
+                        generator.flush();
+                    }
+                }
+                generator.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,110 @@
+package com.devoir.microservicecommandes.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Déduplication des créations par en-tête Idempotency-Key.
+ * Le premier appel pour une clé la réserve de façon atomique (putIfAbsent, sans verrou)
+ * et exécute l'action ; les doublons, même simultanés, reçoivent la réponse mémorisée
+ * sans toucher à la table. Les clés expirent après un TTL et le nombre de clés est borné.
+ * Si l'action échoue, la clé est libérée pour permettre une nouvelle tentative.
+ *
+ * La clé est liée à l'empreinte (SHA-256 du JSON) du corps de la première requête : la même clé
+ * avec un autre corps est refusée en 422 au lieu de rejouer une réponse qui ne lui correspond pas.
+ *
+ * Même classe dans microservice-produit, aux propriétés près : les services sont des projets
+ * Maven indépendants, sans module commun, et la copie est voulue.
+ */
+@Component
+public class IdempotencyStore {
+
+    private record Claim(String fingerprint, CompletableFuture<Object> response) {}
+
+    private final Cache<String, Claim> responses;
+    private final Duration waitTimeout;
+    private final ObjectMapper objectMapper;
+
+    public IdempotencyStore(ObjectMapper objectMapper,
+                            @Value("${commandes.idempotency.ttl:PT24H}") Duration ttl,
+                            @Value("${commandes.idempotency.max-keys:100000}") long maxKeys,
+                            @Value("${commandes.idempotency.wait-timeout:PT10S}") Duration waitTimeout) {
+        this.responses = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxKeys)
+                .build();
+        this.waitTimeout = waitTimeout;
+        this.objectMapper = objectMapper;
+    }
+
+    public record Result<T>(T value, boolean replayed) {}
+
+    @SuppressWarnings("unchecked")
+    public <T> Result<T> execute(String scope, String key, Object request, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return new Result<>(action.get(), false);
+        }
+        String storeKey = scope + ':' + key;
+        // Empreinte calculée avant l'action, qui peut modifier le corps (ID généré...)
+        Claim claim = new Claim(fingerprint(request), new CompletableFuture<>());
+        Claim existing = responses.asMap().putIfAbsent(storeKey, claim);
+        if (existing != null) {
+            if (!existing.fingerprint().equals(claim.fingerprint())) {
+                throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Idempotency-Key déjà utilisée avec un autre corps de requête");
+            }
+            return new Result<>((T) await(existing.response()), true);
+        }
+
+        try {
+            T value = action.get();
+            claim.response().complete(value);
+            return new Result<>(value, false);
+        } catch (RuntimeException e) {
+            responses.asMap().remove(storeKey, claim);
+            claim.response().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Object await(CompletableFuture<Object> pending) {
+        try {
+            return pending.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Une requête avec la même Idempotency-Key est en cours de traitement");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
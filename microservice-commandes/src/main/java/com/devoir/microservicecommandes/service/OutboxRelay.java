@@ -0,0 +1,101 @@
+package com.devoir.microservicecommandes.service;
+
+import com.devoir.microservicecommandes.model.OutboxEvent;
+import com.devoir.microservicecommandes.repository.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lit les événements non publiés de l'outbox par lots, leur attribue une position
+ * croissante et les publie sur le ChangeBroker.
+ * Les positions sont attribuées ici (et non à l'écriture) car les IDs de séquence
+ * ne reflètent pas l'ordre de validation des transactions : un consommateur qui
+ * reprend depuis 'since' ne peut donc pas manquer un événement validé en retard.
+ *
+ * Les événements publiés depuis plus de commandes.outbox.retention sont purgés : un consommateur
+ * plus en retard que cette durée reprend au premier événement conservé et doit relire
+ * GET /commandes pour se resynchroniser.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxEventRepository repository;
+    private final ChangeBroker broker;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration retention;
+
+    // ReentrantLock plutôt que synchronized : un thread virtuel bloqué sur la base ne monopolise pas son thread porteur
+    private final ReentrantLock lock = new ReentrantLock();
+    private long lastPosition = -1;
+
+    public OutboxRelay(OutboxEventRepository repository, ChangeBroker broker,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${commandes.outbox.batch-size:500}") int batchSize,
+                       @Value("${commandes.outbox.retention:P7D}") Duration retention) {
+        this.repository = repository;
+        this.broker = broker;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.retention = retention;
+    }
+
+    @Scheduled(fixedDelayString = "${commandes.outbox.relay-interval:PT1S}")
+    public void relay() {
+        lock.lock();
+        try {
+            relayPending();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${commandes.outbox.prune-interval:PT1H}", initialDelayString = "${commandes.outbox.prune-interval:PT1H}")
+    public void prune() {
+        long maxPosition = repository.maxPosition();
+        int deleted = repository.deletePublishedBefore(Instant.now().minus(retention), maxPosition);
+        if (deleted > 0) {
+            log.info("{} événements de l'outbox purgés (plus de {})", deleted, retention);
+        }
+    }
+
+    private void relayPending() {
+        List<OutboxEvent> batch;
+        do {
+            try {
+                batch = transactionTemplate.execute(status -> publishNextBatch());
+            } catch (RuntimeException e) {
+                // Positions attribuées mais non validées : on relira le maximum en base
+                lastPosition = -1;
+                throw e;
+            }
+            if (!batch.isEmpty()) {
+                broker.publish(batch);
+                log.debug("{} événements de l'outbox publiés (position {})", batch.size(), lastPosition);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    private List<OutboxEvent> publishNextBatch() {
+        if (lastPosition < 0) {
+            lastPosition = repository.maxPosition();
+        }
+        List<OutboxEvent> batch = repository.findByPublishedFalseOrderByIdAsc(Limit.of(batchSize));
+        for (OutboxEvent event : batch) {
+            event.setPosition(++lastPosition);
+            event.setPublished(true);
+        }
+        return batch;
+    }
+}
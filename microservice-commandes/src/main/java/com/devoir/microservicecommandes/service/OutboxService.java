@@ -0,0 +1,43 @@
+package com.devoir.microservicecommandes.service;
+
+import com.devoir.microservicecommandes.model.Commande;
+import com.devoir.microservicecommandes.model.OutboxEvent;
+import com.devoir.microservicecommandes.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+/**
+ * Ajoute un événement à la table outbox. Doit être appelé dans la transaction
+ * qui modifie la commande, pour que l'événement et la donnée soient validés ensemble.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxEventRepository repository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(String type, Commande c) {
+        repository.save(OutboxEvent.builder()
+                .type(type)
+                .commandeId(c.getId())
+                .occurredAt(Instant.now())
+                .payload(toJson(c))
+                .build());
+    }
+
+    private String toJson(Commande c) {
+        try {
+            return objectMapper.writeValueAsString(c);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Sérialisation de la commande " + c.getId() + " impossible", e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.devoir.microservicecommandes.service;
+
+import com.devoir.microservicecommandes.client.ProduitClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Réservation du stock sur microservice-produit pour une commande, partagée par la création
+ * unitaire et l'insertion par lot.
+ *
+ * Chaque réservation porte un ID unique. Après un délai dépassé, une erreur réseau ou une 5xx,
+ * on ne sait pas si microservice-produit a décrémenté le stock : la réservation est libérée
+ * par son ID, ce qui est sans effet si elle n'a pas abouti et la fait refuser si elle arrive
+ * après la libération.
+ *
+ * Seule la création réserve : une commande modifiée ou supprimée ne rend ni ne reprend de stock
+ * (l'ID de réservation n'est pas conservé sur la commande).
+ */
+@Service
+@Slf4j
+public class StockReservationService {
+
+    // Libération retentée en arrière-plan si microservice-produit est momentanément indisponible
+    private static final Retry RELEASE_RETRY = Retry.backoff(5, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30));
+
+    public record Reservation(Long idProduit, String id) {
+    }
+
+    private final ProduitClient produitClient;
+    private final boolean enabled;
+    private final Duration timeout;
+
+    public StockReservationService(ProduitClient produitClient,
+                                   @Value("${commandes.stock.reservation-enabled:true}") boolean enabled,
+                                   @Value("${commandes.stock.reservation-timeout:PT2S}") Duration timeout) {
+        this.produitClient = produitClient;
+        this.enabled = enabled;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Réserve {@code quantite} unités du produit. Vide si rien n'est à réserver (réservation
+     * désactivée, commande sans produit ou sans quantité) ; en erreur avec une
+     * ResponseStatusException si la réservation est refusée : 400 produit inconnu,
+     * 409 stock insuffisant, 503 service produit indisponible.
+     */
+    public Mono<Reservation> reserve(Long idProduit, Integer quantite) {
+        if (!enabled || idProduit == null || quantite == null || quantite <= 0) {
+            return Mono.empty();
+        }
+        String reservationId = UUID.randomUUID().toString();
+        return produitClient.reserveStock(idProduit, quantite, reservationId)
+                .timeout(timeout)
+                .defaultIfEmpty(Boolean.FALSE)
+                .onErrorMap(e -> !(e instanceof ResponseStatusException), e -> refused(idProduit, reservationId, e))
+                .flatMap(reserved -> reserved
+                        ? Mono.just(new Reservation(idProduit, reservationId))
+                        : Mono.error(new ResponseStatusException(HttpStatus.CONFLICT, "Stock insuffisant pour le produit " + idProduit)));
+    }
+
+    /**
+     * Rend le stock d'une réservation dont la commande n'a pas été écrite. Asynchrone, avec reprises.
+     */
+    public void release(Reservation reservation) {
+        release(reservation.idProduit(), reservation.id());
+    }
+
+    private ResponseStatusException refused(Long idProduit, String reservationId, Throwable e) {
+        if (e instanceof WebClientResponseException.NotFound) {
+            return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Produit " + idProduit + " inconnu");
+        }
+        if (e instanceof WebClientResponseException response && !response.getStatusCode().is5xxServerError()) {
+            log.error("Réservation du stock refusée pour le produit {}: {}", idProduit, e.getMessage());
+            return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Service produit indisponible");
+        }
+        // 5xx, délai dépassé ou erreur réseau : la réservation a peut-être abouti
+        release(idProduit, reservationId);
+        log.error("Réservation du stock impossible pour le produit {}: {}", idProduit, e.getMessage());
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Service produit indisponible");
+    }
+
+    private void release(Long idProduit, String reservationId) {
+        produitClient.releaseStock(idProduit, reservationId)
+                .retryWhen(RELEASE_RETRY)
+                .subscribe(null, t -> log.error("Libération de la réservation {} (produit {}) impossible: {}",
+                        reservationId, idProduit, t.getMessage()));
+    }
+}
@@ -0,0 +1,78 @@
+package com.devoir.microservicecommandes;
+
+import com.devoir.microservicecommandes.dto.BatchResult;
+import com.devoir.microservicecommandes.model.Commande;
+import com.devoir.microservicecommandes.repository.CommandeRepository;
+import com.devoir.microservicecommandes.service.CommandeBatchService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compare le débit (lignes/seconde) de l'insertion unitaire et de l'insertion par lot.
+ * Lancement : mvn test -Dtest=CommandeBatchBenchmarkTests -Dbenchmark=true
+ */
+@SpringBootTest(properties = {
+    "eureka.client.enabled=false",
+    "commandes.stock.reservation-enabled=false",
+    "spring.jpa.show-sql=false",
+    "logging.level.org.hibernate.SQL=INFO",
+    "logging.level.org.springframework.jdbc=INFO"
+})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CommandeBatchBenchmarkTests {
+
+    private static final int ROWS = 20_000;
+
+    @Autowired
+    private CommandeRepository repository;
+
+    @Autowired
+    private CommandeBatchService batchService;
+
+    @Test
+    void batchInsertIsFasterThanSingleInserts() {
+        // Échauffement (JIT, pool de connexions, séquence)
+        repository.saveAll(commandes(1_000));
+        batchService.insertAll(commandes(1_000));
+
+        long start = System.nanoTime();
+        for (Commande c : commandes(ROWS)) {
+            repository.save(c);
+        }
+        double singleRate = ROWS / seconds(start);
+
+        start = System.nanoTime();
+        BatchResult result = batchService.insertAll(commandes(ROWS));
+        double batchRate = ROWS / seconds(start);
+
+        assertEquals(ROWS, result.getAcceptees());
+        System.out.printf("Insertion unitaire : %,.0f lignes/s%n", singleRate);
+        System.out.printf("Insertion par lot  : %,.0f lignes/s (x%.1f)%n", batchRate, batchRate / singleRate);
+    }
+
+    private static List<Commande> commandes(int n) {
+        List<Commande> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            list.add(Commande.builder()
+                    .description("Commande benchmark " + i)
+                    .quantite(1 + i % 10)
+                    .montant(10.0 + i % 100)
+                    .dateCommande(LocalDate.now())
+                    .idProduit((long) (i % 50))
+                    .build());
+        }
+        return list;
+    }
+
+    private static double seconds(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000_000.0;
+    }
+}
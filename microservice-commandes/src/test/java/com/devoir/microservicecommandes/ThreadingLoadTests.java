@@ -0,0 +1,123 @@
+package com.devoir.microservicecommandes;
+
+import jakarta.servlet.Filter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test de charge sur /commandes/test-timeout (appel bloquant simulé) : nombre maximal de
+ * requêtes traitées simultanément et latence p99, avec threads de plateforme (200 threads Tomcat).
+ * {@link VirtualThreadingLoadTests} rejoue la même charge avec le profil virtual-threads (JRE 21+) ;
+ * le second des deux à s'exécuter affiche la comparaison.
+ * Lancement :
+ *   mvn test -Dtest='*ThreadingLoadTests' -Dbenchmark=true
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "eureka.client.enabled=false",
+    "spring.jpa.show-sql=false",
+    "logging.level.org.hibernate.SQL=INFO",
+    "logging.level.org.springframework.jdbc=INFO",
+    "spring.threads.virtual.enabled=false"
+})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ThreadingLoadTests {
+
+    private static final int REQUESTS = 2_000;
+    private static final long DELAY_MS = 200;
+
+    private static final AtomicInteger inFlight = new AtomicInteger();
+    private static final AtomicInteger maxInFlight = new AtomicInteger();
+    // Résultats par mode, partagés entre les deux classes (même JVM de test)
+    private static final Map<Boolean, Result> results = new ConcurrentHashMap<>();
+
+    record Result(int maxInFlight, long p50, long p99, double throughput) {
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${server.tomcat.threads.max:200}")
+    private int tomcatThreads;
+
+    @TestConfiguration
+    static class InFlightCounterConfig {
+        @Bean
+        Filter inFlightCounter() {
+            return (request, response, chain) -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            };
+        }
+    }
+
+    @Test
+    void concurrentBlockingCalls() {
+        maxInFlight.set(0);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(5)).build();
+        URI uri = URI.create("http://localhost:" + port + "/commandes/test-timeout?delayMs=" + DELAY_MS);
+
+        List<CompletableFuture<Long>> calls = new ArrayList<>(REQUESTS);
+        long begin = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            long start = System.nanoTime();
+            calls.add(client.sendAsync(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.discarding())
+                    .thenApply(response -> {
+                        assertEquals(200, response.statusCode());
+                        return (System.nanoTime() - start) / 1_000_000;
+                    }));
+        }
+        List<Long> latencies = new ArrayList<>(calls.stream().map(CompletableFuture::join).toList());
+        double seconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+
+        Collections.sort(latencies);
+        long p50 = latencies.get(latencies.size() / 2);
+        long p99 = latencies.get((int) Math.ceil(latencies.size() * 0.99) - 1);
+        Result result = new Result(maxInFlight.get(), p50, p99, REQUESTS / seconds);
+        results.put(virtualThreads, result);
+        System.out.printf("Threads virtuels : %s%n", virtualThreads);
+        System.out.printf("Requêtes simultanées max : %d%n", result.maxInFlight());
+        System.out.printf("Latence p50 : %d ms, p99 : %d ms, débit : %,.0f req/s%n", p50, p99, result.throughput());
+
+        // Avec le pool Tomcat, la concurrence plafonne au nombre de threads ; pas avec les threads virtuels
+        if (virtualThreads) {
+            assertTrue(result.maxInFlight() > tomcatThreads, "les threads virtuels devraient dépasser " + tomcatThreads + " requêtes simultanées");
+        } else {
+            assertTrue(result.maxInFlight() <= tomcatThreads, "le pool Tomcat devrait borner la concurrence à " + tomcatThreads);
+        }
+        Result platform = results.get(false);
+        Result virtual = results.get(true);
+        if (platform != null && virtual != null) {
+            System.out.printf("Virtuels / plateforme : concurrence x%.1f, p99 %d ms -> %d ms, débit x%.1f%n",
+                    (double) virtual.maxInFlight() / platform.maxInFlight(), platform.p99(), virtual.p99(),
+                    virtual.throughput() / platform.throughput());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.devoir.microservicecommandes;
+
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Même charge que {@link ThreadingLoadTests}, avec le profil virtual-threads.
+ * Lancement : mvn test -Dtest='*ThreadingLoadTests' -Dbenchmark=true   (JRE 21+)
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "eureka.client.enabled=false",
+    "spring.jpa.show-sql=false",
+    "logging.level.org.hibernate.SQL=INFO",
+    "logging.level.org.springframework.jdbc=INFO"
+})
+@ActiveProfiles("virtual-threads")
+// Configuration imbriquée de la classe mère, non détectée automatiquement dans une sous-classe
+@Import(ThreadingLoadTests.InFlightCounterConfig.class)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@EnabledForJreRange(min = JRE.JAVA_21)
+class VirtualThreadingLoadTests extends ThreadingLoadTests {
+}
@@ -0,0 +1,110 @@
+package com.devoir.microservicecommandes.archive;
+
+import com.devoir.microservicecommandes.model.Commande;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Écriture puis relecture d'un segment : colonnes nulles, ordre (date, id), bornes de dates
+ * et recherche par ID.
+ */
+class ArchiveSegmentTests {
+
+    @TempDir
+    Path directory;
+
+    static Commande commande(long id, LocalDate date, Integer quantite, Double montant, Long idProduit, String description) {
+        return Commande.builder()
+                .id(id)
+                .dateCommande(date)
+                .quantite(quantite)
+                .montant(montant)
+                .idProduit(idProduit)
+                .description(description)
+                .build();
+    }
+
+    @Test
+    void rowsAreReadBackSortedByDateThenIdWithNullColumns() {
+        List<Commande> rows = List.of(
+                commande(30, LocalDate.of(2024, 3, 5), 2, 19.9, 7L, "lampe"),
+                commande(12, LocalDate.of(2024, 3, 1), null, null, null, null),
+                commande(11, LocalDate.of(2024, 3, 5), 1, 0.0, 8L, "é ü 漢字"),
+                commande(40, LocalDate.of(2024, 3, 1), 3, null, 9L, ""));
+
+        ArchiveSegment.write(directory.resolve("seg" + ArchiveSegment.EXTENSION), rows);
+        ArchiveSegment segment = ArchiveSegment.open(directory.resolve("seg" + ArchiveSegment.EXTENSION));
+
+        assertEquals(4, segment.rowCount());
+        assertEquals(40, segment.maxId());
+        List<Commande> read = scan(segment, null, null);
+        assertEquals(List.of(12L, 40L, 11L, 30L), read.stream().map(Commande::getId).toList());
+
+        Commande empty = read.get(0);
+        assertEquals(LocalDate.of(2024, 3, 1), empty.getDateCommande());
+        assertNull(empty.getQuantite());
+        assertNull(empty.getMontant());
+        assertNull(empty.getIdProduit());
+        assertNull(empty.getDescription());
+
+        Commande partial = read.get(1);
+        assertEquals(3, partial.getQuantite());
+        assertNull(partial.getMontant());
+        assertEquals(9L, partial.getIdProduit());
+        assertEquals("", partial.getDescription());
+
+        Commande full = read.get(3);
+        assertEquals(2, full.getQuantite());
+        assertEquals(19.9, full.getMontant());
+        assertEquals(7L, full.getIdProduit());
+        assertEquals("lampe", full.getDescription());
+        assertEquals("é ü 漢字", read.get(2).getDescription());
+    }
+
+    @Test
+    void scanKeepsOnlyRowsWithinTheDateBounds() {
+        ArchiveSegment segment = ArchiveSegment.write(directory.resolve("seg" + ArchiveSegment.EXTENSION), List.of(
+                commande(1, LocalDate.of(2024, 3, 1), 1, 1.0, 1L, "a"),
+                commande(2, LocalDate.of(2024, 3, 10), 1, 1.0, 1L, "b"),
+                commande(3, LocalDate.of(2024, 3, 20), 1, 1.0, 1L, "c"),
+                commande(4, LocalDate.of(2024, 3, 31), 1, 1.0, 1L, "d")));
+
+        assertEquals(List.of(2L, 3L), ids(segment, LocalDate.of(2024, 3, 10), LocalDate.of(2024, 3, 20)));
+        assertEquals(List.of(3L, 4L), ids(segment, LocalDate.of(2024, 3, 11), null));
+        assertEquals(List.of(1L, 2L), ids(segment, null, LocalDate.of(2024, 3, 19)));
+        assertTrue(ids(segment, LocalDate.of(2024, 4, 1), null).isEmpty());
+        assertTrue(ids(segment, LocalDate.of(2024, 3, 11), LocalDate.of(2024, 3, 19)).isEmpty());
+    }
+
+    @Test
+    void findReturnsTheRowOnlyWhenItIsInTheSegment() {
+        ArchiveSegment segment = ArchiveSegment.write(directory.resolve("seg" + ArchiveSegment.EXTENSION), List.of(
+                commande(100, LocalDate.of(2024, 3, 2), 4, 8.5, 3L, "x"),
+                commande(105, LocalDate.of(2024, 3, 1), null, null, null, null)));
+
+        assertEquals("x", segment.find(100).orElseThrow().getDescription());
+        assertNull(segment.find(105).orElseThrow().getDescription());
+        assertTrue(segment.find(102).isEmpty()); // dans les bornes, absente
+        assertTrue(segment.find(99).isEmpty());
+        assertTrue(segment.find(106).isEmpty());
+    }
+
+    private static List<Commande> scan(ArchiveSegment segment, LocalDate from, LocalDate to) {
+        List<Commande> read = new ArrayList<>();
+        segment.scan(from, to, read::add);
+        return read;
+    }
+
+    private static List<Long> ids(ArchiveSegment segment, LocalDate from, LocalDate to) {
+        return scan(segment, from, to).stream().map(Commande::getId).toList();
+    }
+}
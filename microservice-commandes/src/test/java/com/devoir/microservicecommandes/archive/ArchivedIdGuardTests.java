@@ -0,0 +1,90 @@
+package com.devoir.microservicecommandes.archive;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.devoir.microservicecommandes.archive.ArchiveSegmentTests.commande;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Séquence commande_seq d'une base H2 neuve face à une archive conservée : elle doit repartir
+ * au-delà du plus grand ID archivé, bloc d'allocation d'Hibernate compris.
+ */
+class ArchivedIdGuardTests {
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private CommandeArchive archive;
+
+    @BeforeEach
+    void createDatabase() throws IOException {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        archive = new CommandeArchive(directory);
+        archive.load();
+    }
+
+    @AfterEach
+    void shutdownDatabase() {
+        database.shutdown();
+    }
+
+    @Test
+    void sequenceRestartsAboveTheLargestArchivedId() {
+        jdbcTemplate.execute("create sequence commande_seq start with 1 increment by 50");
+        archive.append(List.of(
+                commande(1000, LocalDate.of(2020, 1, 5), 1, 1.0, 1L, "a"),
+                commande(640, LocalDate.of(2020, 3, 5), 1, 1.0, 1L, "b")));
+
+        new ArchivedIdGuard(archive, jdbcTemplate).advanceSequence();
+
+        assertEquals(1051L, nextValue());
+    }
+
+    @Test
+    void sequenceAlreadyAboveTheArchiveIsLeftAlone() {
+        jdbcTemplate.execute("create sequence commande_seq start with 5001 increment by 50");
+        archive.append(List.of(commande(1000, LocalDate.of(2020, 1, 5), 1, 1.0, 1L, "a")));
+
+        new ArchivedIdGuard(archive, jdbcTemplate).advanceSequence();
+
+        assertEquals(5001L, nextValue());
+    }
+
+    @Test
+    void emptyArchiveLeavesTheSequenceAlone() {
+        jdbcTemplate.execute("create sequence commande_seq start with 1 increment by 50");
+
+        new ArchivedIdGuard(archive, jdbcTemplate).advanceSequence();
+
+        assertEquals(1L, nextValue());
+    }
+
+    @Test
+    void missingSequenceIsNotAnError() {
+        archive.append(List.of(commande(1000, LocalDate.of(2020, 1, 5), 1, 1.0, 1L, "a")));
+
+        new ArchivedIdGuard(archive, jdbcTemplate).advanceSequence();
+    }
+
+    private Long nextValue() {
+        return jdbcTemplate.queryForObject("select next value for commande_seq", Long.class);
+    }
+}
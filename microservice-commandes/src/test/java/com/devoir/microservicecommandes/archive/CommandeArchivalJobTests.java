@@ -0,0 +1,109 @@
+package com.devoir.microservicecommandes.archive;
+
+import com.devoir.microservicecommandes.model.Commande;
+import com.devoir.microservicecommandes.repository.CommandeRepository;
+import com.devoir.microservicecommandes.service.CommandeStatsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.devoir.microservicecommandes.archive.ArchiveSegmentTests.commande;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Archivage par lots : un lot validé reste dans l'archive, un lot dont la transaction échoue
+ * voit ses segments retirés et leurs fichiers supprimés.
+ */
+class CommandeArchivalJobTests {
+
+    @TempDir
+    Path directory;
+
+    private final CommandeRepository repository = mock(CommandeRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private CommandeArchive archive;
+    private CommandeArchivalJob job;
+
+    @BeforeEach
+    void createJob() throws IOException {
+        archive = new CommandeArchive(directory);
+        archive.load();
+        job = new CommandeArchivalJob(repository, archive, mock(CommandeStatsService.class),
+                transactionManager, Period.ofDays(365), 2);
+    }
+
+    @Test
+    void archivedBatchesAreDeletedFromTheTable() {
+        when(repository.lockArchivable(any(LocalDate.class), any(Limit.class))).thenReturn(
+                List.of(commande(1, LocalDate.of(2020, 1, 5), 1, 1.0, 1L, "a"),
+                        commande(2, LocalDate.of(2020, 2, 5), 1, 1.0, 1L, "b")),
+                List.of(commande(3, LocalDate.of(2020, 2, 6), 1, 1.0, 1L, "c")));
+
+        job.archiveOldCommandes();
+
+        verify(repository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(repository).deleteAllByIdInBatch(List.of(3L));
+        assertEquals(3, archive.rowCount());
+        assertEquals(3, archive.segmentCount());
+        assertEquals("c", archive.findById(3).orElseThrow().getDescription());
+    }
+
+    @Test
+    void failedBatchIsRolledBackAndItsSegmentsRemoved() throws IOException {
+        when(repository.lockArchivable(any(LocalDate.class), any(Limit.class))).thenReturn(
+                List.of(commande(1, LocalDate.of(2020, 1, 5), 1, 1.0, 1L, "a"),
+                        commande(2, LocalDate.of(2020, 1, 6), 1, 1.0, 1L, "b")),
+                List.of(commande(3, LocalDate.of(2020, 2, 6), 1, 1.0, 1L, "c"),
+                        commande(4, LocalDate.of(2020, 3, 6), 1, 1.0, 1L, "d")));
+        doNothing().when(repository).deleteAllByIdInBatch(List.of(1L, 2L));
+        doThrow(new QueryTimeoutException("verrou")).when(repository).deleteAllByIdInBatch(List.of(3L, 4L));
+
+        assertThrows(QueryTimeoutException.class, job::archiveOldCommandes);
+
+        verify(transactionManager).rollback(any());
+        // Le premier lot, validé, reste archivé ; le second n'a laissé ni segment ni fichier
+        assertEquals(1, archive.segmentCount());
+        assertEquals(2, archive.maxId());
+        assertTrue(archive.findById(3).isEmpty());
+        assertTrue(archive.findById(4).isEmpty());
+        assertEquals(1, segmentFiles());
+    }
+
+    @Test
+    void emptyBatchWritesNothing() throws IOException {
+        when(repository.lockArchivable(any(LocalDate.class), eq(Limit.of(2)))).thenReturn(List.of());
+
+        job.archiveOldCommandes();
+
+        verify(repository, never()).deleteAllByIdInBatch(any());
+        assertEquals(0, archive.segmentCount());
+        assertEquals(0, segmentFiles());
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(ArchiveSegment.EXTENSION)).count();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.devoir.microservicecommandes.archive;
+
+import com.devoir.microservicecommandes.model.Commande;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.devoir.microservicecommandes.archive.ArchiveSegmentTests.commande;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Archive partitionnée par mois : lecture par plage de dates sur plusieurs mois, par ID,
+ * rechargement depuis le disque et retrait de segments.
+ */
+class CommandeArchiveTests {
+
+    @TempDir
+    Path directory;
+
+    private CommandeArchive archive;
+
+    @BeforeEach
+    void createArchive() throws IOException {
+        archive = new CommandeArchive(directory);
+        archive.load();
+        archive.append(List.of(
+                commande(1, LocalDate.of(2024, 1, 15), 1, 10.0, 1L, "janvier"),
+                commande(2, LocalDate.of(2024, 1, 31), null, null, null, null),
+                commande(3, LocalDate.of(2024, 2, 1), 2, 20.0, 2L, "février"),
+                commande(4, LocalDate.of(2024, 2, 29), 3, 30.0, 3L, "fin février"),
+                commande(5, LocalDate.of(2024, 4, 10), 4, 40.0, 4L, "avril")));
+    }
+
+    @Test
+    void appendWritesOneSegmentPerMonth() {
+        assertEquals(3, archive.segmentCount());
+        assertEquals(5, archive.rowCount());
+        assertEquals(5, archive.maxId());
+        assertEquals(YearMonth.of(2024, 1), archive.firstMonth().orElseThrow());
+        assertEquals(YearMonth.of(2024, 4), archive.lastMonth().orElseThrow());
+        assertTrue(Files.isDirectory(directory.resolve("2024-02")));
+    }
+
+    @Test
+    void scanWithOpenBoundsReadsEveryMonth() {
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), ids(null, null));
+        assertEquals(List.of(2L, 3L, 4L, 5L), ids(LocalDate.of(2024, 1, 20), null));
+        assertEquals(List.of(1L, 2L, 3L), ids(null, LocalDate.of(2024, 2, 28)));
+    }
+
+    @Test
+    void scanWithClosedBoundsAcrossMonths() {
+        assertEquals(List.of(2L, 3L), ids(LocalDate.of(2024, 1, 31), LocalDate.of(2024, 2, 1)));
+        assertEquals(List.of(4L, 5L), ids(LocalDate.of(2024, 2, 2), LocalDate.of(2024, 4, 30)));
+        // Mars n'a aucune partition
+        assertTrue(ids(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31)).isEmpty());
+        assertTrue(ids(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31)).isEmpty());
+    }
+
+    @Test
+    void findByIdReadsArchivedRows() {
+        Commande found = archive.findById(3).orElseThrow();
+        assertEquals(LocalDate.of(2024, 2, 1), found.getDateCommande());
+        assertEquals("février", found.getDescription());
+        assertEquals(2, found.getQuantite());
+        assertEquals(20.0, found.getMontant());
+        assertEquals(2L, found.getIdProduit());
+
+        Commande empty = archive.findById(2).orElseThrow();
+        assertNull(empty.getQuantite());
+        assertNull(empty.getDescription());
+
+        assertTrue(archive.findById(6).isEmpty());
+    }
+
+    @Test
+    void reloadedArchiveSeesTheSameRows() throws IOException {
+        CommandeArchive reloaded = new CommandeArchive(directory);
+        reloaded.load();
+
+        assertEquals(3, reloaded.segmentCount());
+        assertEquals(5, reloaded.maxId());
+        assertEquals("avril", reloaded.findById(5).orElseThrow().getDescription());
+    }
+
+    @Test
+    void discardRemovesTheSegmentsAndTheirFiles() {
+        List<ArchiveSegment> written = archive.append(List.of(
+                commande(6, LocalDate.of(2024, 2, 15), 1, 1.0, 1L, "écartée"),
+                commande(7, LocalDate.of(2024, 5, 1), 1, 1.0, 1L, "écartée")));
+        assertEquals(5, archive.segmentCount());
+
+        archive.discard(written);
+
+        assertEquals(3, archive.segmentCount());
+        assertEquals(5, archive.maxId());
+        assertTrue(archive.findById(6).isEmpty());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), ids(null, null));
+        written.forEach(segment -> assertFalse(Files.exists(segment.path())));
+    }
+
+    private List<Long> ids(LocalDate from, LocalDate to) {
+        List<Long> ids = new ArrayList<>();
+        archive.scan(from, to, c -> ids.add(c.getId()));
+        return ids;
+    }
+}
@@ -0,0 +1,23 @@
+package com.devoir.microserviceproduit.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Profil virtual-threads : refuse de démarrer sur un JRE antérieur à 21. Sans ce garde-fou,
+ * spring.threads.virtual.enabled y est ignoré sans erreur et le service tourne en réalité
+ * sur le pool de threads Tomcat.
+ */
+@Configuration
+@Profile("virtual-threads")
+public class VirtualThreadsGuard {
+
+    static final int MIN_JAVA_VERSION = 21;
+
+    public VirtualThreadsGuard() {
+        if (Runtime.version().feature() < MIN_JAVA_VERSION) {
+            throw new IllegalStateException("Le profil virtual-threads nécessite Java " + MIN_JAVA_VERSION
+                    + " ou plus (JRE actuel : " + Runtime.version() + ")");
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.devoir.microserviceproduit.controller;
+
+import com.devoir.microserviceproduit.service.PeerInvalidationBroadcaster;
+import com.devoir.microserviceproduit.service.ProduitCache;
+import io.swagger.v3.oas.annotations.Hidden;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Réception des invalidations diffusées par les autres instances du service.
+ */
+@RestController
+@Hidden
+public class CacheInvalidationController {
+
+    private final ProduitCache produitCache;
+
+    public CacheInvalidationController(ProduitCache produitCache) {
+        this.produitCache = produitCache;
+    }
+
+    @PostMapping(PeerInvalidationBroadcaster.PATH)
+    public ResponseEntity<Void> invalidate(@RequestBody List<Long> ids) {
+        produitCache.evictLocally(ids);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.devoir.microserviceproduit.controller;
+
+import com.devoir.microserviceproduit.service.CatalogVersion;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ETags forts : "epoch-3" pour la version 3 d'un produit, "epoch-c2.42" pour la version 42
+ * du catalogue au 2e démarrage. L'epoch est conservé en base et ne change que si elle est
+ * recréée : une base en mémoire repartie de zéro ne réutilise pas les ETags d'avant, alors
+ * qu'une base persistante les garde valides après un redémarrage.
+ * Variante de la classe du même nom dans microservice-commandes, gardée à part comme elle.
+ */
+@Component
+class ETags {
+
+    private final CatalogVersion catalogVersion;
+
+    ETags(CatalogVersion catalogVersion) {
+        this.catalogVersion = catalogVersion;
+    }
+
+    String of(Long version) {
+        return prefix() + (version != null ? version : 0L) + "\"";
+    }
+
+    String ofCatalog(long stamp) {
+        return prefix() + "c" + catalogVersion.boot() + "." + stamp + "\"";
+    }
+
+    /**
+     * Versions acceptées par un en-tête If-Match : null si l'en-tête est absent ou vaut "*"
+     * (pas de condition de version), liste vide si aucune valeur ne peut correspondre
+     * (ETag faible, d'une autre base ou inconnu : la comparaison forte échoue).
+     */
+    List<Long> parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String prefix = prefix();
+        List<Long> versions = new ArrayList<>();
+        for (String tag : ifMatch.split(",")) {
+            String value = tag.trim();
+            if (value.length() > prefix.length() && value.startsWith(prefix) && value.endsWith("\"")) {
+                try {
+                    versions.add(Long.parseLong(value.substring(prefix.length(), value.length() - 1)));
+                } catch (NumberFormatException ignored) {
+                    // ETag de catalogue ou inconnu : ne correspond à aucune version
+                }
+            }
+        }
+        return versions;
+    }
+
+    private String prefix() {
+        return "\"" + catalogVersion.epoch() + "-";
+    }
+}
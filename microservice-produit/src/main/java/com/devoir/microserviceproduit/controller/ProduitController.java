@@ -1,7 +1,18 @@
 package com.devoir.microserviceproduit.controller;
 
+import com.devoir.microserviceproduit.export.ExportFormat;
+import com.devoir.microserviceproduit.export.ProduitExportService;
+import com.devoir.microserviceproduit.importer.ImportFormat;
+import com.devoir.microserviceproduit.importer.ProduitImportService;
 import com.devoir.microserviceproduit.model.Produit;
 import com.devoir.microserviceproduit.repository.ProduitRepository;
+import com.devoir.microserviceproduit.search.ProduitSearchIndex;
+import com.devoir.microserviceproduit.service.CatalogVersion;
+import com.devoir.microserviceproduit.service.ConditionalWrite;
+import com.devoir.microserviceproduit.service.IdempotencyStore;
+import com.devoir.microserviceproduit.service.ProduitCache;
+import com.devoir.microserviceproduit.service.ProduitService;
+import com.devoir.microserviceproduit.service.StockService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -9,24 +20,166 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 @RequestMapping("/produits")
 @Tag(name = "Produits", description = "API de gestion des produits")
 public class ProduitController {
+    // Taille de la colonne stock_reservation.id
+    private static final int MAX_RESERVATION_ID_LENGTH = 64;
+
     private final ProduitRepository repo;
-    public ProduitController(ProduitRepository repo) { this.repo = repo; }
+    private final StockService stockService;
+    private final IdempotencyStore idempotencyStore;
+    private final ProduitExportService exportService;
+    private final ProduitImportService importService;
+    private final ProduitService produitService;
+    private final CatalogVersion catalogVersion;
+    private final ProduitCache produitCache;
+    private final ProduitSearchIndex searchIndex;
+    private final ETags etags;
+    private final int searchMaxLimit;
+    public ProduitController(ProduitRepository repo, StockService stockService, IdempotencyStore idempotencyStore,
+                             ProduitExportService exportService, ProduitImportService importService,
+                             ProduitService produitService,
+                             CatalogVersion catalogVersion, ProduitCache produitCache, ProduitSearchIndex searchIndex,
+                             ETags etags, @Value("${produits.search.max-limit:100}") int searchMaxLimit) {
+        this.repo = repo;
+        this.stockService = stockService;
+        this.idempotencyStore = idempotencyStore;
+        this.exportService = exportService;
+        this.importService = importService;
+        this.produitService = produitService;
+        this.catalogVersion = catalogVersion;
+        this.produitCache = produitCache;
+        this.searchIndex = searchIndex;
+        this.etags = etags;
+        this.searchMaxLimit = searchMaxLimit;
+    }
 
     @GetMapping
-    @Operation(summary = "Récupérer tous les produits", description = "Retourne la liste de tous les produits disponibles")
-    @ApiResponse(responseCode = "200", description = "Liste des produits récupérée avec succès")
-    public List<Produit> all() { 
-        return repo.findAll(); 
+    @Operation(summary = "Récupérer tous les produits", description = "Retourne la liste de tous les produits disponibles. Réponse conditionnelle : ETag et Last-Modified suivent la version du catalogue, If-None-Match / If-Modified-Since renvoient 304 sans corps si rien n'a changé.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Liste des produits récupérée avec succès"),
+        @ApiResponse(responseCode = "304", description = "Catalogue inchangé depuis la version connue du client")
+    })
+    public ResponseEntity<List<Produit>> all(WebRequest request) {
+        // Version lue avant les données : l'étiquette n'est jamais plus récente que le contenu
+        CatalogVersion.Stamp stamp = catalogVersion.current();
+        if (request.checkNotModified(etags.ofCatalog(stamp.value()), lastModified(stamp))) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(produitCache.all());
+    }
+
+    @GetMapping(params = "ids")
+    @Operation(summary = "Récupérer plusieurs produits par ID", description = "Retourne les produits correspondant à la liste d'IDs (séparés par des virgules) ; les IDs inconnus sont ignorés. Réponse conditionnelle selon la version du catalogue.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Liste des produits trouvés"),
+        @ApiResponse(responseCode = "304", description = "Catalogue inchangé depuis la version connue du client")
+    })
+    public ResponseEntity<List<Produit>> byIds(
+            @Parameter(description = "IDs des produits, séparés par des virgules", example = "1,2,3") @RequestParam List<Long> ids,
+            WebRequest request) {
+        CatalogVersion.Stamp stamp = catalogVersion.current();
+        if (request.checkNotModified(etags.ofCatalog(stamp.value()), lastModified(stamp))) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(produitCache.getAll(ids));
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Export en masse des produits",
+               description = "Exporte le catalogue en CSV ou en binaire compact, lu par curseur et écrit en flux (mémoire constante). Compressé en gzip si la requête envoie Accept-Encoding: gzip.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Flux d'export des produits"),
+        @ApiResponse(responseCode = "400", description = "Format inconnu")
+    })
+    public ResponseEntity<StreamingResponseBody> export(
+            @Parameter(description = "Format : csv ou bin", example = "csv") @RequestParam(defaultValue = "csv") String format,
+            @Parameter(description = "Prix minimum (inclus)") @RequestParam(required = false) Double minMontant,
+            @Parameter(description = "Prix maximum (inclus)") @RequestParam(required = false) Double maxMontant,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        ExportFormat exportFormat = ExportFormat.fromParameter(format)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Format d'export inconnu : " + format));
+        boolean gzip = ProduitExportService.acceptsGzip(acceptEncoding);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(exportFormat.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("produits." + exportFormat.extension()).build().toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        StreamingResponseBody body = out -> exportService.export(exportFormat, minMontant, maxMontant, gzip, out);
+        return response.body(body);
+    }
+
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Import en masse des produits",
+               description = "Crée (ligne sans id) ou remplace (ligne avec id, créé avec cet id s'il n'existe pas) des produits depuis un flux CSV (en-tête id,description,quantite,montant) ou NDJSON, lu au fil de l'eau et écrit par lots JDBC. Corps compressé accepté avec Content-Encoding: gzip. Les lignes invalides sont rejetées sans interrompre l'import.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Rapport d'import : lignes lues, insérées, modifiées, rejetées et premières erreurs"),
+        @ApiResponse(responseCode = "400", description = "En-tête CSV invalide"),
+        @ApiResponse(responseCode = "415", description = "Content-Type non supporté")
+    })
+    public ProduitImportService.Rapport importProduits(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            InputStream body) throws IOException {
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        ImportFormat format = ImportFormat.fromContentType(mediaType)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE));
+        Charset charset = mediaType.getCharset() != null ? mediaType.getCharset() : StandardCharsets.UTF_8;
+        InputStream in = "gzip".equalsIgnoreCase(contentEncoding) ? new GZIPInputStream(body, 64 * 1024) : body;
+        try {
+            return importService.importer(format, in, charset);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Rechercher des produits",
+               description = "Recherche plein texte sur la description, servie par un index inversé en mémoire : chaque mot doit correspondre à un terme entier ou à son début, à partir de deux caractères ; un mot d'un seul caractère ne correspond qu'au terme identique (accents et casse ignorés). Filtres optionnels sur le prix et le stock. Résultats triés par pertinence.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Meilleurs résultats, du plus pertinent au moins pertinent"),
+        @ApiResponse(responseCode = "400", description = "Requête vide ou limite invalide")
+    })
+    public List<Produit> search(
+            @Parameter(description = "Mots recherchés", example = "chai bur") @RequestParam String q,
+            @Parameter(description = "Prix minimum (inclus)") @RequestParam(required = false) Double minMontant,
+            @Parameter(description = "Prix maximum (inclus)") @RequestParam(required = false) Double maxMontant,
+            @Parameter(description = "Stock minimum (inclus)") @RequestParam(required = false) Integer minQuantite,
+            @Parameter(description = "Stock maximum (inclus)") @RequestParam(required = false) Integer maxQuantite,
+            @Parameter(description = "Nombre maximal de résultats", example = "20") @RequestParam(defaultValue = "20") int limit) {
+        if (q.isBlank() || limit <= 0 || limit > searchMaxLimit) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "q doit être renseigné et limit compris entre 1 et " + searchMaxLimit);
+        }
+        return searchIndex.search(new ProduitSearchIndex.Criteres(q, minMontant, maxMontant, minQuantite, maxQuantite, limit));
     }
 
     @GetMapping("/{id}")
@@ -34,55 +187,178 @@ public class ProduitController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Produit trouvé",
                      content = @Content(schema = @Schema(implementation = Produit.class))),
+        @ApiResponse(responseCode = "304", description = "Produit inchangé depuis la version connue du client (If-None-Match)"),
         @ApiResponse(responseCode = "404", description = "Produit non trouvé")
     })
     public ResponseEntity<Produit> get(
             @Parameter(description = "ID du produit", required = true) @PathVariable Long id) {
-        Optional<Produit> p = repo.findById(id);
-        return p.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+        CatalogVersion.Stamp stamp = catalogVersion.current();
+        Optional<Produit> p = produitCache.get(id);
+        // Spring répond 304 sans corps si If-None-Match / If-Modified-Since correspondent
+        return p.map(produit -> {
+            ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                    .eTag(etags.of(produit.getVersion()))
+                    .cacheControl(CacheControl.noCache());
+            long lastModified = lastModified(stamp);
+            if (lastModified > 0) {
+                // Date du catalogue : borne supérieure de la dernière modification du produit
+                ok.lastModified(lastModified);
+            }
+            return ok.body(produit);
+        }).orElse(ResponseEntity.notFound().build());
     }
 
     @PostMapping
     @Operation(summary = "Créer un nouveau produit", description = "Crée un nouveau produit dans le système. L'ID sera généré automatiquement.")
-    @ApiResponse(responseCode = "200", description = "Produit créé avec succès",
-                 content = @Content(schema = @Schema(implementation = Produit.class)))
-    public Produit create(@RequestBody Produit p) { 
-        // Ignorer l'ID s'il est fourni (sera généré automatiquement)
-        p.setId(null);
-        return repo.save(p); 
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Produit créé avec succès",
+                     content = @Content(schema = @Schema(implementation = Produit.class))),
+        @ApiResponse(responseCode = "422", description = "Idempotency-Key déjà utilisée avec un autre corps de requête")
+    })
+    public ResponseEntity<Produit> create(
+            @Parameter(description = "Clé d'idempotence : une requête répétée avec la même clé renvoie le produit déjà créé")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestBody Produit p) { 
+        IdempotencyStore.Result<Produit> result = idempotencyStore.execute("POST /produits", idempotencyKey, p, () -> {
+            // Ignorer l'ID s'il est fourni (sera généré automatiquement)
+            p.setId(null);
+            p.setVersion(null);
+            Produit saved = repo.save(p);
+            produitCache.evict(saved.getId());
+            searchIndex.put(saved);
+            return saved;
+        });
+        return ResponseEntity.ok()
+                .eTag(etags.of(result.value().getVersion()))
+                .header("Idempotency-Replayed", String.valueOf(result.replayed()))
+                .body(result.value());
     }
 
     @PutMapping("/{id}")
-    @Operation(summary = "Modifier un produit", description = "Met à jour un produit existant par son ID")
+    @Operation(summary = "Modifier un produit", description = "Remplace les champs d'un produit existant en une seule requête UPDATE. Avec If-Match, la modification n'est appliquée que si la version correspond.")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Produit modifié avec succès",
                      content = @Content(schema = @Schema(implementation = Produit.class))),
-        @ApiResponse(responseCode = "404", description = "Produit non trouvé")
+        @ApiResponse(responseCode = "404", description = "Produit non trouvé"),
+        @ApiResponse(responseCode = "412", description = "Le produit a été modifié depuis (If-Match ne correspond plus)")
     })
     public ResponseEntity<Produit> update(
-            @Parameter(description = "ID du produit", required = true) @PathVariable Long id, 
+            @Parameter(description = "ID du produit", required = true) @PathVariable Long id,
+            @Parameter(description = "ETag de la version modifiée (verrouillage optimiste)", example = "\"m1abc2-3\"")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody Produit p) {
-        return repo.findById(id).map(existing -> {
-            existing.setDescription(p.getDescription());
-            existing.setMontant(p.getMontant());
-            existing.setQuantite(p.getQuantite());
-            repo.save(existing);
-            return ResponseEntity.ok(existing);
-        }).orElse(ResponseEntity.notFound().build());
+        return toResponse(produitService.update(id, p, etags.parseIfMatch(ifMatch)));
+    }
+
+    @PatchMapping(value = "/{id}", consumes = "application/merge-patch+json")
+    @Operation(summary = "Modifier partiellement un produit", description = "Applique un JSON Merge Patch (RFC 7396) en une seule requête UPDATE : seuls les champs présents sont modifiés, null efface un champ. Avec If-Match, la modification n'est appliquée que si la version correspond.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Produit modifié avec succès",
+                     content = @Content(schema = @Schema(implementation = Produit.class))),
+        @ApiResponse(responseCode = "400", description = "Champ inconnu ou valeur invalide"),
+        @ApiResponse(responseCode = "404", description = "Produit non trouvé"),
+        @ApiResponse(responseCode = "412", description = "Le produit a été modifié depuis (If-Match ne correspond plus)")
+    })
+    public ResponseEntity<Produit> patch(
+            @Parameter(description = "ID du produit", required = true) @PathVariable Long id,
+            @Parameter(description = "ETag de la version modifiée (verrouillage optimiste)", example = "\"m1abc2-3\"")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody Map<String, Object> patch) {
+        try {
+            return toResponse(produitService.patch(id, patch, etags.parseIfMatch(ifMatch)));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
     }
 
     @DeleteMapping("/{id}")
-    @Operation(summary = "Supprimer un produit", description = "Supprime un produit par son ID")
+    @Operation(summary = "Supprimer un produit", description = "Supprime un produit par son ID en une seule requête DELETE. Avec If-Match, la suppression n'est appliquée que si la version correspond.")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Produit supprimé avec succès"),
-        @ApiResponse(responseCode = "404", description = "Produit non trouvé")
+        @ApiResponse(responseCode = "404", description = "Produit non trouvé"),
+        @ApiResponse(responseCode = "412", description = "Le produit a été modifié depuis (If-Match ne correspond plus)")
     })
     public ResponseEntity<Void> delete(
-            @Parameter(description = "ID du produit", required = true) @PathVariable Long id) {
-        if (repo.existsById(id)) { 
-            repo.deleteById(id); 
-            return ResponseEntity.ok().build(); 
+            @Parameter(description = "ID du produit", required = true) @PathVariable Long id,
+            @Parameter(description = "ETag de la version supprimée (verrouillage optimiste)", example = "\"m1abc2-3\"")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return switch (produitService.delete(id, etags.parseIfMatch(ifMatch)).resultat()) {
+            case APPLIQUEE -> {
+                searchIndex.remove(id);
+                yield ResponseEntity.ok().build();
+            }
+            case INTROUVABLE -> ResponseEntity.notFound().build();
+            case VERSION_PERIMEE -> ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        };
+    }
+
+    // Last-Modified est à la seconde : omis si le catalogue a changé dans la seconde en cours,
+    // une seconde modification dans la même seconde ne serait pas détectée par If-Modified-Since
+    private static long lastModified(CatalogVersion.Stamp stamp) {
+        return stamp.lastModified() / 1000 == System.currentTimeMillis() / 1000 ? -1 : stamp.lastModified();
+    }
+
+    private ResponseEntity<Produit> toResponse(ConditionalWrite<Produit> write) {
+        return switch (write.resultat()) {
+            case APPLIQUEE -> {
+                // Transaction validée : le produit est cherchable immédiatement
+                searchIndex.put(write.value());
+                yield ResponseEntity.ok().eTag(etags.of(write.value().getVersion())).body(write.value());
+            }
+            case INTROUVABLE -> ResponseEntity.notFound().build();
+            case VERSION_PERIMEE -> ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        };
+    }
+
+    @PostMapping("/{id}/reservation")
+    @Operation(summary = "Réserver du stock", description = "Décrémente atomiquement le stock du produit si la quantité disponible est suffisante. Avec 'reservation', la même réservation peut être rejouée sans nouveau décrément et libérée par son ID.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Stock réservé"),
+        @ApiResponse(responseCode = "404", description = "Produit non trouvé"),
+        @ApiResponse(responseCode = "409", description = "Stock insuffisant, ou réservation déjà libérée")
+    })
+    public ResponseEntity<Map<String, Object>> reserve(
+            @Parameter(description = "ID du produit", required = true) @PathVariable Long id,
+            @Parameter(description = "Quantité à réserver", required = true, example = "1") @RequestParam int quantite,
+            @Parameter(description = "ID de réservation choisi par l'appelant (idempotence)") @RequestParam(required = false) String reservation) {
+        if (quantite <= 0) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("message", "La quantité doit être supérieure à 0."));
+        }
+        if (reservation != null && (reservation.isBlank() || reservation.length() > MAX_RESERVATION_ID_LENGTH)) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("message", "ID de réservation invalide."));
+        }
+        return switch (stockService.reserve(id, quantite, reservation)) {
+            case RESERVEE -> ResponseEntity.ok(Map.of("produitId", id, "quantite", quantite));
+            case STOCK_INSUFFISANT -> ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Collections.singletonMap("message", "Stock insuffisant pour le produit " + id));
+            case ANNULEE -> ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Collections.singletonMap("message", "Réservation " + reservation + " déjà libérée"));
+            case PRODUIT_INCONNU -> ResponseEntity.notFound().build();
+        };
+    }
+
+    @DeleteMapping("/{id}/reservation")
+    @Operation(summary = "Libérer du stock réservé", description = "Rend au stock une réservation (par son ID) ou une quantité précédemment réservée (annulation de commande). Libérer une réservation inconnue est sans effet, et la fera refuser si elle arrive ensuite.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Stock libéré"),
+        @ApiResponse(responseCode = "404", description = "Produit non trouvé")
+    })
+    public ResponseEntity<Void> release(
+            @Parameter(description = "ID du produit", required = true) @PathVariable Long id,
+            @Parameter(description = "Quantité à libérer (sans ID de réservation)", example = "1") @RequestParam(required = false) Integer quantite,
+            @Parameter(description = "ID de la réservation à libérer") @RequestParam(required = false) String reservation) {
+        if (reservation != null) {
+            if (reservation.isBlank() || reservation.length() > MAX_RESERVATION_ID_LENGTH) {
+                return ResponseEntity.badRequest().build();
+            }
+            stockService.release(id, reservation);
+            return ResponseEntity.ok().build();
+        }
+        if (quantite == null || quantite <= 0) {
+            return ResponseEntity.badRequest().build();
         }
-        return ResponseEntity.notFound().build();
+        return stockService.release(id, quantite) == StockService.Resultat.RESERVEE
+                ? ResponseEntity.ok().build()
+                : ResponseEntity.notFound().build();
     }
 }
@@ -0,0 +1,70 @@
+package com.devoir.microserviceproduit.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Écriture en flux du format binaire d'export, ligne par ligne et sans tampon intermédiaire :
+ * entiers en varint zigzag, valeurs nullables précédées d'un 0 (null) ou codées avec un
+ * décalage de 1. Même codage que l'export binaire de microservice-commandes.
+ */
+final class BinaryRowWriter {
+
+    private final OutputStream out;
+
+    BinaryRowWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    void writeByte(int value) throws IOException {
+        out.write(value);
+    }
+
+    void writeBytes(byte[] bytes) throws IOException {
+        out.write(bytes);
+    }
+
+    void writeVarLong(long value) throws IOException {
+        writeUnsigned((value << 1) ^ (value >> 63));
+    }
+
+    // 0 = null, sinon zigzag(valeur) + 1
+    void writeNullableLong(Long value) throws IOException {
+        if (value == null) {
+            out.write(0);
+        } else {
+            writeUnsigned(((value << 1) ^ (value >> 63)) + 1);
+        }
+    }
+
+    void writeNullableDouble(Double value) throws IOException {
+        if (value == null) {
+            out.write(0);
+        } else {
+            out.write(1);
+            long bits = Double.doubleToRawLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (bits >>> shift));
+            }
+        }
+    }
+
+    void writeNullableString(String value) throws IOException {
+        if (value == null) {
+            out.write(0);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeUnsigned(bytes.length + 1L);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+
+    private void writeUnsigned(long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+}
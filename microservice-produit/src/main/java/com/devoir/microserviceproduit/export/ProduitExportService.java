@@ -0,0 +1,163 @@
+package com.devoir.microserviceproduit.export;
+
+import com.devoir.microserviceproduit.model.Produit;
+import com.devoir.microserviceproduit.repository.ProduitRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Export en masse du catalogue (CSV ou binaire compact), lu par curseur JDBC et écrit
+ * directement dans la réponse, compressé à la volée si le client accepte gzip.
+ *
+ * Format binaire : "PRDX", version, puis pour chaque ligne un octet 1 suivi de l'écart
+ * d'ID (varint zigzag), description, quantité, montant et version (nullables, cf.
+ * {@link BinaryRowWriter}). Un octet 0 et le nombre de lignes terminent le flux.
+ */
+@Service
+public class ProduitExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] MAGIC = {'P', 'R', 'D', 'X'};
+    private static final int VERSION = 1;
+    private static final String CSV_HEADER = "id,description,quantite,montant,version\n";
+
+    private final ProduitRepository repository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    public ProduitExportService(ProduitRepository repository, EntityManager entityManager,
+                                PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Écrit les produits triés par ID, éventuellement limités à une fourchette de prix.
+     * Chaque entité est détachée après écriture : la mémoire reste constante.
+     */
+    public void export(ExportFormat format, Double minMontant, Double maxMontant, boolean gzip, OutputStream out) {
+        transactionTemplate.execute(status -> {
+            try (Stream<Produit> produits = repository.streamFiltered(minMontant, maxMontant)) {
+                GZIPOutputStream compressed = gzip ? fastGzip(out) : null;
+                OutputStream target = compressed != null ? compressed : out;
+                if (format == ExportFormat.CSV) {
+                    writeCsv(produits, target);
+                } else {
+                    writeBinary(produits, target);
+                }
+                if (compressed != null) {
+                    compressed.finish();
+                }
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        });
+    }
+
+    private void writeCsv(Stream<Produit> produits, OutputStream target) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), BUFFER_SIZE);
+        w.write(CSV_HEADER);
+        for (Produit p : (Iterable<Produit>) produits::iterator) {
+            w.write(String.valueOf(p.getId()));
+            w.write(',');
+            writeCsvText(w, p.getDescription());
+            w.write(',');
+            writeCsvValue(w, p.getQuantite());
+            w.write(',');
+            writeCsvValue(w, p.getMontant());
+            w.write(',');
+            writeCsvValue(w, p.getVersion());
+            w.write('\n');
+            entityManager.detach(p);
+        }
+        w.flush();
+    }
+
+    private void writeBinary(Stream<Produit> produits, OutputStream target) throws IOException {
+        BufferedOutputStream buffered = new BufferedOutputStream(target, BUFFER_SIZE);
+        BinaryRowWriter w = new BinaryRowWriter(buffered);
+        w.writeBytes(MAGIC);
+        w.writeByte(VERSION);
+        long previousId = 0;
+        long rows = 0;
+        for (Produit p : (Iterable<Produit>) produits::iterator) {
+            w.writeByte(1);
+            w.writeVarLong(p.getId() - previousId);
+            previousId = p.getId();
+            w.writeNullableString(p.getDescription());
+            w.writeNullableLong(p.getQuantite() == null ? null : p.getQuantite().longValue());
+            w.writeNullableDouble(p.getMontant());
+            w.writeNullableLong(p.getVersion());
+            entityManager.detach(p);
+            rows++;
+        }
+        w.writeByte(0);
+        w.writeVarLong(rows);
+        buffered.flush();
+    }
+
+    private static void writeCsvValue(Writer w, Object value) throws IOException {
+        if (value != null) {
+            w.write(value.toString());
+        }
+    }
+
+    // Guillemets uniquement si nécessaire (RFC 4180)
+    private static void writeCsvText(Writer w, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char ch = value.charAt(i);
+            quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+        }
+        if (!quote) {
+            w.write(value);
+            return;
+        }
+        w.write('"');
+        w.write(value.replace("\"", "\"\""));
+        w.write('"');
+    }
+
+    private static GZIPOutputStream fastGzip(OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, BUFFER_SIZE) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        };
+    }
+
+    // Accept-Encoding: gzip (ou gzip;q>0)
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
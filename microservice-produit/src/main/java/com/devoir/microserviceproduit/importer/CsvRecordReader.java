@@ -0,0 +1,100 @@
+package com.devoir.microserviceproduit.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lecture en flux d'un CSV (RFC 4180), enregistrement par enregistrement : champs entre
+ * guillemets optionnels, "" pour un guillemet, retours à la ligne permis entre guillemets.
+ * Le pendant de l'écriture faite par l'export.
+ */
+final class CsvRecordReader {
+
+    private final Reader in;
+    private final StringBuilder field = new StringBuilder();
+    private int pending = -2;
+
+    CsvRecordReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Enregistrement suivant, ou null en fin de flux. Les lignes vides sont ignorées.
+     */
+    List<String> next() throws IOException {
+        List<String> record = new ArrayList<>();
+        boolean quoted = false;
+        boolean started = false;
+        field.setLength(0);
+        while (true) {
+            int ch = read();
+            if (ch == -1) {
+                if (quoted) {
+                    throw new IOException("Guillemet non fermé en fin de flux");
+                }
+                if (!started && record.isEmpty()) {
+                    return null;
+                }
+                record.add(field.toString());
+                return record;
+            }
+            if (quoted) {
+                if (ch == '"') {
+                    int following = read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        pending = following;
+                    }
+                } else {
+                    field.append((char) ch);
+                }
+                continue;
+            }
+            switch (ch) {
+                case '"' -> {
+                    quoted = true;
+                    started = true;
+                }
+                case ',' -> {
+                    record.add(field.toString());
+                    field.setLength(0);
+                    started = true;
+                }
+                case '\r' -> {
+                    // CRLF ou CR seul : fin d'enregistrement
+                    int following = read();
+                    if (following != '\n') {
+                        pending = following;
+                    }
+                    if (started || !record.isEmpty()) {
+                        record.add(field.toString());
+                        return record;
+                    }
+                }
+                case '\n' -> {
+                    if (started || !record.isEmpty()) {
+                        record.add(field.toString());
+                        return record;
+                    }
+                }
+                default -> {
+                    field.append((char) ch);
+                    started = true;
+                }
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (pending != -2) {
+            int ch = pending;
+            pending = -2;
+            return ch;
+        }
+        return in.read();
+    }
+}
@@ -0,0 +1,32 @@
+package com.devoir.microserviceproduit.importer;
+
+import org.springframework.http.MediaType;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Formats acceptés par l'import en masse (Content-Type de POST /produits/import).
+ */
+public enum ImportFormat {
+
+    CSV(new MediaType("text", "csv")),
+    NDJSON(MediaType.APPLICATION_NDJSON);
+
+    private final MediaType mediaType;
+
+    ImportFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    // Compare type et sous-type uniquement : le paramètre charset est lu à part
+    public static Optional<ImportFormat> fromContentType(MediaType contentType) {
+        return Arrays.stream(values())
+                .filter(f -> f.mediaType.equalsTypeAndSubtype(contentType))
+                .findFirst();
+    }
+}
@@ -0,0 +1,243 @@
+package com.devoir.microserviceproduit.importer;
+
+import com.devoir.microserviceproduit.model.Produit;
+import com.devoir.microserviceproduit.repository.ProduitJdbcRepository;
+import com.devoir.microserviceproduit.service.ProduitCache;
+import com.devoir.microserviceproduit.service.StockService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Import en masse du catalogue depuis un flux CSV (en-tête id,description,quantite,montant ;
+ * colonne version ignorée, comme celle produite par l'export) ou NDJSON (un objet produit par ligne).
+ *
+ * Une ligne sans ID crée un produit ; une ligne avec ID remplace ses champs, ou crée le produit
+ * avec cet ID s'il n'existe pas (MERGE), ce qui permet de recharger un export dans une base vide.
+ * La colonne identité est alors avancée au-delà des IDs importés. La quantité d'un produit
+ * chaud est remplacée via StockService, comme pour un PUT.
+ * Les lignes sont lues au fil de l'eau et écrites par lots JDBC (produits.import.batch-size),
+ * un lot par transaction. Le flux n'est lu qu'au rythme des écritures : la requête HTTP ne
+ * prend pas d'avance sur la base et la mémoire reste bornée à un lot.
+ *
+ * Si un lot échoue, ses lignes sont rejouées une à une pour n'écarter que les lignes fautives.
+ * L'avancement est suivi par le compteur produits.import.lignes (actuator) et résumé dans
+ * le rapport renvoyé.
+ */
+@Service
+@Slf4j
+public class ProduitImportService {
+
+    public record Rapport(long lues, long inserees, long modifiees, long rejetees, long dureeMs, List<String> erreurs) {
+    }
+
+    private record Ligne(long numero, Produit produit) {
+    }
+
+    private static final int MAX_ERREURS = 100;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ProduitJdbcRepository jdbcRepository;
+    private final ProduitCache produitCache;
+    private final StockService stockService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Counter lignesInserees;
+    private final Counter lignesModifiees;
+    private final Counter lignesRejetees;
+
+    public ProduitImportService(ProduitJdbcRepository jdbcRepository, ProduitCache produitCache,
+                                StockService stockService, ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${produits.import.batch-size:1000}") int batchSize) {
+        this.jdbcRepository = jdbcRepository;
+        this.produitCache = produitCache;
+        this.stockService = stockService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.lignesInserees = Counter.builder("produits.import.lignes").tag("result", "inseree").register(meterRegistry);
+        this.lignesModifiees = Counter.builder("produits.import.lignes").tag("result", "modifiee").register(meterRegistry);
+        this.lignesRejetees = Counter.builder("produits.import.lignes").tag("result", "rejetee").register(meterRegistry);
+    }
+
+    public Rapport importer(ImportFormat format, InputStream in, Charset charset) throws IOException {
+        Progression progression = new Progression();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, charset), BUFFER_SIZE);
+        if (format == ImportFormat.CSV) {
+            readCsv(new CsvRecordReader(reader), progression);
+        } else {
+            readNdjson(reader, progression);
+        }
+        progression.flush();
+        long dureeMs = (System.nanoTime() - progression.start) / 1_000_000;
+        log.info("Import de produits : {} lignes lues, {} insérées, {} modifiées, {} rejetées en {} ms",
+                progression.lues, progression.inserees, progression.modifiees, progression.rejetees, dureeMs);
+        return new Rapport(progression.lues, progression.inserees, progression.modifiees,
+                progression.rejetees, dureeMs, progression.erreurs);
+    }
+
+    private void readCsv(CsvRecordReader csv, Progression progression) throws IOException {
+        List<String> header = csv.next();
+        if (header == null) {
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(), i);
+        }
+        if (!columns.containsKey("description")) {
+            throw new IllegalArgumentException("En-tête CSV sans colonne description");
+        }
+        long numero = 1;
+        List<String> record;
+        while ((record = csv.next()) != null) {
+            numero++;
+            progression.lues++;
+            try {
+                progression.add(new Ligne(numero, Produit.builder()
+                        .id(parse(record, columns.get("id"), Long::valueOf))
+                        .description(parse(record, columns.get("description"), s -> s))
+                        .quantite(parse(record, columns.get("quantite"), Integer::valueOf))
+                        .montant(parse(record, columns.get("montant"), Double::valueOf))
+                        .build()));
+            } catch (NumberFormatException e) {
+                progression.reject(numero, "valeur numérique invalide (" + e.getMessage() + ")");
+            }
+        }
+    }
+
+    private void readNdjson(BufferedReader reader, Progression progression) throws IOException {
+        long numero = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            numero++;
+            if (line.isBlank()) {
+                continue;
+            }
+            progression.lues++;
+            try {
+                progression.add(new Ligne(numero, objectMapper.readValue(line, Produit.class)));
+            } catch (JsonProcessingException e) {
+                progression.reject(numero, "JSON invalide (" + e.getOriginalMessage() + ")");
+            }
+        }
+    }
+
+    private static <T> T parse(List<String> record, Integer column, Function<String, T> parser) {
+        if (column == null || column >= record.size()) {
+            return null;
+        }
+        String value = record.get(column).trim();
+        return value.isEmpty() ? null : parser.apply(value);
+    }
+
+    /**
+     * État d'un import : lot en cours et compteurs.
+     */
+    private final class Progression {
+
+        final long start = System.nanoTime();
+        final List<Ligne> lot = new ArrayList<>(batchSize);
+        final List<String> erreurs = new ArrayList<>();
+        long lues;
+        long inserees;
+        long modifiees;
+        long rejetees;
+
+        void add(Ligne ligne) {
+            lot.add(ligne);
+            if (lot.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (lot.isEmpty()) {
+                return;
+            }
+            try {
+                write(lot);
+            } catch (DataAccessException e) {
+                // Lot annulé : chaque ligne est rejouée seule pour isoler les fautives
+                for (Ligne ligne : lot) {
+                    try {
+                        write(List.of(ligne));
+                    } catch (DataAccessException rowError) {
+                        reject(ligne.numero(), rowError.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+            lot.clear();
+        }
+
+        private void write(List<Ligne> lignes) {
+            List<Produit> creations = new ArrayList<>();
+            List<Ligne> remplacements = new ArrayList<>();
+            for (Ligne ligne : lignes) {
+                if (ligne.produit().getId() == null) {
+                    creations.add(ligne.produit());
+                } else {
+                    remplacements.add(ligne);
+                }
+            }
+            List<Long> ids = new ArrayList<>();
+            List<Long> nouveaux = new ArrayList<>();
+            if (!remplacements.isEmpty()) {
+                jdbcRepository.reserveIdsUpTo(remplacements.stream().mapToLong(l -> l.produit().getId()).max().getAsLong());
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!creations.isEmpty()) {
+                    ids.addAll(jdbcRepository.insertAll(creations));
+                }
+                if (!remplacements.isEmpty()) {
+                    List<Produit> produits = remplacements.stream().map(Ligne::produit).toList();
+                    List<Long> produitIds = produits.stream().map(Produit::getId).toList();
+                    Set<Long> existants = jdbcRepository.existingIds(produitIds);
+                    stockService.overwriting(produitIds, () -> {
+                        jdbcRepository.upsertAll(produits);
+                        return null;
+                    });
+                    ids.addAll(produitIds);
+                    produitIds.stream().distinct().filter(id -> !existants.contains(id)).forEach(nouveaux::add);
+                }
+            });
+            // Après le commit : cache, index de recherche et autres instances
+            if (!ids.isEmpty()) {
+                produitCache.evictAll(ids);
+            }
+            inserees += creations.size() + nouveaux.size();
+            lignesInserees.increment(creations.size() + nouveaux.size());
+            modifiees += remplacements.size() - nouveaux.size();
+            lignesModifiees.increment(remplacements.size() - nouveaux.size());
+        }
+
+        void reject(long numero, String message) {
+            rejetees++;
+            lignesRejetees.increment();
+            if (erreurs.size() < MAX_ERREURS) {
+                erreurs.add("ligne " + numero + " : " + message);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.devoir.microserviceproduit.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Ligne unique (id = 1) créée avec la base : epoch des ETags, qui ne change que si la base est
+ * recréée, et nombre de démarrages sur cette base.
+ */
+@Entity
+@Table(name = "catalog_state")
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+public class CatalogState {
+
+    @Id
+    private Integer id;
+
+    @Column(length = 16)
+    private String epoch;
+
+    private Long boots;
+}
@@ -25,4 +25,8 @@ public class Produit {
     
     @Schema(description = "Prix unitaire en DHS", example = "50.10", required = true)
     private Double montant;
+
+    @Version
+    @Schema(description = "Version pour le verrouillage optimiste (gérée par le serveur)", accessMode = Schema.AccessMode.READ_ONLY)
+    private Long version;
 }
@@ -0,0 +1,25 @@
+package com.devoir.microserviceproduit.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Stock retiré de la base pour le compteur en mémoire d'un produit très demandé, et pas encore
+ * rapproché des réservations servies ni rendu. Mis à jour au rechargement et à la restitution
+ * du bloc, jamais à chaque réservation.
+ */
+@Entity
+@Table(name = "stock_lease")
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+public class StockLease {
+
+    @Id
+    @Column(name = "produit_id")
+    private Long produitId;
+
+    private Integer leased;
+}
@@ -0,0 +1,51 @@
+package com.devoir.microserviceproduit.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Réservation de stock identifiée par l'appelant (microservice-commandes) : rejouer la même
+ * réservation ne décrémente pas le stock une seconde fois, et une libération arrivée avant la
+ * réservation qu'elle annule laisse une ligne LIBEREE qui fait refuser celle-ci.
+ *
+ * fromLease : réservation servie depuis le compteur en mémoire d'un produit très demandé ;
+ * ces lignes permettent de rendre à la base le reliquat d'un bloc perdu lors d'un arrêt brutal.
+ */
+@Entity
+@Table(name = "stock_reservation", indexes = {
+    @Index(name = "idx_reservation_lease", columnList = "produit_id, from_lease, lease_settled"),
+    @Index(name = "idx_reservation_created", columnList = "created_at")
+})
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+public class StockReservation {
+
+    public static final String RESERVEE = "RESERVEE";
+    public static final String LIBEREE = "LIBEREE";
+
+    @Id
+    @Column(length = 64)
+    private String id;
+
+    @Column(name = "produit_id")
+    private Long produitId;
+
+    private Integer quantite;
+
+    @Column(length = 16)
+    private String statut;
+
+    @Column(name = "from_lease")
+    private boolean fromLease;
+
+    @Column(name = "lease_settled")
+    private boolean leaseSettled;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+}
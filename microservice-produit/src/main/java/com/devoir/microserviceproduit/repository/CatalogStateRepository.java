@@ -0,0 +1,31 @@
+package com.devoir.microserviceproduit.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * État du catalogue conservé en base (catalog_state), lu une fois au démarrage.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CatalogStateRepository {
+
+    public record State(String epoch, long boot) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Compte un démarrage de plus ; sur une base neuve, crée la ligne avec {@code newEpoch}.
+     */
+    @Transactional
+    public State start(String newEpoch) {
+        if (jdbcTemplate.update("update catalog_state set boots = boots + 1 where id = 1") == 0) {
+            jdbcTemplate.update("insert into catalog_state (id, epoch, boots) values (1, ?, 1)", newEpoch);
+        }
+        return jdbcTemplate.queryForObject("select epoch, boots from catalog_state where id = 1",
+                (rs, i) -> new State(rs.getString("epoch"), rs.getLong("boots")));
+    }
+}
@@ -0,0 +1,178 @@
+package com.devoir.microserviceproduit.repository;
+
+import com.devoir.microserviceproduit.model.Produit;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Écritures conditionnelles en une seule requête, sans charger l'entité. L'UPDATE est
+ * encapsulé dans FINAL TABLE (H2), qui renvoie la ligne modifiée ; aucune ligne = produit
+ * introuvable ou version périmée. Écritures par lots JDBC pour l'import en masse.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProduitJdbcRepository {
+
+    // Champs modifiables : nom JSON -> (colonne, accesseur)
+    public static final Map<String, Column> COLUMNS = Map.of(
+            "description", new Column("description", Produit::getDescription),
+            "quantite", new Column("quantite", Produit::getQuantite),
+            "montant", new Column("montant", Produit::getMontant));
+
+    private static final RowMapper<Produit> ROW_MAPPER = (rs, i) -> Produit.builder()
+            .id(rs.getLong("id"))
+            .description(rs.getString("description"))
+            .quantite(rs.getObject("quantite", Integer.class))
+            .montant(rs.getObject("montant", Double.class))
+            .version(rs.getObject("version", Long.class))
+            .build();
+
+    private static final String INSERT_SQL =
+            "insert into produit (description, quantite, montant, version) values (?, ?, ?, 0)";
+    // Ligne existante : champs remplacés et version incrémentée ; sinon créée avec l'ID fourni
+    private static final String UPSERT_SQL =
+            "merge into produit p using (values (cast(? as varchar), cast(? as integer), cast(? as double precision), " +
+            "cast(? as bigint))) s (description, quantite, montant, id) on p.id = s.id " +
+            "when matched then update set description = s.description, quantite = s.quantite, montant = s.montant, " +
+            "version = coalesce(p.version, 0) + 1 " +
+            "when not matched then insert (id, description, quantite, montant, version) " +
+            "values (s.id, s.description, s.quantite, s.montant, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Modifie les champs listés avec les valeurs de {@code values} et incrémente la version.
+     * {@code versions} null = sans condition de version.
+     */
+    public Optional<Produit> update(Long id, Produit values, Collection<String> fields, Collection<Long> versions) {
+        StringBuilder sql = new StringBuilder("select id, description, quantite, montant, version from final table (update produit set ");
+        List<Object> args = new ArrayList<>();
+        for (String field : fields) {
+            Column column = COLUMNS.get(field);
+            sql.append(column.name()).append(" = ?, ");
+            args.add(column.getter().apply(values));
+        }
+        sql.append("version = coalesce(version, 0) + 1 where id = ?");
+        args.add(id);
+        appendVersionCondition(sql, args, versions);
+        sql.append(')');
+        return jdbcTemplate.query(sql.toString(), ROW_MAPPER, args.toArray()).stream().findFirst();
+    }
+
+    public boolean delete(Long id, Collection<Long> versions) {
+        StringBuilder sql = new StringBuilder("delete from produit where id = ?");
+        List<Object> args = new ArrayList<>();
+        args.add(id);
+        appendVersionCondition(sql, args, versions);
+        return jdbcTemplate.update(sql.toString(), args.toArray()) == 1;
+    }
+
+    /**
+     * Insère les produits en un seul lot JDBC ; renvoie les IDs générés, dans l'ordre des produits.
+     */
+    public List<Long> insertAll(List<Produit> produits) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, new String[] {"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        setFields(ps, produits.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return produits.size();
+                    }
+                }, keys);
+        return keys.getKeyList().stream()
+                .map(key -> ((Number) key.values().iterator().next()).longValue())
+                .toList();
+    }
+
+    /**
+     * Remplace description, quantité et prix des produits (par ID) en un seul lot JDBC et
+     * incrémente leur version ; un ID inconnu crée le produit avec cet ID. Appeler
+     * {@link #reserveIdsUpTo(long)} avant, hors transaction, pour que l'identité ne le redistribue pas.
+     */
+    public void upsertAll(List<Produit> produits) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Produit p = produits.get(i);
+                setFields(ps, p);
+                ps.setLong(4, p.getId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return produits.size();
+            }
+        });
+    }
+
+    /**
+     * IDs déjà présents parmi {@code ids}.
+     */
+    public Set<Long> existingIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList("select id from produit where id in (" + placeholders + ")",
+                Long.class, ids.toArray()));
+    }
+
+    /**
+     * Avance la colonne identité au-delà de {@code maxId} : H2 ne le fait pas pour une valeur
+     * insérée explicitement, et la création suivante reprendrait cet ID. Jamais de recul.
+     * ALTER TABLE valide la transaction en cours : à appeler hors transaction.
+     */
+    public synchronized void reserveIdsUpTo(long maxId) {
+        Long next = jdbcTemplate.queryForList("select identity_base from information_schema.columns " +
+                "where table_name = 'PRODUIT' and column_name = 'ID'", Long.class).stream().findFirst().orElse(null);
+        if (next != null && next <= maxId) {
+            jdbcTemplate.execute("alter table produit alter column id restart with " + (maxId + 1));
+        }
+    }
+
+    private static void setFields(PreparedStatement ps, Produit p) throws SQLException {
+        ps.setObject(1, p.getDescription(), Types.VARCHAR);
+        ps.setObject(2, p.getQuantite(), Types.INTEGER);
+        ps.setObject(3, p.getMontant(), Types.DOUBLE);
+    }
+
+    private static void appendVersionCondition(StringBuilder sql, List<Object> args, Collection<Long> versions) {
+        if (versions == null) {
+            return;
+        }
+        sql.append(" and coalesce(version, 0) in (");
+        String separator = "";
+        for (Long version : versions) {
+            sql.append(separator).append('?');
+            args.add(version);
+            separator = ", ";
+        }
+        sql.append(')');
+    }
+
+    public record Column(String name, Function<Produit, Object> getter) {
+    }
+}
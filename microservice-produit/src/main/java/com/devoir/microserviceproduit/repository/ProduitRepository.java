@@ -1,7 +1,42 @@
 package com.devoir.microserviceproduit.repository;
 
 import com.devoir.microserviceproduit.model.Produit;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface ProduitRepository extends JpaRepository<Produit, Long>{
+
+    // Décrément conditionnel atomique : une seule requête, 0 ligne modifiée si le stock est insuffisant
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Produit p set p.quantite = p.quantite - :quantite, p.version = coalesce(p.version, 0) + 1 " +
+           "where p.id = :id and p.quantite >= :quantite")
+    int decrementStock(@Param("id") Long id, @Param("quantite") int quantite);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Produit p set p.quantite = p.quantite + :quantite, p.version = coalesce(p.version, 0) + 1 " +
+           "where p.id = :id")
+    int incrementStock(@Param("id") Long id, @Param("quantite") int quantite);
+
+    // Lecture en flux pour l'export : doit être consommé dans une transaction et fermé après usage
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("select p from Produit p " +
+           "where (:minMontant is null or p.montant >= :minMontant) " +
+           "and (:maxMontant is null or p.montant <= :maxMontant) " +
+           "order by p.id asc")
+    Stream<Produit> streamFiltered(@Param("minMontant") Double minMontant, @Param("maxMontant") Double maxMontant);
 }
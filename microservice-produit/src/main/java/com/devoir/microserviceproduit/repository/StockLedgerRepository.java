@@ -0,0 +1,96 @@
+package com.devoir.microserviceproduit.repository;
+
+import com.devoir.microserviceproduit.model.StockReservation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Registre des réservations de stock (stock_reservation) et des blocs réservés pour les
+ * compteurs en mémoire (stock_lease). Comme ProduitJdbcRepository, les changements d'état se
+ * font en une requête : FINAL TABLE (H2) renvoie les lignes effectivement modifiées.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockLedgerRepository {
+
+    public record Released(Long produitId, int quantite) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<String> statut(String reservationId) {
+        return jdbcTemplate.queryForList("select statut from stock_reservation where id = ?", String.class, reservationId)
+                .stream().findFirst();
+    }
+
+    /**
+     * Enregistre une réservation ; DuplicateKeyException si l'ID est déjà connu.
+     */
+    public void insert(String reservationId, Long produitId, int quantite, String statut, boolean fromLease) {
+        jdbcTemplate.update("insert into stock_reservation (id, produit_id, quantite, statut, from_lease, lease_settled, created_at) " +
+                        "values (?, ?, ?, ?, ?, false, ?)",
+                reservationId, produitId, quantite, statut, fromLease, Timestamp.from(Instant.now()));
+    }
+
+    /**
+     * Passe la réservation à LIBEREE si elle était RESERVEE ; vide sinon.
+     */
+    public Optional<Released> release(String reservationId) {
+        return jdbcTemplate.query("select produit_id, quantite from final table (update stock_reservation set statut = ? " +
+                                "where id = ? and statut = ?)",
+                        (rs, i) -> new Released(rs.getLong("produit_id"), rs.getInt("quantite")),
+                        StockReservation.LIBEREE, reservationId, StockReservation.RESERVEE)
+                .stream().findFirst();
+    }
+
+    /**
+     * Quantité servie depuis le compteur en mémoire du produit depuis le dernier rapprochement ;
+     * les réservations comptées sont marquées dans la même requête.
+     */
+    public int settleLease(Long produitId) {
+        Integer settled = jdbcTemplate.queryForObject("select coalesce(sum(quantite), 0) from final table (" +
+                "update stock_reservation set lease_settled = true " +
+                "where produit_id = ? and from_lease = true and lease_settled = false)", Integer.class, produitId);
+        return settled != null ? settled : 0;
+    }
+
+    public void addLease(Long produitId, int delta) {
+        if (jdbcTemplate.update("update stock_lease set leased = leased + ? where produit_id = ?", delta, produitId) == 0) {
+            jdbcTemplate.update("insert into stock_lease (produit_id, leased) values (?, ?)", produitId, delta);
+        }
+    }
+
+    /**
+     * Blocs (produit -> quantité) non rapprochés, laissés par une exécution précédente.
+     */
+    public Map<Long, Integer> leases() {
+        return jdbcTemplate.query("select produit_id, leased from stock_lease",
+                rs -> {
+                    Map<Long, Integer> leases = new HashMap<>();
+                    while (rs.next()) {
+                        leases.put(rs.getLong("produit_id"), rs.getInt("leased"));
+                    }
+                    return leases;
+                });
+    }
+
+    public void resetLease(Long produitId) {
+        jdbcTemplate.update("update stock_lease set leased = 0 where produit_id = ?", produitId);
+    }
+
+    /**
+     * Supprime les réservations plus anciennes que {@code cutoff}, sauf celles servies depuis un
+     * compteur en mémoire et pas encore rapprochées.
+     */
+    public int deleteBefore(Instant cutoff) {
+        return jdbcTemplate.update("delete from stock_reservation where created_at < ? and (from_lease = false or lease_settled = true)",
+                Timestamp.from(cutoff));
+    }
+}
@@ -0,0 +1,93 @@
+package com.devoir.microserviceproduit.search;
+
+import java.util.Arrays;
+
+/**
+ * Scores des candidats d'une recherche (ID -> score), en adressage ouvert comme {@link LongSet}.
+ * Pas de suppression : une table est construite par mot de la requête puis abandonnée.
+ */
+final class LongIntMap {
+
+    interface Visitor {
+        void visit(long id, int value);
+    }
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    LongIntMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, LongSet.FREE);
+    }
+
+    /**
+     * Valeur associée, 0 si l'ID est absent (les scores sont toujours positifs).
+     */
+    int get(long id) {
+        int mask = keys.length - 1;
+        for (int i = LongSet.slot(id, mask); keys[i] != LongSet.FREE; i = (i + 1) & mask) {
+            if (keys[i] == id) {
+                return values[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Garde la plus grande des deux valeurs.
+     */
+    void putMax(long id, int value) {
+        int mask = keys.length - 1;
+        int i = LongSet.slot(id, mask);
+        while (keys[i] != LongSet.FREE) {
+            if (keys[i] == id) {
+                values[i] = Math.max(values[i], value);
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = id;
+        values[i] = value;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != LongSet.FREE) {
+                visitor.visit(keys[i], values[i]);
+            }
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        Arrays.fill(keys, LongSet.FREE);
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != LongSet.FREE) {
+                int i = LongSet.slot(oldKeys[j], mask);
+                while (keys[i] != LongSet.FREE) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+}
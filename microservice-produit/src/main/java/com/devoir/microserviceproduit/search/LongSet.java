@@ -0,0 +1,99 @@
+package com.devoir.microserviceproduit.search;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Ensemble d'IDs en adressage ouvert (sondage linéaire), sans objet Long par élément : une liste
+ * de l'index inversé coûte 8 octets par produit au lieu d'une entrée de HashSet.
+ * Non synchronisé ; {@link ProduitSearchIndex} le protège par son verrou.
+ */
+final class LongSet {
+
+    // Aucun ID de séquence ne prend cette valeur
+    static final long FREE = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int size;
+
+    LongSet() {
+        keys = new long[4];
+        Arrays.fill(keys, FREE);
+    }
+
+    boolean add(long id) {
+        int i = slot(id, keys.length - 1);
+        while (keys[i] != FREE) {
+            if (keys[i] == id) {
+                return false;
+            }
+            i = (i + 1) & (keys.length - 1);
+        }
+        keys[i] = id;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+        return true;
+    }
+
+    boolean remove(long id) {
+        int mask = keys.length - 1;
+        int i = slot(id, mask);
+        while (keys[i] != id) {
+            if (keys[i] == FREE) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = FREE;
+        size--;
+        // Recule les suivants de la même séquence pour ne pas laisser de trou sur leur chemin
+        for (int j = (i + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                keys[j] = FREE;
+                i = j;
+            }
+        }
+        return true;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(LongConsumer action) {
+        for (long key : keys) {
+            if (key != FREE) {
+                action.accept(key);
+            }
+        }
+    }
+
+    private void grow() {
+        long[] old = keys;
+        keys = new long[old.length * 2];
+        Arrays.fill(keys, FREE);
+        int mask = keys.length - 1;
+        for (long key : old) {
+            if (key != FREE) {
+                int i = slot(key, mask);
+                while (keys[i] != FREE) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+            }
+        }
+    }
+
+    // Les IDs se suivent : mélange de Fibonacci pour les répartir sur toute la table
+    static int slot(long id, int mask) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,278 @@
+package com.devoir.microserviceproduit.search;
+
+import com.devoir.microserviceproduit.model.Produit;
+import com.devoir.microserviceproduit.repository.ProduitRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Index inversé en mémoire sur la description des produits.
+ *
+ * Les termes (minuscules, sans accents) sont rangés dans un dictionnaire trié : une recherche
+ * par préfixe parcourt seulement la plage de termes commençant par ce préfixe, sans parcourir
+ * les produits. Un mot de moins de {@value #MIN_PREFIX} caractères ne correspond qu'au terme
+ * identique : une seule lettre ne déroule pas toute une plage du dictionnaire. Un produit doit
+ * correspondre à tous les mots de la requête ; un mot égal à un terme compte double par rapport
+ * à un simple préfixe. Les listes d'IDs et les scores sont en types primitifs ({@link LongSet},
+ * {@link LongIntMap}). Les filtres de prix et de stock
+ * s'appliquent aux candidats, et seuls les K meilleurs sont conservés (tas borné).
+ *
+ * Construit au démarrage, en arrière-plan, en lisant le catalogue par curseur. Les écritures faites par le
+ * contrôleur sont indexées immédiatement ; les autres changements (stock, invalidations des
+ * autres instances) sont marqués puis relus en base par lots, à intervalle régulier.
+ */
+@Component
+@Slf4j
+public class ProduitSearchIndex {
+
+    public record Criteres(String q, Double minMontant, Double maxMontant,
+                           Integer minQuantite, Integer maxQuantite, int limit) {
+    }
+
+    private record Document(Produit produit, String[] terms) {
+    }
+
+    private record Hit(Document document, int score) {
+    }
+
+    private static final int EXACT = 2;
+    private static final int PREFIX = 1;
+    static final int MIN_PREFIX = 2;
+    private static final int REFRESH_BATCH = 500;
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    // Meilleur score d'abord, puis ID croissant pour un ordre stable
+    private static final Comparator<Hit> RANKING = Comparator.comparingInt(Hit::score).reversed()
+            .thenComparing(h -> h.document().produit().getId());
+
+    private final ProduitRepository repository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final NavigableMap<String, LongSet> postings = new TreeMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    public ProduitSearchIndex(ProduitRepository repository, EntityManager entityManager,
+                              PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Indexe tout le catalogue, lu par curseur. Appelé au démarrage par {@code CatalogPreloader}.
+     */
+    public int build() {
+        long start = System.nanoTime();
+        int count = transactionTemplate.execute(status -> {
+            int n = 0;
+            try (Stream<Produit> produits = repository.streamFiltered(null, null)) {
+                for (Produit p : (Iterable<Produit>) produits::iterator) {
+                    put(p);
+                    entityManager.detach(p);
+                    n++;
+                }
+            }
+            return n;
+        });
+        log.info("Index de recherche construit : {} produits, {} termes en {} ms",
+                count, postings.size(), (System.nanoTime() - start) / 1_000_000);
+        return count;
+    }
+
+    public List<Produit> search(Criteres criteres) {
+        List<String> words = tokenize(criteres.q());
+        if (words.isEmpty() || criteres.limit() <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            LongIntMap scores = null;
+            for (String word : words) {
+                LongIntMap previous = scores;
+                Collection<Map.Entry<String, LongSet>> terms = terms(word);
+                int expected = 0;
+                for (Map.Entry<String, LongSet> term : terms) {
+                    expected += term.getValue().size();
+                }
+                LongIntMap matches = new LongIntMap(previous == null ? expected : Math.min(expected, previous.size()));
+                for (Map.Entry<String, LongSet> term : terms) {
+                    int weight = term.getKey().equals(word) ? EXACT : PREFIX;
+                    term.getValue().forEach(id -> {
+                        if (previous == null) {
+                            matches.putMax(id, weight);
+                        } else {
+                            int score = previous.get(id);
+                            if (score > 0) {
+                                matches.putMax(id, score + weight);
+                            }
+                        }
+                    });
+                }
+                scores = matches;
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            // Tas de taille K dont la racine est le moins bon résultat retenu
+            PriorityQueue<Hit> top = new PriorityQueue<>(criteres.limit() + 1, RANKING.reversed());
+            scores.forEach((id, score) -> {
+                Document document = documents.get(id);
+                if (!matches(document.produit(), criteres)) {
+                    return;
+                }
+                top.add(new Hit(document, score));
+                if (top.size() > criteres.limit()) {
+                    top.poll();
+                }
+            });
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(RANKING);
+            return hits.stream().map(h -> copy(h.document().produit())).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Plage des termes commençant par le mot, ou seulement le terme identique si le mot est trop court
+    private Collection<Map.Entry<String, LongSet>> terms(String word) {
+        if (word.length() >= MIN_PREFIX) {
+            return postings.subMap(word, true, word + Character.MAX_VALUE, false).entrySet();
+        }
+        LongSet ids = postings.get(word);
+        return ids != null ? List.of(Map.entry(word, ids)) : List.of();
+    }
+
+    /**
+     * Indexe l'état d'un produit ; ignoré si l'index connaît déjà une version plus récente.
+     */
+    public void put(Produit produit) {
+        Produit snapshot = copy(produit);
+        String[] terms = tokenize(produit.getDescription()).toArray(String[]::new);
+        lock.writeLock().lock();
+        try {
+            Document previous = documents.get(produit.getId());
+            if (previous != null && version(previous.produit()) > version(snapshot)) {
+                return;
+            }
+            if (previous != null) {
+                unlink(produit.getId(), previous.terms());
+            }
+            documents.put(produit.getId(), new Document(snapshot, terms));
+            for (String term : terms) {
+                postings.computeIfAbsent(term, t -> new LongSet()).add(produit.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            Document previous = documents.remove(id);
+            if (previous != null) {
+                unlink(id, previous.terms());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Signale un produit modifié hors du contrôleur : il sera relu en base au prochain rafraîchissement.
+     */
+    public void markDirty(Collection<Long> ids) {
+        dirty.addAll(ids);
+    }
+
+    @Scheduled(fixedDelayString = "${produits.search.refresh-interval:PT0.5S}")
+    public void refresh() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Long> batch = new ArrayList<>(REFRESH_BATCH);
+        for (Iterator<Long> it = dirty.iterator(); it.hasNext(); ) {
+            batch.add(it.next());
+            it.remove();
+            if (batch.size() == REFRESH_BATCH || !it.hasNext()) {
+                Set<Long> missing = new HashSet<>(batch);
+                repository.findAllById(batch).forEach(p -> {
+                    put(p);
+                    missing.remove(p.getId());
+                });
+                missing.forEach(this::remove);
+                batch.clear();
+            }
+        }
+    }
+
+    private void unlink(Long id, String[] terms) {
+        for (String term : terms) {
+            LongSet ids = postings.get(term);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    private static boolean matches(Produit p, Criteres c) {
+        return (c.minMontant() == null || (p.getMontant() != null && p.getMontant() >= c.minMontant()))
+                && (c.maxMontant() == null || (p.getMontant() != null && p.getMontant() <= c.maxMontant()))
+                && (c.minQuantite() == null || (p.getQuantite() != null && p.getQuantite() >= c.minQuantite()))
+                && (c.maxQuantite() == null || (p.getQuantite() != null && p.getQuantite() <= c.maxQuantite()));
+    }
+
+    // Minuscules, accents retirés, découpage sur tout ce qui n'est ni lettre ni chiffre
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        return Arrays.stream(SEPARATORS.split(normalized)).filter(s -> !s.isEmpty()).distinct().toList();
+    }
+
+    private static long version(Produit p) {
+        return p.getVersion() != null ? p.getVersion() : 0L;
+    }
+
+    // Copie détachée : l'index ne partage pas d'entité avec la session JPA ni avec les appelants
+    private static Produit copy(Produit p) {
+        return Produit.builder()
+                .id(p.getId())
+                .description(p.getDescription())
+                .quantite(p.getQuantite())
+                .montant(p.getMontant())
+                .version(p.getVersion())
+                .build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.devoir.microserviceproduit.service;
+
+import com.devoir.microserviceproduit.search.ProduitSearchIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Préchargement en arrière-plan au démarrage : index de recherche, instantané du catalogue
+ * et cache par ID. Lancé après ApplicationReadyEvent sur l'exécuteur de tâches, il ne retarde
+ * pas la disponibilité du service ; d'ici sa fin, les lectures passent par la base et la
+ * recherche peut renvoyer des résultats incomplets. Durée mesurée dans le timer startup.preload.
+ */
+@Component
+@Slf4j
+public class CatalogPreloader {
+
+    private final ProduitSearchIndex searchIndex;
+    private final ProduitCache produitCache;
+    private final TaskExecutor taskExecutor;
+    private final Timer timer;
+    private final boolean enabled;
+
+    public CatalogPreloader(ProduitSearchIndex searchIndex, ProduitCache produitCache,
+                            @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                            MeterRegistry meterRegistry,
+                            @Value("${produits.preload.enabled:true}") boolean enabled) {
+        this.searchIndex = searchIndex;
+        this.produitCache = produitCache;
+        this.taskExecutor = taskExecutor;
+        this.timer = Timer.builder("startup.preload").tag("cible", "catalogue").register(meterRegistry);
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady(ApplicationReadyEvent event) {
+        log.info("Service prêt en {} ms (démarrage JVM compris : application.ready.time)", event.getTimeTaken().toMillis());
+        // L'index n'a pas d'autre source que ce chargement : il est construit même sans préchargement du cache
+        taskExecutor.execute(() -> {
+            long start = System.nanoTime();
+            try {
+                searchIndex.build();
+                int produits = enabled ? produitCache.preload() : 0;
+                long elapsed = System.nanoTime() - start;
+                timer.record(Duration.ofNanos(elapsed));
+                log.info("Préchargement : {} produits en cache en {} ms", produits, elapsed / 1_000_000);
+            } catch (RuntimeException e) {
+                log.warn("Préchargement du catalogue interrompu", e);
+            }
+        });
+    }
+}
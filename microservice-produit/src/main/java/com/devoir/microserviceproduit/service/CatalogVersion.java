@@ -0,0 +1,60 @@
+package com.devoir.microserviceproduit.service;
+
+import com.devoir.microserviceproduit.repository.CatalogStateRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Version globale du catalogue, incrémentée après chaque écriture validée sur les produits
+ * (création, modification, suppression, mouvement de stock en base) par {@link ProduitCache}. Sert de validateur
+ * (ETag, Last-Modified) pour les GET sur la liste des produits.
+ *
+ * Lire la version avant les données garantit qu'une réponse n'est jamais étiquetée avec une
+ * version plus récente que son contenu : au pire, le client recharge une fois de trop.
+ *
+ * La version repart de 0 à chaque démarrage ; l'epoch et le numéro de démarrage, conservés en
+ * base, distinguent les ETags : ceux des produits (epoch et @Version) survivent à un
+ * redémarrage sur la même base, ceux du catalogue changent une fois par démarrage.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class CatalogVersion {
+
+    public record Stamp(long value, long lastModified) {
+    }
+
+    private final CatalogStateRepository stateRepository;
+    private final AtomicReference<Stamp> current = new AtomicReference<>(new Stamp(0, System.currentTimeMillis()));
+    private volatile CatalogStateRepository.State state;
+
+    public CatalogVersion(CatalogStateRepository stateRepository) {
+        this.stateRepository = stateRepository;
+    }
+
+    @PostConstruct
+    void start() {
+        state = stateRepository.start(Long.toString(System.currentTimeMillis(), 36));
+    }
+
+    public Stamp current() {
+        return current.get();
+    }
+
+    public void bump() {
+        current.updateAndGet(s -> new Stamp(s.value() + 1, System.currentTimeMillis()));
+    }
+
+    /**
+     * Epoch de la base : change seulement si elle est recréée (base en mémoire, fichier supprimé).
+     */
+    public String epoch() {
+        return state.epoch();
+    }
+
+    public long boot() {
+        return state.boot();
+    }
+}
@@ -0,0 +1,18 @@
+package com.devoir.microserviceproduit.service;
+
+/**
+ * Résultat d'une écriture conditionnée par la version (If-Match).
+ * Copie de celui de microservice-commandes : chaque service se construit seul.
+ */
+public record ConditionalWrite<T>(Resultat resultat, T value) {
+
+    public enum Resultat { APPLIQUEE, INTROUVABLE, VERSION_PERIMEE }
+
+    public static <T> ConditionalWrite<T> appliquee(T value) {
+        return new ConditionalWrite<>(Resultat.APPLIQUEE, value);
+    }
+
+    public static <T> ConditionalWrite<T> echec(Resultat resultat) {
+        return new ConditionalWrite<>(resultat, null);
+    }
+}
@@ -0,0 +1,146 @@
+package com.devoir.microserviceproduit.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Diffuse les invalidations du cache produit aux autres instances de ce service
+ * enregistrées dans Eureka. Les IDs modifiés sont accumulés puis envoyés en un seul
+ * POST par pair à chaque intervalle (produits.cache.peer-flush-interval) : un pair sert
+ * au plus une donnée périmée pendant cet intervalle, et une rafale de réservations sur
+ * le même produit ne produit qu'un appel.
+ *
+ * Transport embarqué : simple appel HTTP vers {@link #PATH}, sans broker à déployer.
+ * Les envois se font sur l'exécuteur de tâches, un seul à la fois, pour ne pas bloquer le
+ * thread partagé des tâches planifiées. Un envoi en échec est rejoué au pair concerné à
+ * l'intervalle suivant, tant qu'il reste enregistré ; l'expiration du cache borne le reste.
+ */
+@Component
+@Slf4j
+public class PeerInvalidationBroadcaster {
+
+    // Hors de /produits : la route du gateway ne l'expose pas aux clients
+    public static final String PATH = "/internal/cache/invalidations";
+
+    private final DiscoveryClient discoveryClient;
+    private final ObjectProvider<Registration> registration;
+    private final String serviceId;
+    private final RestClient restClient;
+    private final TaskExecutor taskExecutor;
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    // IDs à renvoyer, par instance, après un envoi en échec
+    private final Map<String, Set<Long>> failed = new ConcurrentHashMap<>();
+    private final AtomicBoolean sending = new AtomicBoolean();
+
+    public PeerInvalidationBroadcaster(DiscoveryClient discoveryClient,
+                                       ObjectProvider<Registration> registration,
+                                       @Value("${spring.application.name}") String serviceId,
+                                       @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                                       @Value("${produits.cache.peer-timeout:PT1S}") Duration timeout) {
+        this.discoveryClient = discoveryClient;
+        this.registration = registration;
+        this.serviceId = serviceId;
+        this.taskExecutor = taskExecutor;
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeout);
+        requestFactory.setReadTimeout(timeout);
+        this.restClient = RestClient.builder().requestFactory(requestFactory).build();
+    }
+
+    public void publish(Long id) {
+        pending.add(id);
+    }
+
+    @Scheduled(fixedDelayString = "${produits.cache.peer-flush-interval:PT0.2S}")
+    public void flush() {
+        if (pending.isEmpty() && failed.isEmpty()) {
+            return;
+        }
+        // Envoi précédent encore en cours : les IDs attendent l'intervalle suivant
+        if (!sending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    send();
+                } finally {
+                    sending.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            sending.set(false);
+            throw e;
+        }
+    }
+
+    private void send() {
+        // Un ID ajouté pendant le parcours reste dans l'ensemble pour l'envoi suivant
+        List<Long> ids = new ArrayList<>();
+        for (Iterator<Long> it = pending.iterator(); it.hasNext(); ) {
+            ids.add(it.next());
+            it.remove();
+        }
+        List<ServiceInstance> peers = peers();
+        for (ServiceInstance peer : peers) {
+            Set<Long> batch = new HashSet<>(ids);
+            Set<Long> retry = failed.remove(peer.getInstanceId());
+            if (retry != null) {
+                batch.addAll(retry);
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                restClient.post()
+                        .uri(peer.getUri().resolve(PATH))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(batch)
+                        .retrieve()
+                        .toBodilessEntity();
+            } catch (RestClientException e) {
+                log.warn("Invalidation non transmise à {} ({} produits), nouvel essai à l'intervalle suivant: {}",
+                        peer.getUri(), batch.size(), e.getMessage());
+                failed.merge(peer.getInstanceId(), batch, (a, b) -> {
+                    a.addAll(b);
+                    return a;
+                });
+            }
+        }
+        // Instance désinscrite : son cache a disparu avec elle
+        Set<String> registered = new HashSet<>();
+        peers.forEach(peer -> registered.add(peer.getInstanceId()));
+        failed.keySet().retainAll(registered);
+    }
+
+    private List<ServiceInstance> peers() {
+        Registration self = registration.getIfAvailable();
+        String selfId = self != null ? self.getInstanceId() : null;
+        return discoveryClient.getInstances(serviceId).stream()
+                .filter(instance -> !Objects.equals(instance.getInstanceId(), selfId))
+                .toList();
+    }
+}
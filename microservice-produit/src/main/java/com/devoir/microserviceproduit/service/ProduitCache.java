@@ -0,0 +1,182 @@
+package com.devoir.microserviceproduit.service;
+
+import com.devoir.microserviceproduit.model.Produit;
+import com.devoir.microserviceproduit.repository.ProduitRepository;
+import com.devoir.microserviceproduit.search.ProduitSearchIndex;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache en lecture des produits, devant le repository.
+ *
+ * Par ID : cache Caffeine borné en taille (éviction W-TinyLFU), rempli à la première lecture.
+ * Catalogue complet : instantané étiqueté avec la version du catalogue ({@link CatalogVersion}),
+ * reconstruit à la première lecture qui suit une modification.
+ * Les deux expirent après produits.cache.expire-after-write : une invalidation perdue par un
+ * pair injoignable ne laisse pas une donnée périmée au-delà de ce délai.
+ *
+ * Toute écriture passe par {@link #evictAfterCommit(Long)} : la version du catalogue est
+ * incrémentée avant de retirer l'entrée, si bien qu'un chargement concurrent qui aurait lu
+ * l'ancienne ligne est soit retiré par l'invalidation, soit détecté et annulé par le chargeur.
+ */
+@Service
+public class ProduitCache {
+
+    private record Snapshot(long version, long builtAtNanos, List<Produit> produits) {
+    }
+
+    private final ProduitRepository repository;
+    private final CatalogVersion catalogVersion;
+    private final PeerInvalidationBroadcaster broadcaster;
+    private final ProduitSearchIndex searchIndex;
+    private final Cache<Long, Produit> produits;
+    private final long maxSize;
+    private final long expireAfterWriteNanos;
+    private final Counter snapshotHits;
+    private final Counter snapshotMisses;
+    // Une seule reconstruction à la fois : les lecteurs suivants réutilisent son résultat
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    public ProduitCache(ProduitRepository repository, CatalogVersion catalogVersion,
+                        PeerInvalidationBroadcaster broadcaster, ProduitSearchIndex searchIndex,
+                        MeterRegistry meterRegistry,
+                        @Value("${produits.cache.max-size:10000}") long maxSize,
+                        @Value("${produits.cache.expire-after-write:PT5M}") Duration expireAfterWrite) {
+        this.repository = repository;
+        this.catalogVersion = catalogVersion;
+        this.broadcaster = broadcaster;
+        this.searchIndex = searchIndex;
+        this.maxSize = maxSize;
+        this.expireAfterWriteNanos = expireAfterWrite.toNanos();
+        this.produits = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, produits, "produits");
+        this.snapshotHits = Counter.builder("produits.catalog.snapshot").tag("result", "hit").register(meterRegistry);
+        this.snapshotMisses = Counter.builder("produits.catalog.snapshot").tag("result", "miss").register(meterRegistry);
+    }
+
+    public Optional<Produit> get(Long id) {
+        // Chargement atomique par clé : une invalidation concurrente attend sa fin puis le retire
+        return Optional.ofNullable(produits.get(id, key -> repository.findById(key).orElse(null)));
+    }
+
+    /**
+     * Produits trouvés, dans l'ordre des IDs demandés ; les IDs inconnus sont ignorés.
+     */
+    public List<Produit> getAll(Collection<Long> ids) {
+        Map<Long, Produit> found = new HashMap<>(produits.getAllPresent(ids));
+        List<Long> missing = ids.stream().distinct().filter(id -> !found.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            long version = catalogVersion.current().value();
+            Map<Long, Produit> loaded = new HashMap<>();
+            repository.findAllById(missing).forEach(p -> loaded.put(p.getId(), p));
+            produits.putAll(loaded);
+            if (catalogVersion.current().value() != version) {
+                // Écriture pendant le chargement : ces lignes sont peut-être déjà périmées
+                produits.invalidateAll(loaded.keySet());
+            }
+            found.putAll(loaded);
+        }
+        return ids.stream().distinct().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    public List<Produit> all() {
+        Snapshot current = snapshot;
+        if (isFresh(current, catalogVersion.current().value())) {
+            snapshotHits.increment();
+            return current.produits();
+        }
+        snapshotLock.lock();
+        try {
+            // Version lue avant les données : un instantané n'est jamais plus récent que son étiquette
+            long version = catalogVersion.current().value();
+            current = snapshot;
+            if (isFresh(current, version)) {
+                snapshotHits.increment();
+                return current.produits();
+            }
+            snapshotMisses.increment();
+            List<Produit> loaded = List.copyOf(repository.findAll());
+            snapshot = new Snapshot(version, System.nanoTime(), loaded);
+            return loaded;
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    private boolean isFresh(Snapshot current, long version) {
+        return current != null && current.version() == version
+                && System.nanoTime() - current.builtAtNanos() < expireAfterWriteNanos;
+    }
+
+    /**
+     * Construit l'instantané du catalogue et remplit le cache par ID (dans la limite de sa taille).
+     * Renvoie le nombre de produits du catalogue.
+     */
+    public int preload() {
+        long version = catalogVersion.current().value();
+        List<Produit> catalogue = all();
+        Map<Long, Produit> byId = new HashMap<>();
+        catalogue.stream().limit(maxSize).forEach(p -> byId.put(p.getId(), p));
+        produits.putAll(byId);
+        if (catalogVersion.current().value() != version) {
+            produits.invalidateAll(byId.keySet());
+        }
+        return catalogue.size();
+    }
+
+    /**
+     * Invalide le produit après le commit si une transaction est en cours, sinon immédiatement,
+     * et programme la diffusion aux autres instances.
+     */
+    public void evictAfterCommit(Long id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(id);
+            }
+        });
+    }
+
+    public void evict(Long id) {
+        evictAll(List.of(id));
+    }
+
+    public void evictAll(Collection<Long> ids) {
+        evictLocally(ids);
+        ids.forEach(broadcaster::publish);
+    }
+
+    /**
+     * Invalidation reçue d'une autre instance : appliquée localement, sans rediffusion.
+     */
+    public void evictLocally(Collection<Long> ids) {
+        catalogVersion.bump();
+        produits.invalidateAll(ids);
+        searchIndex.markDirty(ids);
+    }
+}
@@ -0,0 +1,103 @@
+package com.devoir.microserviceproduit.service;
+
+import com.devoir.microserviceproduit.model.Produit;
+import com.devoir.microserviceproduit.repository.ProduitJdbcRepository;
+import com.devoir.microserviceproduit.repository.ProduitRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Modifications et suppressions de produits en une seule requête conditionnelle
+ * (WHERE id = ? [AND version IN (...)]), sans lecture préalable de l'entité.
+ * Une écriture de la quantité passe par StockService, qui solde le stock d'un produit chaud
+ * tenu en mémoire dans la même transaction.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProduitService {
+
+    // Ignorés dans un patch : l'ID vient de l'URL, la version de If-Match
+    private static final Set<String> READ_ONLY_FIELDS = Set.of("id", "version");
+
+    private final ProduitRepository repository;
+    private final ProduitJdbcRepository jdbcRepository;
+    private final ObjectMapper objectMapper;
+    private final ProduitCache produitCache;
+    private final StockService stockService;
+
+    /**
+     * Remplace tous les champs modifiables (PUT). {@code versions} : versions acceptées
+     * (If-Match), null = sans condition.
+     */
+    @Transactional
+    public ConditionalWrite<Produit> update(Long id, Produit p, Collection<Long> versions) {
+        return write(id, p, ProduitJdbcRepository.COLUMNS.keySet(), versions);
+    }
+
+    /**
+     * Applique un JSON Merge Patch (RFC 7396) : seuls les champs présents sont modifiés,
+     * une valeur null efface le champ.
+     */
+    @Transactional
+    public ConditionalWrite<Produit> patch(Long id, Map<String, Object> patch, Collection<Long> versions) {
+        Set<String> fields = new HashSet<>(patch.keySet());
+        fields.removeAll(READ_ONLY_FIELDS);
+        for (String field : fields) {
+            if (!ProduitJdbcRepository.COLUMNS.containsKey(field)) {
+                throw new IllegalArgumentException("Champ inconnu : " + field);
+            }
+        }
+        Map<String, Object> values = new HashMap<>(patch);
+        values.keySet().retainAll(fields);
+        return write(id, objectMapper.convertValue(values, Produit.class), fields, versions);
+    }
+
+    @Transactional
+    public ConditionalWrite<Boolean> delete(Long id, Collection<Long> versions) {
+        if ((versions == null || !versions.isEmpty()) && jdbcRepository.delete(id, versions)) {
+            produitCache.evictAfterCommit(id);
+            return ConditionalWrite.appliquee(true);
+        }
+        return ConditionalWrite.echec(missingOrStale(id, versions));
+    }
+
+    private ConditionalWrite<Produit> write(Long id, Produit values, Collection<String> fields, Collection<Long> versions) {
+        if (versions != null && versions.isEmpty()) {
+            return ConditionalWrite.echec(missingOrStale(id, versions));
+        }
+        if (fields.isEmpty()) {
+            // Patch vide : rien à écrire, le produit est renvoyé tel quel
+            Optional<Produit> current = repository.findById(id);
+            if (current.isEmpty()) {
+                return ConditionalWrite.echec(ConditionalWrite.Resultat.INTROUVABLE);
+            }
+            Long version = current.get().getVersion() != null ? current.get().getVersion() : 0L;
+            return versions == null || versions.contains(version)
+                    ? ConditionalWrite.appliquee(current.get())
+                    : ConditionalWrite.echec(ConditionalWrite.Resultat.VERSION_PERIMEE);
+        }
+        Optional<Produit> updated = fields.contains("quantite")
+                ? stockService.overwriting(List.of(id), () -> jdbcRepository.update(id, values, fields, versions))
+                : jdbcRepository.update(id, values, fields, versions);
+        updated.ifPresent(p -> produitCache.evictAfterCommit(id));
+        return updated.map(ConditionalWrite::appliquee)
+                .orElseGet(() -> ConditionalWrite.echec(missingOrStale(id, versions)));
+    }
+
+    // Requête supplémentaire uniquement en cas d'échec, pour distinguer 404 et 412
+    private ConditionalWrite.Resultat missingOrStale(Long id, Collection<Long> versions) {
+        return versions != null && repository.existsById(id)
+                ? ConditionalWrite.Resultat.VERSION_PERIMEE
+                : ConditionalWrite.Resultat.INTROUVABLE;
+    }
+}
@@ -0,0 +1,324 @@
+package com.devoir.microserviceproduit.service;
+
+import com.devoir.microserviceproduit.model.StockReservation;
+import com.devoir.microserviceproduit.repository.ProduitRepository;
+import com.devoir.microserviceproduit.repository.StockLedgerRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Réservation de stock lors de la création d'une commande.
+ *
+ * Par défaut, chaque réservation est un UPDATE conditionnel atomique
+ * ("quantite = quantite - ? WHERE quantite >= ?") : jamais de survente, et aucun
+ * verrou n'est gardé entre lecture et écriture.
+ *
+ * Pour les produits déclarés dans produits.stock.hot-ids, le service réserve le stock
+ * en base par blocs (produits.stock.hot-lease-size) et sert les acheteurs depuis un
+ * compteur réparti en mémoire. Le reliquat non consommé est rendu à la base
+ * périodiquement, ce qui limite les écritures sur la ligne chaude.
+ *
+ * Une réservation porte un ID choisi par l'appelant, enregistré dans stock_reservation avec
+ * le décrément : la rejouer ne décrémente pas une seconde fois, et la libérer par son ID est
+ * sans effet si elle n'a jamais abouti (elle sera refusée si elle arrive après). L'appelant
+ * peut donc la libérer sans risque après un délai dépassé ou une erreur ambiguë.
+ *
+ * Les blocs en mémoire sont aussi comptés en base (stock_lease) ; au démarrage, le reliquat
+ * d'un bloc perdu par un arrêt brutal (bloc moins réservations servies) est rendu au stock.
+ */
+@Service
+@Slf4j
+public class StockService {
+
+    public enum Resultat { RESERVEE, STOCK_INSUFFISANT, PRODUIT_INCONNU, ANNULEE }
+
+    private final ProduitRepository repository;
+    private final StockLedgerRepository ledger;
+    private final ProduitCache produitCache;
+    private final TransactionTemplate transactionTemplate;
+    private final int leaseSize;
+    private final Duration reservationRetention;
+    private final Map<Long, StripedStockCounter> hotCounters = new ConcurrentHashMap<>();
+
+    public StockService(ProduitRepository repository, StockLedgerRepository ledger, ProduitCache produitCache,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${produits.stock.hot-ids:}") List<Long> hotIds,
+                        @Value("${produits.stock.hot-lease-size:100}") int leaseSize,
+                        @Value("${produits.stock.hot-stripes:0}") int stripes,
+                        @Value("${produits.stock.reservation-retention:P7D}") Duration reservationRetention) {
+        this.repository = repository;
+        this.ledger = ledger;
+        this.produitCache = produitCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.leaseSize = leaseSize;
+        this.reservationRetention = reservationRetention;
+        int stripeCount = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+        hotIds.forEach(id -> hotCounters.put(id, new StripedStockCounter(stripeCount)));
+    }
+
+    public Resultat reserve(Long id, int quantite) {
+        return reserve(id, quantite, null);
+    }
+
+    /**
+     * {@code reservationId} null : réservation anonyme, ni rejouable ni libérable par ID.
+     */
+    public Resultat reserve(Long id, int quantite, String reservationId) {
+        if (reservationId != null) {
+            Optional<Resultat> known = known(reservationId);
+            if (known.isPresent()) {
+                return known.get();
+            }
+        }
+        StripedStockCounter counter = hotCounters.get(id);
+        if (counter == null) {
+            return reserveInDatabase(id, quantite, reservationId);
+        }
+        // Servie depuis la mémoire : toujours enregistrée, pour le rapprochement du bloc
+        String ledgerId = reservationId != null ? reservationId : UUID.randomUUID().toString();
+        if (counter.tryTake(quantite)) {
+            return recordHot(id, quantite, ledgerId, counter);
+        }
+        return reserveHot(id, quantite, ledgerId, counter);
+    }
+
+    public Resultat release(Long id, int quantite) {
+        if (repository.incrementStock(id, quantite) == 1) {
+            produitCache.evict(id);
+            return Resultat.RESERVEE;
+        }
+        return Resultat.PRODUIT_INCONNU;
+    }
+
+    /**
+     * Libère la réservation {@code reservationId} si elle a abouti ; sinon la marque libérée
+     * pour qu'elle soit refusée si elle arrive plus tard. Idempotent.
+     */
+    public void release(Long id, String reservationId) {
+        try {
+            releaseOnce(id, reservationId);
+        } catch (DuplicateKeyException e) {
+            // Réservation enregistrée entre-temps : elle est maintenant libérable
+            releaseOnce(id, reservationId);
+        }
+    }
+
+    private void releaseOnce(Long id, String reservationId) {
+        Optional<StockLedgerRepository.Released> released = transactionTemplate.execute(status -> {
+            Optional<StockLedgerRepository.Released> r = ledger.release(reservationId);
+            if (r.isPresent()) {
+                repository.incrementStock(r.get().produitId(), r.get().quantite());
+            } else if (ledger.statut(reservationId).isEmpty()) {
+                ledger.insert(reservationId, id, 0, StockReservation.LIBEREE, false);
+            }
+            return r;
+        });
+        released.ifPresent(r -> produitCache.evict(r.produitId()));
+    }
+
+    private Optional<Resultat> known(String reservationId) {
+        return ledger.statut(reservationId)
+                .map(statut -> StockReservation.RESERVEE.equals(statut) ? Resultat.RESERVEE : Resultat.ANNULEE);
+    }
+
+    private Resultat reserveInDatabase(Long id, int quantite, String reservationId) {
+        boolean reserved;
+        try {
+            reserved = transactionTemplate.execute(status -> {
+                if (repository.decrementStock(id, quantite) != 1) {
+                    return false;
+                }
+                if (reservationId != null) {
+                    ledger.insert(reservationId, id, quantite, StockReservation.RESERVEE, false);
+                }
+                return true;
+            });
+        } catch (DuplicateKeyException e) {
+            // Même réservation reçue deux fois en même temps : le décrément de celle-ci est annulé
+            return known(reservationId).orElseThrow(() -> e);
+        }
+        if (reserved) {
+            produitCache.evict(id);
+            return Resultat.RESERVEE;
+        }
+        return repository.existsById(id) ? Resultat.STOCK_INSUFFISANT : Resultat.PRODUIT_INCONNU;
+    }
+
+    // Quantité déjà prise dans le compteur : rendue au compteur si la réservation n'est pas enregistrée
+    private Resultat recordHot(Long id, int quantite, String reservationId, StripedStockCounter counter) {
+        try {
+            ledger.insert(reservationId, id, quantite, StockReservation.RESERVEE, true);
+            return Resultat.RESERVEE;
+        } catch (DuplicateKeyException e) {
+            counter.add(quantite);
+            return known(reservationId).orElseThrow(() -> e);
+        } catch (RuntimeException e) {
+            counter.add(quantite);
+            throw e;
+        }
+    }
+
+    // Un seul acheteur à la fois recharge le compteur ; les autres réessaient ensuite en mémoire
+    private Resultat reserveHot(Long id, int quantite, String reservationId, StripedStockCounter counter) {
+        counter.refillLock.lock();
+        try {
+            if (counter.tryTake(quantite)) {
+                return recordHot(id, quantite, reservationId, counter);
+            }
+            // Réserve la demande et un nouveau bloc en une seule écriture
+            boolean refilled;
+            try {
+                refilled = transactionTemplate.execute(status -> {
+                    if (repository.decrementStock(id, quantite + leaseSize) != 1) {
+                        return false;
+                    }
+                    ledger.addLease(id, leaseSize);
+                    ledger.insert(reservationId, id, quantite, StockReservation.RESERVEE, false);
+                    return true;
+                });
+            } catch (DuplicateKeyException e) {
+                return known(reservationId).orElseThrow(() -> e);
+            }
+            if (refilled) {
+                produitCache.evict(id);
+                counter.add(leaseSize);
+                return Resultat.RESERVEE;
+            }
+            // Stock presque épuisé : on rend le reliquat fragmenté et on réserve au plus juste
+            returnLease(id, counter);
+            return reserveInDatabase(id, quantite, reservationId);
+        } finally {
+            counter.refillLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${produits.stock.hot-flush-interval:PT5S}")
+    @PreDestroy
+    public void flush() {
+        hotCounters.forEach((id, counter) -> {
+            counter.refillLock.lock();
+            try {
+                int remaining = returnLease(id, counter);
+                if (remaining > 0) {
+                    log.debug("Stock réservé non consommé rendu pour le produit {}: {}", id, remaining);
+                }
+            } finally {
+                counter.refillLock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Rend le reliquat du compteur à la base et rapproche le bloc des réservations servies,
+     * dans une transaction ; en cas d'échec, le reliquat reste dans le compteur.
+     * Appelé sous refillLock.
+     */
+    private int returnLease(Long id, StripedStockCounter counter) {
+        int remaining = counter.drain();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                int served = ledger.settleLease(id);
+                if (remaining > 0) {
+                    repository.incrementStock(id, remaining);
+                }
+                ledger.addLease(id, -(remaining + served));
+            });
+        } catch (RuntimeException e) {
+            counter.add(remaining);
+            throw e;
+        }
+        if (remaining > 0) {
+            produitCache.evict(id);
+        }
+        return remaining;
+    }
+
+    /**
+     * Écriture qui remplace la quantité en base (PUT, PATCH de quantite, import), appelée dans
+     * sa transaction. Pour un produit chaud, le compteur en mémoire est vidé et le bloc soldé
+     * dans cette même transaction, sans rendre le reliquat : la nouvelle quantité le remplace.
+     * Le compteur ne peut pas être rechargé avant la fin de la transaction ; si elle est annulée,
+     * le reliquat lui est rendu.
+     */
+    public <T> T overwriting(Collection<Long> ids, Supplier<T> write) {
+        List<Long> hot = ids.stream().filter(hotCounters::containsKey).distinct().sorted().toList();
+        if (hot.isEmpty()) {
+            return write.get();
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Écriture du stock d'un produit chaud hors transaction");
+        }
+        // Verrous pris dans l'ordre des IDs, rendus à la fin de la transaction
+        Map<Long, Integer> drained = new LinkedHashMap<>();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                drained.forEach((id, remaining) -> {
+                    StripedStockCounter counter = hotCounters.get(id);
+                    if (status != STATUS_COMMITTED) {
+                        counter.add(remaining);
+                    }
+                    counter.refillLock.unlock();
+                });
+            }
+        });
+        for (Long id : hot) {
+            StripedStockCounter counter = hotCounters.get(id);
+            counter.refillLock.lock();
+            drained.put(id, counter.drain());
+            int served = ledger.settleLease(id);
+            ledger.addLease(id, -(drained.get(id) + served));
+        }
+        return write.get();
+    }
+
+    /**
+     * Au démarrage, avant toute réservation : les blocs comptés en base appartiennent à une
+     * exécution précédente. Ce qui n'a pas été servi est rendu au stock.
+     */
+    @PostConstruct
+    void recoverLeases() {
+        ledger.leases().forEach((id, leased) -> {
+            int recovered = transactionTemplate.execute(status -> {
+                int lost = leased - ledger.settleLease(id);
+                if (lost > 0) {
+                    repository.incrementStock(id, lost);
+                }
+                ledger.resetLease(id);
+                return lost;
+            });
+            if (recovered > 0) {
+                log.info("Stock d'un bloc en mémoire non rendu avant l'arrêt, restitué au produit {}: {}", id, recovered);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${produits.stock.reservation-prune-interval:PT1H}",
+               initialDelayString = "${produits.stock.reservation-prune-interval:PT1H}")
+    public void pruneReservations() {
+        int deleted = ledger.deleteBefore(Instant.now().minus(reservationRetention));
+        if (deleted > 0) {
+            log.info("{} réservations de plus de {} supprimées", deleted, reservationRetention);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.devoir.microserviceproduit.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stock déjà réservé en base pour un produit très demandé, réparti sur plusieurs
+ * compartiments pour que les acheteurs simultanés ne se disputent pas le même compteur.
+ */
+final class StripedStockCounter {
+
+    // Un compartiment toutes les 16 cases pour éviter le faux partage de lignes de cache
+    private static final int PADDING = 16;
+
+    private final AtomicIntegerArray cells;
+    private final int stripes;
+
+    // Sérialise les rechargements depuis la base (ReentrantLock : compatible threads virtuels)
+    final ReentrantLock refillLock = new ReentrantLock();
+
+    StripedStockCounter(int stripes) {
+        this.stripes = stripes;
+        this.cells = new AtomicIntegerArray(stripes * PADDING);
+    }
+
+    /**
+     * Prend la quantité dans un compartiment qui en contient assez, sans verrou.
+     */
+    boolean tryTake(int quantite) {
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        for (int i = 0; i < stripes; i++) {
+            int index = ((start + i) % stripes) * PADDING;
+            int current;
+            while ((current = cells.get(index)) >= quantite) {
+                if (cells.compareAndSet(index, current, current - quantite)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Répartit une quantité fraîchement réservée en base sur les compartiments.
+     */
+    void add(int quantite) {
+        int share = quantite / stripes;
+        int remainder = quantite % stripes;
+        for (int i = 0; i < stripes; i++) {
+            cells.addAndGet(i * PADDING, share + (i < remainder ? 1 : 0));
+        }
+    }
+
+    /**
+     * Vide tous les compartiments et retourne la quantité récupérée.
+     */
+    int drain() {
+        int total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.getAndSet(i * PADDING, 0);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,117 @@
+package com.devoir.microserviceproduit;
+
+import com.devoir.microserviceproduit.model.Produit;
+import com.devoir.microserviceproduit.repository.CatalogStateRepository;
+import com.devoir.microserviceproduit.repository.ProduitRepository;
+import com.devoir.microserviceproduit.service.CatalogVersion;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * ETags des produits et du catalogue, GET conditionnels et écritures avec If-Match.
+ */
+@SpringBootTest(properties = "eureka.client.enabled=false")
+@AutoConfigureMockMvc
+class ProduitConditionalRequestTests {
+
+    private static final String BODY = "{\"description\":\"Lampe\",\"quantite\":5,\"montant\":20.0}";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ProduitRepository repository;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private CatalogStateRepository stateRepository;
+
+    @Test
+    void ifNoneMatchWithCurrentEtagReturnsNotModified() throws Exception {
+        Long id = newProduit();
+        String etag = etagOf(id);
+
+        mvc.perform(get("/produits/{id}", id).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void ifMatchAppliesCurrentVersionAndRejectsStaleOne() throws Exception {
+        Long id = newProduit();
+        String etag = etagOf(id);
+
+        String updated = mvc.perform(put("/produits/{id}", id).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON).content(BODY))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, updated);
+
+        mvc.perform(put("/produits/{id}", id).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON).content(BODY))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void etagFromAnotherDatabaseNeverMatches() throws Exception {
+        Long id = newProduit();
+        String etag = etagOf(id);
+        String foreign = "\"autre-base" + etag.substring(etag.indexOf('-'));
+
+        mvc.perform(put("/produits/{id}", id).header(HttpHeaders.IF_MATCH, foreign)
+                        .contentType(MediaType.APPLICATION_JSON).content(BODY))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void catalogEtagChangesAfterAWrite() throws Exception {
+        String before = mvc.perform(get("/produits"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mvc.perform(get("/produits").header(HttpHeaders.IF_NONE_MATCH, before))
+                .andExpect(status().isNotModified());
+
+        Long id = newProduit();
+        mvc.perform(put("/produits/{id}", id).contentType(MediaType.APPLICATION_JSON).content(BODY))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/produits").header(HttpHeaders.IF_NONE_MATCH, before))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void epochIsKeptInDatabaseAcrossRestarts() throws Exception {
+        Long id = newProduit();
+        assertTrue(etagOf(id).startsWith("\"" + catalogVersion.epoch() + "-"));
+
+        // Un second démarrage sur la même base garde l'epoch et change de numéro
+        CatalogStateRepository.State restart = stateRepository.start("nouvel-epoch");
+        assertEquals(catalogVersion.epoch(), restart.epoch());
+        assertTrue(restart.boot() > catalogVersion.boot());
+    }
+
+    private Long newProduit() {
+        return repository.save(Produit.builder().description("Lampe").quantite(10).montant(20.0).build()).getId();
+    }
+
+    private String etagOf(Long id) throws Exception {
+        return mvc.perform(get("/produits/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
@@ -0,0 +1,67 @@
+package com.devoir.microserviceproduit;
+
+import com.devoir.microserviceproduit.model.Produit;
+import com.devoir.microserviceproduit.repository.ProduitRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Import en masse : création, remplacement et création avec un ID fourni (upsert).
+ */
+@SpringBootTest(properties = "eureka.client.enabled=false")
+@AutoConfigureMockMvc
+class ProduitImportTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ProduitRepository repository;
+
+    @Test
+    void importCreatesReplacesAndKeepsProvidedIds() throws Exception {
+        Long existant = repository.save(Produit.builder().description("Lampe").quantite(10).montant(20.0).build()).getId();
+        long inconnu = existant + 1000;
+        String csv = "id,description,quantite,montant\n"
+                + existant + ",Lampe LED,7,25.5\n"
+                + inconnu + ",Tabouret,3,40.0\n"
+                + ",Étagère,2,60.0\n";
+
+        mvc.perform(post("/produits/import").contentType("text/csv").content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lues").value(3))
+                .andExpect(jsonPath("$.inserees").value(2))
+                .andExpect(jsonPath("$.modifiees").value(1))
+                .andExpect(jsonPath("$.rejetees").value(0));
+
+        Produit remplace = repository.findById(existant).orElseThrow();
+        assertEquals("Lampe LED", remplace.getDescription());
+        assertEquals(7, remplace.getQuantite());
+        assertEquals(1L, remplace.getVersion());
+        Produit cree = repository.findById(inconnu).orElseThrow();
+        assertEquals("Tabouret", cree.getDescription());
+        assertEquals(0L, cree.getVersion());
+    }
+
+    @Test
+    void creationsAfterImportDoNotReuseImportedIds() throws Exception {
+        long importe = repository.save(Produit.builder().description("Vis").quantite(1).montant(1.0).build()).getId() + 500;
+        mvc.perform(post("/produits/import").contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"id\":" + importe + ",\"description\":\"Écrou\",\"quantite\":4,\"montant\":0.5}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserees").value(1));
+
+        Long suivant = repository.save(Produit.builder().description("Rondelle").quantite(1).montant(0.2).build()).getId();
+        assertTrue(suivant > importe, "l'identité doit être avancée au-delà de l'ID importé");
+    }
+}
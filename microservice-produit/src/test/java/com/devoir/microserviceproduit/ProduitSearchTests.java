@@ -0,0 +1,91 @@
+package com.devoir.microserviceproduit;
+
+import com.devoir.microserviceproduit.model.Produit;
+import com.devoir.microserviceproduit.search.ProduitSearchIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recherche dans l'index inversé : préfixes, classement, filtres et mises à jour.
+ * Les produits sont indexés directement, avec des IDs et des mots absents du catalogue.
+ */
+@SpringBootTest(properties = "eureka.client.enabled=false")
+class ProduitSearchTests {
+
+    private static final AtomicLong IDS = new AtomicLong(9_000_000);
+
+    @Autowired
+    private ProduitSearchIndex index;
+
+    @Test
+    void exactTermRanksBeforePrefixMatch() {
+        Long prefix = index("Lampe zorblaxette", 10, 20.0);
+        Long exact = index("Lampe zorblax", 10, 20.0);
+
+        assertEquals(List.of(exact, prefix), ids(search("zorblax")));
+        // Deux simples préfixes : même score, ordre des IDs
+        assertEquals(List.of(prefix, exact), ids(search("zorbl")));
+    }
+
+    @Test
+    void everyWordMustMatchIgnoringCaseAndAccents() {
+        Long chaise = index("Chaise BÜRO quuxium", 10, 80.0);
+        index("Table quuxium", 10, 80.0);
+
+        assertEquals(List.of(chaise), ids(search("quux buro")));
+        assertEquals(List.of(chaise), ids(search("CHAI quuxium")));
+    }
+
+    @Test
+    void singleCharacterOnlyMatchesIdenticalTerm() {
+        Long lettre = index("Vis v flibbertex", 10, 1.0);
+        index("Vis flibbertex verte", 10, 1.0);
+
+        assertEquals(List.of(lettre), ids(search("flibbertex v")));
+        assertTrue(search("f").stream().noneMatch(p -> p.getDescription().contains("flibbertex")));
+    }
+
+    @Test
+    void filtersAndLimitApplyToCandidates() {
+        index("Stylo grommitude", 0, 2.0);
+        Long moyen = index("Stylo grommitude", 5, 5.0);
+        Long cher = index("Stylo grommitude", 5, 9.0);
+
+        assertEquals(List.of(moyen, cher), ids(index.search(
+                new ProduitSearchIndex.Criteres("grommitude", 3.0, null, 1, null, 10))));
+        assertEquals(1, index.search(new ProduitSearchIndex.Criteres("grommitude", null, null, null, null, 1)).size());
+    }
+
+    @Test
+    void updatesAndRemovalsAreVisible() {
+        List<Long> ids = LongStream.range(0, 1000).mapToObj(i -> index("Boulon plonquette", 1, 1.0)).toList();
+        ids.stream().filter(id -> id % 2 == 1).forEach(index::remove);
+        Long renamed = ids.get(0);
+        index.put(Produit.builder().id(renamed).description("Boulon renommé").quantite(1).montant(1.0).version(1L).build());
+
+        List<Long> found = ids(index.search(new ProduitSearchIndex.Criteres("plonquette", null, null, null, null, 1000)));
+        assertEquals(ids.stream().filter(id -> id % 2 == 0 && !id.equals(renamed)).toList(), found);
+    }
+
+    private Long index(String description, int quantite, double montant) {
+        long id = IDS.incrementAndGet();
+        index.put(Produit.builder().id(id).description(description).quantite(quantite).montant(montant).version(0L).build());
+        return id;
+    }
+
+    private List<Produit> search(String q) {
+        return index.search(new ProduitSearchIndex.Criteres(q, null, null, null, null, 20));
+    }
+
+    private static List<Long> ids(List<Produit> produits) {
+        return produits.stream().map(Produit::getId).toList();
+    }
+}
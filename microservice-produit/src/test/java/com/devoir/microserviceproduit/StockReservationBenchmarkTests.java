@@ -0,0 +1,96 @@
+package com.devoir.microserviceproduit;
+
+import com.devoir.microserviceproduit.model.Produit;
+import com.devoir.microserviceproduit.repository.ProduitRepository;
+import com.devoir.microserviceproduit.repository.StockLedgerRepository;
+import com.devoir.microserviceproduit.service.ProduitCache;
+import com.devoir.microserviceproduit.service.StockService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Débit de réservation sur un seul produit très demandé avec 64 acheteurs simultanés :
+ * UPDATE conditionnel en base contre compteur réparti en mémoire.
+ * Lancement : mvn test -Dtest=StockReservationBenchmarkTests -Dbenchmark=true
+ */
+@SpringBootTest(properties = "eureka.client.enabled=false")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class StockReservationBenchmarkTests {
+
+    private static final int BUYERS = 64;
+    private static final int STOCK = 50_000;
+    private static final int ATTEMPTS_PER_BUYER = 1_000;
+
+    @Autowired
+    private ProduitRepository repository;
+
+    @Autowired
+    private StockLedgerRepository ledger;
+
+    @Autowired
+    private ProduitCache produitCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void hotProductReservationThroughput() throws Exception {
+        Produit dbProduit = repository.save(Produit.builder().description("Produit chaud (base)").quantite(STOCK).montant(10.0).build());
+        Produit hotProduit = repository.save(Produit.builder().description("Produit chaud (mémoire)").quantite(STOCK).montant(10.0).build());
+
+        StockService dbStock = new StockService(repository, ledger, produitCache, transactionManager,
+                List.of(), 100, 0, Duration.ofDays(7));
+        StockService hotStock = new StockService(repository, ledger, produitCache, transactionManager,
+                List.of(hotProduit.getId()), 100, 0, Duration.ofDays(7));
+
+        Result db = run(dbStock, dbProduit.getId());
+        Result hot = run(hotStock, hotProduit.getId());
+        hotStock.flush();
+
+        // Aucune survente : ce qui a été réservé a été retiré du stock, ni plus ni moins
+        assertEquals(STOCK - db.reserved, repository.findById(dbProduit.getId()).orElseThrow().getQuantite());
+        assertEquals(STOCK - hot.reserved, repository.findById(hotProduit.getId()).orElseThrow().getQuantite());
+
+        System.out.printf("UPDATE conditionnel  : %,.0f réservations/s (%d réservées)%n", db.throughput, db.reserved);
+        System.out.printf("Compteur réparti     : %,.0f réservations/s (%d réservées, x%.1f)%n",
+                hot.throughput, hot.reserved, hot.throughput / db.throughput);
+    }
+
+    private Result run(StockService stock, Long id) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                int reserved = 0;
+                for (int n = 0; n < ATTEMPTS_PER_BUYER; n++) {
+                    if (stock.reserve(id, 1) == StockService.Resultat.RESERVEE) reserved++;
+                }
+                return reserved;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        int reserved = 0;
+        for (Future<Integer> f : futures) reserved += f.get();
+        double seconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+        pool.shutdown();
+        return new Result(reserved, BUYERS * ATTEMPTS_PER_BUYER / seconds);
+    }
+
+    private record Result(int reserved, double throughput) {}
+}